@@ -14,7 +14,9 @@
 
 package com.google.sps.classes;
 
+import com.google.gson.stream.JsonWriter;
 import com.google.sps.classes.Comment;
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
@@ -31,7 +33,14 @@ public class Answer {
   private boolean isVerifiedMentor;
   private Timestamp dateTime;
   private int votes;
+  // Only the newest comments are in the list. The rest are requested with the cursor.
   private List<Comment> commentList = new ArrayList<>();
+  private int numberOfComments;
+  private String olderCommentsCursor;
+
+  public int getId() {
+    return id;
+  }
 
   public void setId(int id) {
     this.id = id;
@@ -60,4 +69,55 @@ public class Answer {
   public void addComment(Comment comment) {
     this.commentList.add(comment);
   }
+
+  public List<Comment> getCommentList() {
+    return commentList;
+  }
+
+  public int getNumberOfComments() {
+    return numberOfComments;
+  }
+
+  public void setNumberOfComments(int numberOfComments) {
+    this.numberOfComments = numberOfComments;
+  }
+
+  public void setOlderCommentsCursor(String olderCommentsCursor) {
+    this.olderCommentsCursor = olderCommentsCursor;
+  }
+
+  /**
+   * Writes an answer and its comments as JSON without reflection.
+   */
+  public static final class GsonAdapter extends JsonAdapters.WriteOnlyAdapter<Answer> {
+    private final Comment.GsonAdapter commentAdapter;
+
+    public GsonAdapter(Comment.GsonAdapter commentAdapter) {
+      this.commentAdapter = commentAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, Answer answer) throws IOException {
+      if (answer == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("id").value(answer.id);
+      out.name("body").value(answer.body);
+      out.name("authorName").value(answer.authorName);
+      out.name("isVerifiedMentor").value(answer.isVerifiedMentor);
+      out.name("dateTime");
+      JsonAdapters.writeTimestamp(out, answer.dateTime);
+      out.name("votes").value(answer.votes);
+      out.name("commentList").beginArray();
+      for (Comment comment : answer.commentList) {
+        commentAdapter.write(out, comment);
+      }
+      out.endArray();
+      out.name("numberOfComments").value(answer.numberOfComments);
+      out.name("olderCommentsCursor").value(answer.olderCommentsCursor);
+      out.endObject();
+    }
+  }
 }
@@ -0,0 +1,52 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+/**
+ * Constants used for setup of the in-memory caches stored in the Servlet's context.
+ */
+public final class CacheConstants {
+  // Constants for the cache of forum pages.
+  public static final String FORUM_PAGE_CACHE_ATTRIBUTE = "forum-page-cache";
+  public static final int FORUM_PAGE_CACHE_MAX_ENTRIES = 200;
+  public static final long FORUM_PAGE_CACHE_TIME_TO_LIVE = 30000; // 30 seconds
+
+  // Constants for the cache of the questions followed by each user. A set is dropped once the
+  // ETag of the followed questions changes, so the time to live only bounds memory.
+  public static final String FOLLOWED_QUESTIONS_CACHE_ATTRIBUTE = "followed-questions-cache";
+  public static final int FOLLOWED_QUESTIONS_CACHE_MAX_ENTRIES = 5000;
+  public static final long FOLLOWED_QUESTIONS_CACHE_TIME_TO_LIVE = 600000; // 10 minutes
+
+  // Constants for the versions used to build the ETags of the GET servlets, cached from the
+  // ContentVersion table. The time to live matches the cache of forum pages, since both bound
+  // staleness across instances.
+  public static final String CONTENT_VERSIONS_ATTRIBUTE = "content-versions";
+  public static final int CONTENT_VERSIONS_MAX_ENTRIES = 10000;
+  public static final long CONTENT_VERSIONS_TIME_TO_LIVE = 30000; // 30 seconds
+
+  // Constants for the cache of the recent notifications of each user. Each user keeps a page of
+  // notifications, so the cache holds at most MAX_ENTRIES * NOTIFICATION_PAGE_SIZE of them. A
+  // page is dropped once the ETag of its inbox changes, so a notification sent by another
+  // instance is missing no longer than the content versions are cached.
+  public static final String RECENT_NOTIFICATIONS_CACHE_ATTRIBUTE = "recent-notifications-cache";
+  public static final int RECENT_NOTIFICATIONS_CACHE_MAX_ENTRIES = 2000;
+  public static final long RECENT_NOTIFICATIONS_CACHE_TIME_TO_LIVE = 60000; // 1 minute
+
+  // Constants for the cache of user IDs by email. Only registered users are cached, and those
+  // with a session also keep their ID there.
+  public static final String USER_ID_CACHE_ATTRIBUTE = "user-id-cache";
+  public static final int USER_ID_CACHE_MAX_ENTRIES = 10000;
+  public static final long USER_ID_CACHE_TIME_TO_LIVE = 600000; // 10 minutes
+}
@@ -0,0 +1,52 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+/**
+ * Usage statistics of an in-memory cache. It will be used for Gson conversion.
+ */
+public final class CacheStatistics {
+
+  private final int size;
+  private final int maxSize;
+  private final long hits;
+  private final long misses;
+  private final long evictions; // Entries removed to make room for new ones.
+  private final long expirations; // Entries removed because they outlived their time to live.
+  private final long invalidations;
+
+  public CacheStatistics(int size, int maxSize, long hits, long misses, long evictions,
+      long expirations, long invalidations) {
+    this.size = size;
+    this.maxSize = maxSize;
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.expirations = expirations;
+    this.invalidations = invalidations;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+}
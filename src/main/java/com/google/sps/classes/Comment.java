@@ -14,6 +14,8 @@
 
 package com.google.sps.classes;
 
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.Date;
 
@@ -22,11 +24,20 @@ import java.util.Date;
  */
 public class Comment {
 
+  private int id;
   private String body;
   private String authorName;
   private boolean isVerifiedMentor;
   private Timestamp dateTime;
 
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
   public void setBody(String body) {
     this.body = body;
   }
@@ -39,7 +50,32 @@ public class Comment {
     this.isVerifiedMentor = isVerifiedMentor;
   }
 
+  public Timestamp getDateTime() {
+    return dateTime;
+  }
+
   public void setDateTime(Timestamp dateTime) {
     this.dateTime = dateTime;
   }
+
+  /**
+   * Writes a comment as JSON without reflection.
+   */
+  public static final class GsonAdapter extends JsonAdapters.WriteOnlyAdapter<Comment> {
+    @Override
+    public void write(JsonWriter out, Comment comment) throws IOException {
+      if (comment == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("id").value(comment.id);
+      out.name("body").value(comment.body);
+      out.name("authorName").value(comment.authorName);
+      out.name("isVerifiedMentor").value(comment.isVerifiedMentor);
+      out.name("dateTime");
+      JsonAdapters.writeTimestamp(out, comment.dateTime);
+      out.endObject();
+    }
+  }
 }
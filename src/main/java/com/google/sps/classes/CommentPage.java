@@ -0,0 +1,62 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.classes.Comment;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A page of the comments of an answer, in the order they were posted, along with the cursor of
+ * the page of older comments. The cursor is null if there are no older comments.
+ */
+public class CommentPage {
+
+  private final List<Comment> comments;
+  private final String olderCommentsCursor;
+
+  public CommentPage(List<Comment> comments, String olderCommentsCursor) {
+    this.comments = comments;
+    this.olderCommentsCursor = olderCommentsCursor;
+  }
+
+  /**
+   * Writes a page and its comments as JSON without reflection.
+   */
+  public static final class GsonAdapter extends JsonAdapters.WriteOnlyAdapter<CommentPage> {
+    private final Comment.GsonAdapter commentAdapter;
+
+    public GsonAdapter(Comment.GsonAdapter commentAdapter) {
+      this.commentAdapter = commentAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, CommentPage commentPage) throws IOException {
+      if (commentPage == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("comments").beginArray();
+      for (Comment comment : commentPage.comments) {
+        commentAdapter.write(out, comment);
+      }
+      out.endArray();
+      out.name("olderCommentsCursor").value(commentPage.olderCommentsCursor);
+      out.endObject();
+    }
+  }
+}
@@ -0,0 +1,172 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of the connections borrowed from the pool, along with where they were borrowed.
+ * A connection still open after the leak threshold is reported as a suspected leak with the
+ * stack trace of the code that borrowed it, which is usually enough to find the missing close().
+ *
+ * Hikari has its own leak detection, but it only logs. This one also counts the borrows and
+ * returns, so the administrators can see from the stats page whether connections pile up.
+ */
+public class ConnectionLeakTracker {
+
+  private final long leakThreshold;
+  private final Map<Long, Borrow> openBorrows = new ConcurrentHashMap<>();
+
+  private final AtomicLong nextBorrowId = new AtomicLong();
+  private final AtomicLong borrowed = new AtomicLong();
+  private final AtomicLong returned = new AtomicLong();
+  private final AtomicLong leaksReported = new AtomicLong();
+
+  /**
+   * Creates a tracker that suspects a leak once a connection is open for leakThreshold
+   * milliseconds.
+   */
+  public ConnectionLeakTracker(long leakThreshold) {
+    this.leakThreshold = leakThreshold;
+  }
+
+  /**
+   * Returns a connection that forwards every call to the given one and stops being tracked once
+   * it is closed.
+   */
+  public Connection track(Connection connection) {
+    long borrowId = nextBorrowId.incrementAndGet();
+    openBorrows.put(borrowId, new Borrow(System.currentTimeMillis(),
+        new Throwable("Connection borrowed by thread " + Thread.currentThread().getName())));
+    borrowed.incrementAndGet();
+    return (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+        new TrackedConnectionHandler(connection, borrowId));
+  }
+
+  /**
+   * Returns the number of connections borrowed and not closed yet.
+   */
+  public int getOpenConnections() {
+    return openBorrows.size();
+  }
+
+  /**
+   * Returns the stack traces of the connections that are open for longer than the threshold.
+   * Each one is logged the first time it is found.
+   */
+  public List<String> getSuspectedLeaks() {
+    long now = System.currentTimeMillis();
+    List<String> suspectedLeaks = new ArrayList<>();
+    for (Borrow borrow : openBorrows.values()) {
+      long openTime = now - borrow.borrowTime;
+      if (openTime < leakThreshold) {
+        continue;
+      }
+      if (!borrow.reported) {
+        borrow.reported = true;
+        leaksReported.incrementAndGet();
+        Logger logger = Logger.getLogger(ConnectionLeakTracker.class.getName());
+        logger.log(Level.WARNING, "Connection open for " + openTime + " ms, possible leak",
+            borrow.stackTrace);
+      }
+      StringWriter stackTrace = new StringWriter();
+      borrow.stackTrace.printStackTrace(new PrintWriter(stackTrace));
+      suspectedLeaks.add("Open for " + openTime + " ms: " + stackTrace);
+    }
+    return suspectedLeaks;
+  }
+
+  /**
+   * Returns the counters of the tracker, along with the suspected leaks.
+   */
+  public Map<String, Object> getStatistics() {
+    // Leaks are looked for first so the ones found now are in the reported counter.
+    List<String> suspectedLeaks = getSuspectedLeaks();
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("borrowed", borrowed.get());
+    statistics.put("returned", returned.get());
+    statistics.put("open", getOpenConnections());
+    statistics.put("leakThreshold", leakThreshold);
+    statistics.put("leaksReported", leaksReported.get());
+    statistics.put("suspectedLeaks", suspectedLeaks);
+    return statistics;
+  }
+
+  /**
+   * Marks a borrow as returned. Closing a connection twice only counts once.
+   */
+  private void release(long borrowId) {
+    if (openBorrows.remove(borrowId) != null) {
+      returned.incrementAndGet();
+    }
+  }
+
+  /**
+   * When and where a connection was borrowed.
+   */
+  private static final class Borrow {
+    private final long borrowTime;
+    private final Throwable stackTrace;
+    private volatile boolean reported = false;
+
+    private Borrow(long borrowTime, Throwable stackTrace) {
+      this.borrowTime = borrowTime;
+      this.stackTrace = stackTrace;
+    }
+  }
+
+  /**
+   * Forwards every call to the borrowed connection and releases the borrow when it is closed.
+   */
+  private final class TrackedConnectionHandler implements InvocationHandler {
+    private final Connection connection;
+    private final long borrowId;
+
+    private TrackedConnectionHandler(Connection connection, long borrowId) {
+      this.connection = connection;
+      this.borrowId = borrowId;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+      try {
+        return method.invoke(connection, arguments);
+      } catch (InvocationTargetException exception) {
+        // Callers expect the SQLException of the connection, not the reflection wrapper.
+        throw exception.getCause();
+      } finally {
+        // The borrow ends even if close() fails, since the pool takes the connection back anyway.
+        if (method.getName().equals("close") && method.getParameterCount() == 0) {
+          release(borrowId);
+        }
+      }
+    }
+  }
+}
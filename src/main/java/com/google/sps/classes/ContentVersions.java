@@ -0,0 +1,155 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import com.google.sps.classes.LruCache;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * Version numbers of the content served by the GET servlets, used to build their ETags. The
+ * servlets that write bump the version of what they changed, which gives it a new ETag.
+ *
+ * Versions are stored in the ContentVersion table, so every App Engine instance builds the same
+ * ETag for the same content and a conditional GET gets a 304 whichever instance answers it.
+ * They are also kept in an LruCache for a short time to live, which bounds how long an instance
+ * keeps answering 304 after a write on a different one. The ETags carry the version of the
+ * deployment, since a new one can change how the content is written, and the version of ALL,
+ * which the jobs that change content in bulk bump.
+ */
+public class ContentVersions {
+  // Key of the version of the forum feed.
+  public static final String FEED = "feed";
+
+  // Key of the version of every content.
+  public static final String ALL = "all";
+
+  // System property App Engine sets to the version of the deployment.
+  private static final String APPLICATION_VERSION_PROPERTY =
+      "com.google.appengine.application.version";
+
+  private final String deploymentTag =
+      System.getProperty(APPLICATION_VERSION_PROPERTY, "local").replace('"', '-');
+  private final LruCache<String, Long> versions;
+
+  public ContentVersions(int maxEntries, long timeToLive) {
+    this.versions = new LruCache<>(maxEntries, timeToLive);
+  }
+
+  /**
+   * Returns the key of the version of a question, its answers and their comments.
+   */
+  public static String question(int questionId) {
+    return "question/" + questionId;
+  }
+
+  /**
+   * Returns the key of the version of the questions a user follows.
+   */
+  public static String followedQuestions(int userId) {
+    return "followed/" + userId;
+  }
+
+  /**
+   * Returns the key of the version of the notifications of a user.
+   */
+  public static String inbox(int userId) {
+    return "inbox/" + userId;
+  }
+
+  /**
+   * Returns the current version of a key, read with the given connection unless it is cached.
+   */
+  public long get(String key, Connection connection) throws SQLException {
+    return get(key, connection, /*cacheable=*/true);
+  }
+
+  /**
+   * Returns the current version of a key, read with the given connection unless it is cached.
+   * The version read is only cached if cacheable, which it isn't when it may be out of date.
+   */
+  public long get(String key, Connection connection, boolean cacheable) throws SQLException {
+    Long version = versions.get(key);
+    if (version != null) {
+      return version;
+    }
+    // If a bump happens in between, the version read is dropped and the next call reads it again.
+    long cacheGeneration = versions.getGeneration();
+    try (PreparedStatement pst = connection.prepareStatement(SqlStatements.FETCH_CONTENT_VERSION)) {
+      pst.setString(SqlConstants.CONTENT_VERSION_SET_KEY, key);
+      try (ResultSet resultSet = pst.executeQuery()) {
+        version = resultSet.next()
+            ? resultSet.getLong(SqlConstants.CONTENT_VERSION_FETCH_VERSION) : 0L;
+      }
+    }
+    if (cacheable) {
+      versions.put(key, version, cacheGeneration);
+    }
+    return version;
+  }
+
+  /**
+   * Gives the keys a new version, as a single batch. Called after the write that changed the
+   * content is committed.
+   */
+  public void bump(Collection<String> keys, Connection connection) throws SQLException {
+    if (keys.isEmpty()) {
+      return;
+    }
+    try (PreparedStatement pst = connection.prepareStatement(SqlStatements.BUMP_CONTENT_VERSION)) {
+      for (String key : keys) {
+        pst.setString(SqlConstants.CONTENT_VERSION_SET_KEY, key);
+        pst.addBatch();
+      }
+      pst.executeBatch();
+    } finally {
+      // The cached versions are dropped even if the batch failed part way.
+      for (String key : keys) {
+        versions.invalidate(key);
+      }
+    }
+  }
+
+  /**
+   * Returns a strong ETag made of the current versions of the keys, in order.
+   */
+  public String getEtag(Connection connection, String... keys) throws SQLException {
+    return getEtag(connection, /*cacheable=*/true, keys);
+  }
+
+  /**
+   * Returns a strong ETag made of the current versions of the keys, in order. The versions read
+   * are only cached if cacheable.
+   */
+  public String getEtag(Connection connection, boolean cacheable, String... keys)
+      throws SQLException {
+    StringBuilder etag = new StringBuilder("\"").append(deploymentTag)
+        .append('-').append(get(ALL, connection, cacheable));
+    for (String key : keys) {
+      etag.append('-').append(get(key, connection, cacheable));
+    }
+    return etag.append('"').toString();
+  }
+
+  /**
+   * Returns the usage statistics of the versions kept in memory.
+   */
+  public CacheStatistics getStatistics() {
+    return versions.getStatistics();
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import java.util.Arrays;
+
+/**
+ * The IDs of the questions a user follows, stored as a sorted array of ints so a set takes 4
+ * bytes per question and lookups are a binary search. Instances are immutable, so they can be
+ * shared between requests; following or unfollowing a question creates a new set.
+ *
+ * A set carries the ETag of the followed questions it was read at, so an instance can tell it
+ * is out of date once a different instance gives them a new version.
+ */
+public final class FollowedQuestions {
+
+  public static final FollowedQuestions EMPTY = new FollowedQuestions(new int[0], null);
+
+  private final int[] questionIds;
+  // ETag of the followed questions the set was read at, or null if it couldn't be read.
+  private final String etag;
+
+  private FollowedQuestions(int[] sortedQuestionIds, String etag) {
+    this.questionIds = sortedQuestionIds;
+    this.etag = etag;
+  }
+
+  /**
+   * Creates a set from the first length elements of an array of question IDs in any order.
+   */
+  public static FollowedQuestions of(int[] questionIds, int length) {
+    int[] sortedQuestionIds = Arrays.copyOf(questionIds, length);
+    Arrays.sort(sortedQuestionIds);
+    return new FollowedQuestions(sortedQuestionIds, null);
+  }
+
+  /**
+   * Returns the same set, read when the followed questions had the given ETag.
+   */
+  public FollowedQuestions withEtag(String etag) {
+    return new FollowedQuestions(questionIds, etag);
+  }
+
+  public boolean contains(int questionId) {
+    return Arrays.binarySearch(questionIds, questionId) >= 0;
+  }
+
+  public int size() {
+    return questionIds.length;
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * Returns a set that also contains the given question.
+   */
+  public FollowedQuestions with(int questionId) {
+    int index = Arrays.binarySearch(questionIds, questionId);
+    if (index >= 0) {
+      return this;
+    }
+    // binarySearch returns (-(insertion point) - 1) for missing values.
+    int insertionIndex = -index - 1;
+    int[] newQuestionIds = new int[questionIds.length + 1];
+    System.arraycopy(questionIds, 0, newQuestionIds, 0, insertionIndex);
+    newQuestionIds[insertionIndex] = questionId;
+    System.arraycopy(questionIds, insertionIndex, newQuestionIds, insertionIndex + 1,
+        questionIds.length - insertionIndex);
+    return new FollowedQuestions(newQuestionIds, etag);
+  }
+
+  /**
+   * Returns a set that doesn't contain the given question.
+   */
+  public FollowedQuestions without(int questionId) {
+    int index = Arrays.binarySearch(questionIds, questionId);
+    if (index < 0) {
+      return this;
+    }
+    int[] newQuestionIds = new int[questionIds.length - 1];
+    System.arraycopy(questionIds, 0, newQuestionIds, 0, index);
+    System.arraycopy(questionIds, index + 1, newQuestionIds, index,
+        questionIds.length - index - 1);
+    return new FollowedQuestions(newQuestionIds, etag);
+  }
+}
@@ -14,7 +14,11 @@
 
 package com.google.sps.classes;
 
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.classes.FollowedQuestions;
 import com.google.sps.classes.Question;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,14 +28,61 @@ public class ForumPage {
 
   private Integer nextPage;
   private Integer previousPage;
-  private int numberOfPages;
   private List<Question> pageQuestions;
+  // Cursors that locate the neighbouring pages, null if there is no such page.
+  private String nextCursor;
+  private String previousCursor;
 
-  public ForumPage(
-      Integer nextPage, Integer previousPage, int numberOfPages, List<Question> pageQuestions) {
+  public ForumPage(Integer nextPage, Integer previousPage, List<Question> pageQuestions,
+      String nextCursor, String previousCursor) {
     this.nextPage = nextPage;
     this.previousPage = previousPage;
-    this.numberOfPages = numberOfPages;
     this.pageQuestions = pageQuestions;
+    this.nextCursor = nextCursor;
+    this.previousCursor = previousCursor;
+  }
+
+  /**
+   * Returns a copy of this page in which the questions tell whether a user follows them. The
+   * page itself is left untouched, so it can be shared by every user.
+   */
+  public ForumPage withFollowedQuestions(FollowedQuestions followedQuestions) {
+    List<Question> userPageQuestions = new ArrayList<>(pageQuestions.size());
+    for (Question question : pageQuestions) {
+      Question userQuestion = new Question(question);
+      userQuestion.setUserFollowsQuestion(followedQuestions.contains(question.getId()));
+      userPageQuestions.add(userQuestion);
+    }
+    return new ForumPage(nextPage, previousPage, userPageQuestions, nextCursor, previousCursor);
+  }
+
+  /**
+   * Writes a page and its questions as JSON without reflection.
+   */
+  public static final class GsonAdapter extends JsonAdapters.WriteOnlyAdapter<ForumPage> {
+    private final Question.GsonAdapter questionAdapter;
+
+    public GsonAdapter(Question.GsonAdapter questionAdapter) {
+      this.questionAdapter = questionAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, ForumPage forumPage) throws IOException {
+      if (forumPage == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("nextPage").value(forumPage.nextPage);
+      out.name("previousPage").value(forumPage.previousPage);
+      out.name("pageQuestions").beginArray();
+      for (Question question : forumPage.pageQuestions) {
+        questionAdapter.write(out, question);
+      }
+      out.endArray();
+      out.name("nextCursor").value(forumPage.nextCursor);
+      out.name("previousCursor").value(forumPage.previousCursor);
+      out.endObject();
+    }
   }
 }
@@ -18,9 +18,51 @@ package com.google.sps.classes;
  * Constants used for setup of Hikari pool of connection
  */
 public final class HikariConstants {
+  // Default values, used when the environment doesn't set them.
   public static final int MAX_POOL_SIZE = 20;
   public static final int MIN_IDLE_TIME = 10;
   public static final int CONNECTION_TIMEOUT = 10000; // 10 seconds
   public static final int IDLE_TIMEOUT = 600000; // 10 minutes
   public static final int MAX_LIFETIME = 1800000; // 30 minutes
+  public static final int LEAK_DETECTION_THRESHOLD = 30000; // 30 seconds
+  public static final int PREPARED_STATEMENT_CACHE_SIZE = 250;
+  public static final int PREPARED_STATEMENT_CACHE_SQL_LIMIT = 2048;
+
+  // Default bounds and targets of the PoolSizeController.
+  public static final int POOL_SIZE_LOWER_BOUND = 5;
+  public static final int POOL_SIZE_UPPER_BOUND = 40;
+  public static final int TARGET_WAIT = 50; // 50 milliseconds
+  public static final int ADJUST_INTERVAL = 30000; // 30 seconds
+
+  // Default time reads stay on the primary after a write, so the replica can catch up with it.
+  public static final int REPLICA_STICKINESS = 10000; // 10 seconds
+
+  // Names of the pools, shown in the logs and the metrics of Hikari.
+  public static final String POOL_NAME = "forum-pool";
+  public static final String READ_POOL_NAME = "forum-read-pool";
+
+  // System properties that override the default values, set in appengine-web.xml. An environment
+  // variable named after each one overrides it in turn, e.g. POOL_MAXIMUM_POOL_SIZE.
+  public static final String PROFILE_PROPERTY = "pool.profile";
+  public static final String MAX_POOL_SIZE_PROPERTY = "pool.maximumPoolSize";
+  public static final String MIN_IDLE_PROPERTY = "pool.minimumIdle";
+  public static final String CONNECTION_TIMEOUT_PROPERTY = "pool.connectionTimeout";
+  public static final String IDLE_TIMEOUT_PROPERTY = "pool.idleTimeout";
+  public static final String MAX_LIFETIME_PROPERTY = "pool.maxLifetime";
+  public static final String LEAK_DETECTION_THRESHOLD_PROPERTY = "pool.leakDetectionThreshold";
+  public static final String PREPARED_STATEMENT_CACHE_SIZE_PROPERTY = "pool.prepStmtCacheSize";
+  public static final String PREPARED_STATEMENT_CACHE_SQL_LIMIT_PROPERTY =
+      "pool.prepStmtCacheSqlLimit";
+  public static final String POOL_SIZE_LOWER_BOUND_PROPERTY = "pool.sizeLowerBound";
+  public static final String POOL_SIZE_UPPER_BOUND_PROPERTY = "pool.sizeUpperBound";
+  public static final String TARGET_WAIT_PROPERTY = "pool.targetWait";
+  public static final String ADJUST_INTERVAL_PROPERTY = "pool.adjustInterval";
+  // Connection name of the Cloud SQL read replica. The read pool is only created if it is set.
+  public static final String REPLICA_INSTANCE_PROPERTY = "pool.replicaInstance";
+  public static final String REPLICA_MAX_POOL_SIZE_PROPERTY = "pool.replicaMaximumPoolSize";
+  public static final String REPLICA_STICKINESS_PROPERTY = "pool.replicaStickiness";
+  public static final String REPLICA_POOL_SIZE_LOWER_BOUND_PROPERTY = "pool.replicaSizeLowerBound";
+  public static final String REPLICA_POOL_SIZE_UPPER_BOUND_PROPERTY = "pool.replicaSizeUpperBound";
+  // JDBC URL of the read replica in a local deployment, e.g. a second MySQL container.
+  public static final String LOCAL_REPLICA_URL_PROPERTY = "pool.localReplicaUrl";
 }
@@ -0,0 +1,128 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.sql.Timestamp;
+
+/**
+ * Builds the Gson instance used to send objects to the front end. The classes sent most often
+ * have hand-written adapters, so Gson doesn't reflect over their fields on every call.
+ * Timestamps are sent as milliseconds since the epoch instead of Gson's locale-dependent date
+ * format, so the front end can format them for the user.
+ *
+ * The hand-written adapters only write. Reading falls back to the reflective adapter Gson would
+ * have used without them, which works since they write every field under its own name.
+ */
+public final class JsonAdapters {
+
+  /**
+   * Returns a Gson instance with every adapter of the app registered.
+   */
+  public static Gson createGson() {
+    Comment.GsonAdapter commentAdapter = new Comment.GsonAdapter();
+    Question.GsonAdapter questionAdapter = new Question.GsonAdapter();
+    Notification.GsonAdapter notificationAdapter = new Notification.GsonAdapter();
+    return new GsonBuilder()
+        .registerTypeAdapter(Timestamp.class, new TimestampAdapter())
+        .registerTypeAdapterFactory(writtenBy(Comment.class, commentAdapter))
+        .registerTypeAdapterFactory(
+            writtenBy(Answer.class, new Answer.GsonAdapter(commentAdapter)))
+        .registerTypeAdapterFactory(
+            writtenBy(CommentPage.class, new CommentPage.GsonAdapter(commentAdapter)))
+        .registerTypeAdapterFactory(writtenBy(Question.class, questionAdapter))
+        .registerTypeAdapterFactory(
+            writtenBy(ForumPage.class, new ForumPage.GsonAdapter(questionAdapter)))
+        .registerTypeAdapterFactory(writtenBy(Notification.class, notificationAdapter))
+        .registerTypeAdapterFactory(writtenBy(NotificationPage.class,
+            new NotificationPage.GsonAdapter(notificationAdapter)))
+        .registerTypeAdapterFactory(
+            writtenBy(MentorEvidence.class, new MentorEvidence.GsonAdapter()))
+        .create();
+  }
+
+  /**
+   * Writes a timestamp as milliseconds since the epoch, or null if there is none.
+   */
+  public static void writeTimestamp(JsonWriter out, Timestamp timestamp) throws IOException {
+    if (timestamp == null) {
+      out.nullValue();
+    } else {
+      out.value(timestamp.getTime());
+    }
+  }
+
+  /**
+   * Base class of the hand-written adapters of this app, which write an object as JSON.
+   */
+  public abstract static class WriteOnlyAdapter<T> {
+    public abstract void write(JsonWriter out, T value) throws IOException;
+  }
+
+  /**
+   * Adapter for timestamps, written and read as milliseconds since the epoch.
+   */
+  public static final class TimestampAdapter extends TypeAdapter<Timestamp> {
+    @Override
+    public void write(JsonWriter out, Timestamp timestamp) throws IOException {
+      writeTimestamp(out, timestamp);
+    }
+
+    @Override
+    public Timestamp read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      return new Timestamp(in.nextLong());
+    }
+  }
+
+  /**
+   * Returns a factory of the adapter of a class that writes it with its hand-written adapter
+   * and reads it with the reflective adapter Gson would have used otherwise.
+   */
+  private static <T> TypeAdapterFactory writtenBy(Class<T> type, WriteOnlyAdapter<T> writer) {
+    return new TypeAdapterFactory() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> typeToken) {
+        if (typeToken.getRawType() != type) {
+          return null;
+        }
+        TypeAdapter<R> reader = gson.getDelegateAdapter(this, typeToken);
+        return new TypeAdapter<R>() {
+          @Override
+          public void write(JsonWriter out, R value) throws IOException {
+            writer.write(out, (T) value);
+          }
+
+          @Override
+          public R read(JsonReader in) throws IOException {
+            return reader.read(in);
+          }
+        };
+      }
+    };
+  }
+}
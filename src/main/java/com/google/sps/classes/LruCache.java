@@ -0,0 +1,179 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import com.google.sps.classes.CacheStatistics;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory cache bounded by number of entries that evicts the least recently used entry when
+ * full. Entries also expire after a time to live, which bounds how stale they can get when a
+ * write happens on a different App Engine instance and can't invalidate this one.
+ *
+ * Values are usually built from a query that could race with a write. To avoid caching a value
+ * read before an invalidation, callers get the generation before querying and pass it to put(),
+ * which drops the value if its key, or the whole cache, was invalidated in between. A write to
+ * one key doesn't drop the values being built for the others.
+ */
+public class LruCache<K, V> {
+
+  private final int maxEntries;
+  private final long timeToLive;
+  private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+  // Clock of the writes to the cache. Each write to a key leaves a tombstone with the generation
+  // it happened at, so the values of that key built before it are rejected. Tombstones are kept
+  // for the most recent writes only: the generation of the oldest one dropped becomes a floor
+  // under which every value is rejected, which is safe since it only drops more than needed.
+  private long generation = 0;
+  private long invalidatedAllGeneration = 0;
+  private final LinkedHashMap<K, Long> tombstones = new LinkedHashMap<>();
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long expirations = 0;
+  private long invalidations = 0;
+
+  /**
+   * Creates a cache with up to maxEntries values, each one kept for timeToLive milliseconds.
+   */
+  public LruCache(int maxEntries, long timeToLive) {
+    this.maxEntries = maxEntries;
+    this.timeToLive = timeToLive;
+    // Access order makes the first entry of the map the least recently used one.
+    this.entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, /*accessOrder=*/true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+        if (size() > LruCache.this.maxEntries) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached value for a key, or null if it isn't cached or has expired.
+   */
+  public synchronized V get(K key) {
+    CacheEntry<V> entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    if (System.currentTimeMillis() - entry.creationTime > timeToLive) {
+      entries.remove(key);
+      expirations++;
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value;
+  }
+
+  /**
+   * Returns the current generation, to be passed to put() once the value is built.
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Caches a value built at the given generation. The value is dropped if its key or the whole
+   * cache was invalidated since then, because it could have been read before the write that
+   * caused it.
+   */
+  public synchronized void put(K key, V value, long valueGeneration) {
+    Long keyGeneration = tombstones.get(key);
+    if (valueGeneration < invalidatedAllGeneration
+        || (keyGeneration != null && valueGeneration < keyGeneration)) {
+      return;
+    }
+    entries.put(key, new CacheEntry<V>(value, System.currentTimeMillis()));
+  }
+
+  /**
+   * Replaces a cached value with the result of applying a function to it. Nothing happens if the
+   * key isn't cached. Values being built at the same time are dropped, since they could have
+   * been read before the change that caused this update.
+   */
+  public synchronized void update(K key, UnaryOperator<V> updater) {
+    markWritten(key);
+    CacheEntry<V> entry = entries.get(key);
+    if (entry != null) {
+      // The update keeps the creation time so it doesn't extend the time to live.
+      entries.put(key, new CacheEntry<V>(updater.apply(entry.value), entry.creationTime));
+    }
+  }
+
+  /**
+   * Removes a single value from the cache.
+   */
+  public synchronized void invalidate(K key) {
+    markWritten(key);
+    invalidations++;
+    entries.remove(key);
+  }
+
+  /**
+   * Removes every value from the cache.
+   */
+  public synchronized void invalidateAll() {
+    invalidatedAllGeneration = ++generation;
+    invalidations++;
+    entries.clear();
+    tombstones.clear();
+  }
+
+  /**
+   * Returns the usage statistics of the cache since it was created.
+   */
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(
+        entries.size(), maxEntries, hits, misses, evictions, expirations, invalidations);
+  }
+
+  /**
+   * Leaves a tombstone for a key that was just written, as the most recent one.
+   */
+  private void markWritten(K key) {
+    generation++;
+    tombstones.remove(key);
+    tombstones.put(key, generation);
+    if (tombstones.size() > maxEntries) {
+      Iterator<Map.Entry<K, Long>> oldest = tombstones.entrySet().iterator();
+      invalidatedAllGeneration = Math.max(invalidatedAllGeneration, oldest.next().getValue());
+      oldest.remove();
+    }
+  }
+
+  /**
+   * A cached value along with the time it was cached.
+   */
+  private static final class CacheEntry<V> {
+    private final V value;
+    private final long creationTime;
+
+    private CacheEntry(V value, long creationTime) {
+      this.value = value;
+      this.creationTime = creationTime;
+    }
+  }
+}
@@ -14,6 +14,9 @@
 
 package com.google.sps.classes;
 
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
 /**
  * The evidence a mentor to verify their internship and their assigned reviewer.
  */
@@ -37,4 +40,26 @@ public final class MentorEvidence {
     this.isApprover = isApprover;
     this.hasReviewed = hasReviewed;
   }
+
+  /**
+   * Writes the evidence of a mentor as JSON without reflection.
+   */
+  public static final class GsonAdapter extends JsonAdapters.WriteOnlyAdapter<MentorEvidence> {
+    @Override
+    public void write(JsonWriter out, MentorEvidence mentorEvidence) throws IOException {
+      if (mentorEvidence == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("userId").value(mentorEvidence.userId);
+      out.name("mentorUsername").value(mentorEvidence.mentorUsername);
+      out.name("isApproved").value(mentorEvidence.isApproved);
+      out.name("isRejected").value(mentorEvidence.isRejected);
+      out.name("paragraph").value(mentorEvidence.paragraph);
+      out.name("isApprover").value(mentorEvidence.isApprover);
+      out.name("hasReviewed").value(mentorEvidence.hasReviewed);
+      out.endObject();
+    }
+  }
 }
@@ -14,13 +14,38 @@
 
 package com.google.sps.classes;
 
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.sql.Timestamp;
 
 /**
  * Class to represent notifications and send them to front end as converted JSON.
  */
 public class Notification {
+  public int id;
   public String message = "";
   public String url = "";
   public Timestamp timestamp;
+  public boolean isRead;
+
+  /**
+   * Writes a notification as JSON without reflection.
+   */
+  public static final class GsonAdapter extends JsonAdapters.WriteOnlyAdapter<Notification> {
+    @Override
+    public void write(JsonWriter out, Notification notification) throws IOException {
+      if (notification == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("id").value(notification.id);
+      out.name("message").value(notification.message);
+      out.name("url").value(notification.url);
+      out.name("timestamp");
+      JsonAdapters.writeTimestamp(out, notification.timestamp);
+      out.name("isRead").value(notification.isRead);
+      out.endObject();
+    }
+  }
 }
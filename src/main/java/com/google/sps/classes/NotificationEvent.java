@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+/**
+ * Work left by a post for the notification tasks: a question was answered, an answer was
+ * commented, or a mentor asked for approval or was reviewed. The notification is created first,
+ * then the email is sent as a separate task, so a failed email is retried without creating the
+ * notification twice.
+ *
+ * Tasks are delivered at least once: a task whose answer was lost is run again. Events that come
+ * from a task carry its name as their key, which stays the same across retries, so the steps can
+ * tell they already ran.
+ */
+public final class NotificationEvent {
+
+  /**
+   * The steps an event goes through, in order.
+   */
+  public enum Step { NOTIFY, EMAIL }
+
+  private final String type;
+  private final int modifiedElementId;
+  private final Step step;
+  // Name of the task that carried the event, or null for events handled in place.
+  private final String key;
+
+  /**
+   * Creates the event of the notification of the given type about the modified element.
+   */
+  public NotificationEvent(String type, int modifiedElementId) {
+    this(type, modifiedElementId, Step.NOTIFY);
+  }
+
+  public NotificationEvent(String type, int modifiedElementId, Step step) {
+    this(type, modifiedElementId, step, /*key=*/null);
+  }
+
+  public NotificationEvent(String type, int modifiedElementId, Step step, String key) {
+    this.type = type;
+    this.modifiedElementId = modifiedElementId;
+    this.step = step;
+    this.key = key;
+  }
+
+  /**
+   * Returns the event of the next step about the same element, with the same key.
+   */
+  public NotificationEvent withStep(Step nextStep) {
+    return new NotificationEvent(type, modifiedElementId, nextStep, key);
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public int getModifiedElementId() {
+    return modifiedElementId;
+  }
+
+  public Step getStep() {
+    return step;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  @Override
+  public String toString() {
+    return step + " " + type + " " + modifiedElementId;
+  }
+}
@@ -0,0 +1,69 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A page of the inbox of a user, newest notifications first, along with the cursor of the page
+ * of older notifications. The cursor is null if there are no older notifications.
+ */
+public class NotificationPage {
+
+  private final List<Notification> notifications;
+  private final String olderNotificationsCursor;
+
+  public NotificationPage(List<Notification> notifications, String olderNotificationsCursor) {
+    this.notifications = notifications;
+    this.olderNotificationsCursor = olderNotificationsCursor;
+  }
+
+  public List<Notification> getNotifications() {
+    return notifications;
+  }
+
+  public String getOlderNotificationsCursor() {
+    return olderNotificationsCursor;
+  }
+
+  /**
+   * Writes a page and its notifications as JSON without reflection.
+   */
+  public static final class GsonAdapter extends JsonAdapters.WriteOnlyAdapter<NotificationPage> {
+    private final Notification.GsonAdapter notificationAdapter;
+
+    public GsonAdapter(Notification.GsonAdapter notificationAdapter) {
+      this.notificationAdapter = notificationAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, NotificationPage notificationPage) throws IOException {
+      if (notificationPage == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("notifications").beginArray();
+      for (Notification notification : notificationPage.notifications) {
+        notificationAdapter.write(out, notification);
+      }
+      out.endArray();
+      out.name("olderNotificationsCursor").value(notificationPage.olderNotificationsCursor);
+      out.endObject();
+    }
+  }
+}
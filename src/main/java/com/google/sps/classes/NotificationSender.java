@@ -0,0 +1,408 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import java.io.UnsupportedEncodingException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import javax.servlet.ServletContext;
+
+/**
+ * Does the work of the NotificationEvents: creates the notification of an event for every user
+ * concerned, then sends them an email. It runs in the notification tasks, so it uses the
+ * connections and caches of the Servlet's context instead of those of a request. Failures are
+ * thrown, so the queue can retry the task.
+ */
+public class NotificationSender {
+
+  private final ServletContext context;
+
+  public NotificationSender(ServletContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Handles the event and returns the event of its next step, or null if there is none.
+   */
+  public NotificationEvent handle(NotificationEvent event) throws Exception {
+    if (event.getStep() == NotificationEvent.Step.EMAIL) {
+      sendEmail(event.getType(), event.getModifiedElementId());
+      return null;
+    }
+    createNotification(event.getType(), event.getModifiedElementId(), event.getKey());
+    // Emails are only sent from the cloud, where the mail service exists.
+    return Utility.isLocallyDeployed() ? null : event.withStep(NotificationEvent.Step.EMAIL);
+  }
+
+  /**
+   * Inserts new row to Notification table and adds row to UserNotification of the author's and 
+   * following users' IDs relationship with the inserted Notification. Both are inserted in the
+   * same transaction, so a notification is never left without its users.
+   *
+   * The key of the event is recorded in the same transaction, so an event that is run again,
+   * like a task retried after a failure past the commit, is skipped instead of creating its
+   * notification twice or counting its event twice. Events without a key aren't checked.
+   *
+   * New answers to a question and new comments on an answer are coalesced: if the question or
+   * answer already got a notification within the coalesce window, that notification counts one
+   * more event ("Your question got 5 new answers.") and comes back at the top of the inboxes,
+   * instead of a new row being written for every follower. The count is shared by the users of
+   * the notification, so it is only coalesced while exactly the users to notify have it, all
+   * unread; once one of them reads it, the next event starts a new notification.
+   */
+  public void createNotification(String typeOfNotification, int modifiedElementId,
+      String eventKey) throws SQLException {
+    // Define local time for the new entries in the server. It is truncated to the precision of
+    // the DATETIME columns, so the recent notifications kept in memory match the stored ones.
+    Timestamp localTimestamp =
+        Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+    List<Integer> userIds;
+    boolean coalesced = false;
+    Notification notification = new Notification();
+    notification.timestamp = localTimestamp;
+    // Set up connection for insertions and query IDs of users to notify with same connection.
+    try (Connection connection = Utility.getConnection(context)) {
+      // Query of the users to notify, and URL to which they will be redirected.
+      String query = "";
+      // Key of the element the notifications can be coalesced on, and message of a coalesced
+      // notification, which receives the number of events.
+      String coalesceKey = null;
+      String coalescedMessage = null;
+      if (typeOfNotification.equals("question")) {
+        // If the notification is for an anwer to a question.
+        query = SqlStatements.FETCH_QUESTION_FOLLOWERS;
+        notification.url = "/question.html?id=" + modifiedElementId;
+        notification.message = "Your question was answered.";
+        coalesceKey = "question:" + modifiedElementId;
+        coalescedMessage = "Your question got %d new answers.";
+      } else if (typeOfNotification.equals("answer")) {
+        // If the notification is for a new comment in an answer.
+        query = SqlStatements.FETCH_ANSWER_FOLLOWERS;
+        notification.url =
+            "/question.html?id=" + getIdOfAnsweredQuestion(connection, modifiedElementId);
+        notification.message = "Your answer was commented."; 
+        coalesceKey = "answer:" + modifiedElementId;
+        coalescedMessage = "Your answer got %d new comments.";
+      } else if (typeOfNotification.equals("requestApproval")) {
+        // If the notification is for a mentor approval.
+        query = SqlStatements.FETCH_MENTOR_APPROVERS;
+        notification.url = "/approval.html?id=" + modifiedElementId;
+        notification.message = "A mentor requests your approval.";
+      } else if (typeOfNotification.equals("approved")) {
+        // If the notification is for a mentor being approved.
+        query = SqlStatements.FETCH_USER_ID_BY_ID;
+        notification.url = "/approval.html?id=" + modifiedElementId;
+        notification.message = "You have been approved as a mentor!";
+      } else if (typeOfNotification.equals("rejected")) {
+        // If the notification is for a mentor being approved.
+        query = SqlStatements.FETCH_USER_ID_BY_ID;
+        notification.url = "/approval.html?id=" + modifiedElementId;
+        notification.message =
+            "Your mentor review has been rejected. Update your information to re-apply!";
+      } else {
+        return;
+      }
+      userIds = fetchUsersToNotify(connection, query, modifiedElementId);
+      if (userIds.isEmpty()) {
+        return;
+      }
+      long coalesceWindow = Utility.getSetting(
+          QueueConstants.NOTIFICATION_COALESCE_WINDOW_PROPERTY,
+          QueueConstants.NOTIFICATION_COALESCE_WINDOW);
+      try {
+        connection.setAutoCommit(false);
+        if (eventKey != null && !insertEventKey(connection, eventKey, localTimestamp)) {
+          // The event already created its notification, which the users already got.
+          connection.rollback();
+          connection.setAutoCommit(true);
+          return;
+        }
+        int[] recentNotification = coalesceKey != null && coalesceWindow > 0
+            ? fetchCoalescibleNotification(connection, coalesceKey,
+                new Timestamp(localTimestamp.getTime() - coalesceWindow))
+            : null;
+        if (recentNotification != null
+            && !isUnreadForExactly(connection, recentNotification[0], userIds)) {
+          recentNotification = null;
+        }
+        if (recentNotification != null) {
+          coalesced = true;
+          int eventCount = recentNotification[1] + 1;
+          notification.id = recentNotification[0];
+          notification.message = String.format(coalescedMessage, eventCount);
+          updateCoalescedNotification(connection, notification, eventCount);
+          updateCoalescedUserNotifications(connection, notification.id, localTimestamp);
+        } else {
+          notification.id = insertToNotification(connection, notification.message,
+              notification.url, localTimestamp, coalesceKey);
+          insertToUserNotification(connection, userIds, notification.id, localTimestamp);
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+      } catch (SQLException exception) {
+        Utility.rollbackTransaction(connection);
+        throw exception;
+      }
+      bumpInboxVersions(connection, userIds);
+    }
+    // The inboxes only change once the transaction is committed.
+    if (coalesced) {
+      Utility.refreshRecentNotification(userIds, notification, context);
+    } else {
+      Utility.addRecentNotification(userIds, notification, context);
+    }
+    Utility.pushNotification(userIds, notification, context);
+  }
+
+  /**
+   * Sends an email to the author and followers of an answered question or a commented answer,
+   * or to the users of a mentor approval.
+   */
+  public void sendEmail(String typeOfNotification, int modifiedElementId)
+      throws SQLException, MessagingException, UnsupportedEncodingException {
+    // Create content for mail. Call functions to see which users have to be notified
+    // and get their emails concatenated in a string.
+    String userEmails;
+    try (Connection connection = Utility.getConnection(context)) {
+      userEmails = Utility.getUserEmailsAsString(
+          Utility.getUsersToNotify(typeOfNotification, modifiedElementId, connection), connection);
+    }
+    if (userEmails.isEmpty()) {
+      return;
+    }
+    String subject = "Activity on Mintern!";
+    String message = "Dear mintern,\n" +
+                     "You have new notifications in Mintern!\n" + 
+                     "Feel free to login and check it at: " +
+                     "internship-platform-step-2020.appspot.com/ .\n\n" +
+                     "Best wishes!\n" + 
+                     "The Mintern Team";
+
+    // Declares object necesssary for mail.
+    Session session = Session.getDefaultInstance(new Properties(), null);
+    // Set content for mail.
+    Message msg = new MimeMessage(session);
+    msg.setFrom(new InternetAddress("mintern@internship-platform-step-2020.appspotmail.com",
+        "Mintern"));
+    // Parse the concatenated string to convert it to an array of addresses.
+    msg.addRecipients(Message.RecipientType.BCC, InternetAddress.parse(userEmails));
+    msg.setSubject(subject);
+    msg.setText(message);
+    // Send email.
+    Transport.send(msg);
+  }
+
+  /**
+   * Receives the data for a notification, inserts it into the Notification table and returns
+   * the ID the database gave it.
+   */
+  private int insertToNotification(Connection connection, String message, String notificationUrl,
+        Timestamp dateTime, String coalesceKey) throws SQLException {
+    // Prepare the statement to be inserted, closing it once executed.
+    try (PreparedStatement prepStatement = connection.prepareStatement(
+        SqlStatements.INSERT_NOTIFICATION, Statement.RETURN_GENERATED_KEYS)) {
+      prepStatement.setString(SqlConstants.NOTIFICATION_INSERT_MESSAGE, message);
+      prepStatement.setString(SqlConstants.NOTIFICATION_INSERT_URL, notificationUrl);
+      prepStatement.setTimestamp(SqlConstants.NOTIFICATION_INSERT_DATETIME, dateTime);
+      prepStatement.setString(SqlConstants.NOTIFICATION_INSERT_COALESCE_KEY, coalesceKey);
+      return Utility.executeInsertForId(prepStatement);
+    }
+  }
+
+  /**
+   * Relates a notification with every user to notify in UserNotification and counts it as
+   * unread for them. The rows are sent as a single batch, which the driver rewrites into one
+   * multi-row INSERT.
+   */
+  private void insertToUserNotification(Connection connection, List<Integer> userIds,
+      int notificationId, Timestamp dateTime) throws SQLException {
+    // Prepare the statement to be inserted, closing it once executed.
+    try (PreparedStatement prepStatement =
+        connection.prepareStatement(SqlStatements.INSERT_USER_NOTIFICATION)) {
+      for (int userId : userIds) {
+        prepStatement.setInt(SqlConstants.USER_NOTIFICATION_INSERT_USERID, userId);
+        prepStatement.setInt(SqlConstants.USER_NOTIFICATION_INSERT_NOTIFICATIONID, notificationId);
+        prepStatement.setTimestamp(SqlConstants.USER_NOTIFICATION_INSERT_DATETIME, dateTime);
+        prepStatement.addBatch();
+      }
+      prepStatement.executeBatch();
+    }
+    // The new notification is unread for all of its users.
+    try (PreparedStatement counterStatement =
+        connection.prepareStatement(SqlStatements.INCREMENT_UNREAD_NOTIFICATIONS)) {
+      counterStatement.setInt(SqlConstants.UNREAD_INCREMENT_SET_NOTIFICATIONID, notificationId);
+      counterStatement.executeUpdate();
+    }
+  }
+
+  /**
+   * Returns the ID and event count of the newest notification with the given coalesce key that
+   * is not older than the given time, or null if there is none. The notification is locked
+   * until the end of the transaction, so concurrent events on the same element are all counted.
+   */
+  private int[] fetchCoalescibleNotification(Connection connection, String coalesceKey,
+      Timestamp oldestDateTime) throws SQLException {
+    try (PreparedStatement pst =
+        connection.prepareStatement(SqlStatements.FETCH_COALESCIBLE_NOTIFICATION)) {
+      pst.setString(SqlConstants.COALESCE_SET_KEY, coalesceKey);
+      pst.setTimestamp(SqlConstants.COALESCE_SET_DATETIME, oldestDateTime);
+      try (ResultSet resultSet = pst.executeQuery()) {
+        if (!resultSet.next()) {
+          return null;
+        }
+        return new int[] {resultSet.getInt(SqlConstants.COALESCE_FETCH_ID),
+            resultSet.getInt(SqlConstants.COALESCE_FETCH_EVENT_COUNT)};
+      }
+    }
+  }
+
+  /**
+   * Stores the new message, event count and time of a coalesced notification.
+   */
+  private void updateCoalescedNotification(Connection connection, Notification notification,
+      int eventCount) throws SQLException {
+    try (PreparedStatement pst =
+        connection.prepareStatement(SqlStatements.UPDATE_COALESCED_NOTIFICATION)) {
+      pst.setString(SqlConstants.COALESCED_UPDATE_MESSAGE, notification.message);
+      pst.setInt(SqlConstants.COALESCED_UPDATE_EVENT_COUNT, eventCount);
+      pst.setTimestamp(SqlConstants.COALESCED_UPDATE_DATETIME, notification.timestamp);
+      pst.setInt(SqlConstants.COALESCED_UPDATE_ID, notification.id);
+      pst.executeUpdate();
+    }
+  }
+
+  /**
+   * Returns true if the notification is related to exactly the given users and none of them has
+   * read it. Their rows are locked until the end of the transaction, so none of them can read it
+   * while it is being coalesced.
+   */
+  private boolean isUnreadForExactly(Connection connection, int notificationId,
+      List<Integer> userIds) throws SQLException {
+    Set<Integer> remainingUserIds = new HashSet<>(userIds);
+    try (PreparedStatement pst =
+        connection.prepareStatement(SqlStatements.FETCH_COALESCIBLE_NOTIFICATION_USERS)) {
+      pst.setInt(SqlConstants.COALESCE_USERS_SET_NOTIFICATIONID, notificationId);
+      try (ResultSet resultSet = pst.executeQuery()) {
+        while (resultSet.next()) {
+          if (resultSet.getBoolean(SqlConstants.COALESCE_USERS_FETCH_IS_READ)
+              || !remainingUserIds.remove(
+                  resultSet.getInt(SqlConstants.COALESCE_USERS_FETCH_USERID))) {
+            return false;
+          }
+        }
+      }
+    }
+    return remainingUserIds.isEmpty();
+  }
+
+  /**
+   * Moves a coalesced notification to the top of the inbox of every one of its users.
+   */
+  private void updateCoalescedUserNotifications(Connection connection, int notificationId,
+      Timestamp dateTime) throws SQLException {
+    try (PreparedStatement pst =
+        connection.prepareStatement(SqlStatements.UPDATE_COALESCED_USER_NOTIFICATIONS)) {
+      pst.setTimestamp(SqlConstants.COALESCED_USERS_UPDATE_DATETIME, dateTime);
+      pst.setInt(SqlConstants.COALESCED_USERS_UPDATE_NOTIFICATIONID, notificationId);
+      pst.executeUpdate();
+    }
+  }
+
+  /**
+   * Records the key of an event. Returns false if it was already recorded, in which case the
+   * event was already handled. A concurrent run of the same event waits here until the first
+   * one commits or rolls back.
+   */
+  private boolean insertEventKey(Connection connection, String eventKey, Timestamp dateTime)
+      throws SQLException {
+    try (PreparedStatement pst =
+        connection.prepareStatement(SqlStatements.INSERT_NOTIFICATION_TASK)) {
+      pst.setString(SqlConstants.NOTIFICATION_TASK_INSERT_NAME, eventKey);
+      pst.setTimestamp(SqlConstants.NOTIFICATION_TASK_INSERT_DATETIME, dateTime);
+      return pst.executeUpdate() > 0;
+    }
+  }
+
+  /**
+   * Gives the inboxes of the users a new version, once the notification is committed. A failure
+   * is only logged: the notification exists, so a retried event would be skipped anyway.
+   */
+  private void bumpInboxVersions(Connection connection, List<Integer> userIds) {
+    List<String> inboxKeys = new ArrayList<>();
+    for (int userId : userIds) {
+      inboxKeys.add(ContentVersions.inbox(userId));
+    }
+    try {
+      Utility.bumpContentVersions(inboxKeys, connection, context);
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(NotificationSender.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+  }
+
+  /**
+   * Returns the IDs of the users to notify, fetched with the given query.
+   */
+  private List<Integer> fetchUsersToNotify(Connection connection, String query,
+      int modifiedElementId) throws SQLException {
+    List<Integer> userIds = new ArrayList<>();
+    try (PreparedStatement pst = connection.prepareStatement(query)) {
+      pst.setInt(SqlConstants.NOTIFY_SET_ELEMENTID, modifiedElementId);
+      try (ResultSet resultSet = pst.executeQuery()) {
+        while (resultSet.next()) {
+          userIds.add(resultSet.getInt(SqlConstants.CREATE_NOTIFICATION_FETCH_USERID));
+        }
+      }
+    }
+    return userIds;
+  }
+
+  /**
+   * Fetches ID of question that is related to the answer that was commented.
+   */
+  private int getIdOfAnsweredQuestion(Connection connection, int answerId)
+      throws SQLException {
+    try (PreparedStatement pst =
+        connection.prepareStatement(SqlStatements.FETCH_QUESTION_OF_ANSWER)) {
+      pst.setInt(SqlConstants.ANSWER_SET_ID, answerId);
+      try (ResultSet resultSet = pst.executeQuery()) {
+        if (!resultSet.next()) {
+          return -1;
+        }
+        return resultSet.getInt(SqlConstants.NOTIFICATION_FETCH_ID_ANSWERED_QUESTION);
+      }
+    }
+  }
+}
@@ -0,0 +1,268 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Pushes new notifications to the browsers of the signed in users, so the navbar doesn't poll
+ * for them.
+ *
+ * Each browser keeps one long-poll request open. The request is held with an AsyncContext, so
+ * it doesn't keep a thread, and is answered as soon as a notification for its user is created
+ * on this instance. Requests without news are answered with a heartbeat once the heartbeat
+ * interval ends, which stays under the deadline of App Engine requests and the idle timeout of
+ * proxies. The browser opens the next request right after each answer. A cap on the open
+ * requests keeps a flood of browsers from taking all the memory of the instance.
+ *
+ * A push only reaches the streams held by the instance that ran the task of the notification.
+ * Browsers connected to other instances get it from the database when they reconnect, which is
+ * only read once the ETag of the inbox differs from the one the browser has. Since the versions
+ * behind the ETag are cached, that can take the heartbeat interval plus the time to live of the
+ * content versions.
+ */
+public class NotificationStreams {
+
+  private final int maxStreams;
+  private final long heartbeatInterval;
+  private final Map<Integer, Set<Stream>> streamsByUser = new ConcurrentHashMap<>();
+  private final AtomicInteger openStreams = new AtomicInteger();
+
+  private final AtomicLong opened = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong pushed = new AtomicLong();
+  private final AtomicLong caughtUp = new AtomicLong();
+  private final AtomicLong heartbeats = new AtomicLong();
+
+  /**
+   * Creates the streams of an instance, which keeps at most maxStreams of them open and answers
+   * each one after heartbeatInterval milliseconds without news.
+   */
+  public NotificationStreams(int maxStreams, long heartbeatInterval) {
+    this.maxStreams = maxStreams;
+    this.heartbeatInterval = heartbeatInterval;
+  }
+
+  /**
+   * Holds the started async request of a user until a notification is pushed to them or the
+   * heartbeat interval ends. Returns false, without holding it, if the cap is reached.
+   */
+  public boolean open(int userId, AsyncContext asyncContext) {
+    if (openStreams.incrementAndGet() > maxStreams) {
+      openStreams.decrementAndGet();
+      rejected.incrementAndGet();
+      return false;
+    }
+    opened.incrementAndGet();
+    Stream stream = new Stream(userId, asyncContext);
+    asyncContext.setTimeout(heartbeatInterval);
+    asyncContext.addListener(stream);
+    // The stream is added inside compute, so a close() that empties the set can't remove it
+    // from the map in between.
+    streamsByUser.compute(userId, (key, streams) -> {
+      Set<Stream> userStreams = streams != null ? streams : ConcurrentHashMap.newKeySet();
+      userStreams.add(stream);
+      return userStreams;
+    });
+    return true;
+  }
+
+  /**
+   * Answers the open streams of a user with the given notifications, newest first, and their
+   * number of unread notifications, or null if it isn't known. Returns the number of streams
+   * answered.
+   */
+  public int push(int userId, List<Notification> notifications, Integer unreadCount) {
+    Set<Stream> streams = streamsByUser.get(userId);
+    if (streams == null) {
+      return 0;
+    }
+    String message = buildMessage(notifications, unreadCount, /*etag=*/null);
+    int answered = 0;
+    for (Stream stream : streams) {
+      if (stream.answer(message)) {
+        pushed.incrementAndGet();
+        answered++;
+      }
+    }
+    return answered;
+  }
+
+  /**
+   * Answers the open stream of a request with the notifications the browser missed, newest
+   * first, and the ETag of the inbox they were read at. The browser sends the ETag back on its
+   * next request, so the inbox is only read again once it changes. Returns false if the stream
+   * was already answered.
+   */
+  public boolean catchUp(int userId, AsyncContext asyncContext, List<Notification> notifications,
+      String etag) {
+    Set<Stream> streams = streamsByUser.get(userId);
+    if (streams == null) {
+      return false;
+    }
+    for (Stream stream : streams) {
+      if (stream.asyncContext == asyncContext) {
+        if (stream.answer(buildMessage(notifications, /*unreadCount=*/null, etag))) {
+          caughtUp.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Answers every open stream with a heartbeat, so the browsers reconnect to another instance.
+   */
+  public void closeAll() {
+    for (Set<Stream> streams : streamsByUser.values()) {
+      for (Stream stream : streams) {
+        stream.answer(buildMessage(Collections.emptyList(), /*unreadCount=*/null, /*etag=*/null));
+      }
+    }
+  }
+
+  /**
+   * Returns the number of streams currently open.
+   */
+  public int getOpenStreams() {
+    return openStreams.get();
+  }
+
+  /**
+   * Returns the open streams along with the counters of the streams so far.
+   */
+  public Map<String, Object> getStatistics() {
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("open", openStreams.get());
+    statistics.put("users", streamsByUser.size());
+    statistics.put("maxStreams", maxStreams);
+    statistics.put("heartbeatInterval", heartbeatInterval);
+    statistics.put("opened", opened.get());
+    statistics.put("rejected", rejected.get());
+    statistics.put("pushed", pushed.get());
+    statistics.put("caughtUp", caughtUp.get());
+    statistics.put("heartbeats", heartbeats.get());
+    return statistics;
+  }
+
+  /**
+   * Builds the JSON sent to the browser. An empty list of notifications is a heartbeat.
+   */
+  private static String buildMessage(List<Notification> notifications, Integer unreadCount,
+      String etag) {
+    Map<String, Object> message = new LinkedHashMap<>();
+    message.put("notifications", new ArrayList<>(notifications));
+    if (unreadCount != null) {
+      message.put("unread", unreadCount);
+    }
+    if (etag != null) {
+      message.put("etag", etag);
+    }
+    return Utility.convertToJsonUsingGson(message);
+  }
+
+  /**
+   * Stops tracking a stream once it is answered or failed.
+   */
+  private void close(Stream stream) {
+    openStreams.decrementAndGet();
+    streamsByUser.computeIfPresent(stream.userId, (userId, streams) -> {
+      streams.remove(stream);
+      return streams.isEmpty() ? null : streams;
+    });
+  }
+
+  /**
+   * An open long-poll request of a user. It is answered once, by the first push, heartbeat or
+   * error that reaches it.
+   */
+  private final class Stream implements AsyncListener {
+    private final int userId;
+    private final AsyncContext asyncContext;
+    private final AtomicBoolean answered = new AtomicBoolean(false);
+
+    private Stream(int userId, AsyncContext asyncContext) {
+      this.userId = userId;
+      this.asyncContext = asyncContext;
+    }
+
+    /**
+     * Writes the message and ends the request, unless it already ended. Returns true if it
+     * didn't.
+     */
+    private boolean answer(String message) {
+      if (!answered.compareAndSet(false, true)) {
+        return false;
+      }
+      close(this);
+      try {
+        HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+        response.setContentType("application/json;");
+        response.getWriter().println(message);
+      } catch (IOException | IllegalStateException exception) {
+        // The browser may be gone already, in which case it reconnects on its own if it can.
+        Logger logger = Logger.getLogger(NotificationStreams.class.getName());
+        logger.log(Level.FINE, exception.getMessage(), exception);
+      } finally {
+        asyncContext.complete();
+      }
+      return true;
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      if (answer(buildMessage(Collections.emptyList(), /*unreadCount=*/null, /*etag=*/null))) {
+        heartbeats.incrementAndGet();
+      }
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      if (answered.compareAndSet(false, true)) {
+        close(this);
+        asyncContext.complete();
+      }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      // A request completed by the container without an answer stops being tracked too.
+      if (answered.compareAndSet(false, true)) {
+        close(this);
+      }
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+  }
+}
@@ -0,0 +1,128 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics Hikari reports about the connection pool: how many connections are
+ * active, idle and awaited, how long requests wait to get one and how long they keep it. They
+ * are shown on the stats page so the pool can be sized from data.
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+  private volatile PoolStats poolStats;
+
+  private final AtomicLong acquisitions = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private final AtomicLong usages = new AtomicLong();
+  private final AtomicLong totalUsageMillis = new AtomicLong();
+  private final AtomicLong maxUsageMillis = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong connectionsCreated = new AtomicLong();
+
+  /**
+   * Called by Hikari once the pool is created, with the live statistics of the pool.
+   */
+  @Override
+  public IMetricsTracker create(String poolName, PoolStats poolStats) {
+    this.poolStats = poolStats;
+    return new Tracker();
+  }
+
+  /**
+   * Returns the current state of the pool along with the wait and usage times so far.
+   */
+  public Map<String, Object> getStatistics() {
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    PoolStats currentStats = poolStats;
+    if (currentStats != null) {
+      statistics.put("active", currentStats.getActiveConnections());
+      statistics.put("idle", currentStats.getIdleConnections());
+      statistics.put("total", currentStats.getTotalConnections());
+      statistics.put("pending", currentStats.getPendingThreads());
+      statistics.put("maximum", currentStats.getMaxConnections());
+      statistics.put("minimumIdle", currentStats.getMinConnections());
+    }
+    long acquired = acquisitions.get();
+    statistics.put("acquisitions", acquired);
+    statistics.put("averageWaitMillis", acquired == 0
+        ? 0.0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()) / 1000.0 / acquired);
+    statistics.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    long used = usages.get();
+    statistics.put("averageUsageMillis", used == 0 ? 0.0 : (double) totalUsageMillis.get() / used);
+    statistics.put("maxUsageMillis", maxUsageMillis.get());
+    statistics.put("timeouts", timeouts.get());
+    statistics.put("connectionsCreated", connectionsCreated.get());
+    return statistics;
+  }
+
+  /**
+   * Returns the number of connections handed out by the pool so far.
+   */
+  public long getAcquisitions() {
+    return acquisitions.get();
+  }
+
+  /**
+   * Returns the time requests have waited for a connection so far, in nanoseconds.
+   */
+  public long getTotalWaitNanos() {
+    return totalWaitNanos.get();
+  }
+
+  /**
+   * Returns the number of requests that gave up waiting for a connection so far.
+   */
+  public long getTimeouts() {
+    return timeouts.get();
+  }
+
+  /**
+   * Adds the measures Hikari reports to the counters.
+   */
+  private final class Tracker implements IMetricsTracker {
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+      connectionsCreated.incrementAndGet();
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+      acquisitions.incrementAndGet();
+      totalWaitNanos.addAndGet(elapsedAcquiredNanos);
+      maxWaitNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+      usages.incrementAndGet();
+      totalUsageMillis.addAndGet(elapsedBorrowedMillis);
+      maxUsageMillis.accumulateAndGet(elapsedBorrowedMillis, Math::max);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+      timeouts.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,195 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resizes the connection pool to follow the traffic. Traffic comes in bursts around class
+ * deadlines, so a fixed size either keeps Cloud SQL connections open for nothing at night or
+ * makes requests wait at peak times.
+ *
+ * adjust() is called by the requests themselves, at most once per interval, through
+ * adjustIfDue(). App Engine throttles the threads of an instance between requests, so a thread
+ * of its own would run late exactly when the instance is idle, and the pool only needs resizing
+ * while there is traffic. It grows the pool as soon as requests wait too long
+ * for a connection, and shrinks it one connection at a time once the pool has been mostly
+ * unused for a few intervals in a row, always within the configured bounds. The minimum idle
+ * connections follow the maximum at the same ratio the pool was configured with.
+ */
+public class PoolSizeController {
+
+  // Consecutive quiet intervals needed before the pool shrinks, so a short lull between bursts
+  // doesn't give connections back just before they are needed again.
+  private static final int QUIET_INTERVALS_BEFORE_SHRINK = 3;
+
+  private final HikariPoolMXBean poolBean;
+  private final HikariConfigMXBean configBean;
+  private final PoolMetrics poolMetrics;
+  private final int lowerBound;
+  private final int upperBound;
+  private final long targetWaitNanos;
+  private final double minimumIdleRatio;
+  private final long adjustInterval;
+  // Time from which the next request runs adjust().
+  private final AtomicLong nextAdjustTime;
+
+  // Totals of the metrics at the previous interval, to get the values of the current one.
+  private long lastAcquisitions;
+  private long lastWaitNanos;
+  private long lastTimeouts;
+  private int quietIntervals = 0;
+
+  private long grows = 0;
+  private long shrinks = 0;
+  private String lastDecision = "none";
+  private long lastDecisionTime = 0;
+
+  /**
+   * Creates a controller that keeps the maximum pool size between lowerBound and upperBound and
+   * tries to keep the average wait for a connection under targetWaitMillis.
+   */
+  public PoolSizeController(HikariPoolMXBean poolBean, HikariConfigMXBean configBean,
+      PoolMetrics poolMetrics, int lowerBound, int upperBound, long targetWaitMillis) {
+    this(poolBean, configBean, poolMetrics, lowerBound, upperBound, targetWaitMillis,
+        HikariConstants.ADJUST_INTERVAL);
+  }
+
+  /**
+   * Creates a controller like the one above, whose adjustIfDue() runs adjust() at most once
+   * every adjustIntervalMillis.
+   */
+  public PoolSizeController(HikariPoolMXBean poolBean, HikariConfigMXBean configBean,
+      PoolMetrics poolMetrics, int lowerBound, int upperBound, long targetWaitMillis,
+      long adjustIntervalMillis) {
+    this.poolBean = poolBean;
+    this.configBean = configBean;
+    this.poolMetrics = poolMetrics;
+    this.lowerBound = lowerBound;
+    this.upperBound = Math.max(lowerBound, upperBound);
+    this.targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetWaitMillis);
+    int maximumPoolSize = configBean.getMaximumPoolSize();
+    this.minimumIdleRatio = maximumPoolSize == 0
+        ? 0.5 : (double) configBean.getMinimumIdle() / maximumPoolSize;
+    this.lastAcquisitions = poolMetrics.getAcquisitions();
+    this.lastWaitNanos = poolMetrics.getTotalWaitNanos();
+    this.lastTimeouts = poolMetrics.getTimeouts();
+    this.adjustInterval = adjustIntervalMillis;
+    this.nextAdjustTime = new AtomicLong(System.currentTimeMillis() + adjustIntervalMillis);
+  }
+
+  /**
+   * Runs adjust() if the interval has passed since the last run. Only the request that claims
+   * the interval runs it, so the others return right away.
+   */
+  public void adjustIfDue() {
+    long now = System.currentTimeMillis();
+    long nextTime = nextAdjustTime.get();
+    if (now < nextTime || !nextAdjustTime.compareAndSet(nextTime, now + adjustInterval)) {
+      return;
+    }
+    try {
+      adjust();
+    } catch (RuntimeException exception) {
+      // The request that runs it doesn't depend on the pool size, so it is only logged.
+      Logger logger = Logger.getLogger(PoolSizeController.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+  }
+
+  /**
+   * Looks at the pool since the last call and resizes it if needed.
+   */
+  public synchronized void adjust() {
+    long acquisitions = poolMetrics.getAcquisitions() - lastAcquisitions;
+    long waitNanos = poolMetrics.getTotalWaitNanos() - lastWaitNanos;
+    long timeouts = poolMetrics.getTimeouts() - lastTimeouts;
+    lastAcquisitions += acquisitions;
+    lastWaitNanos += waitNanos;
+    lastTimeouts += timeouts;
+
+    long averageWaitNanos = acquisitions == 0 ? 0 : waitNanos / acquisitions;
+    int pending = poolBean.getThreadsAwaitingConnection();
+    int active = poolBean.getActiveConnections();
+    int maximumPoolSize = configBean.getMaximumPoolSize();
+
+    if (timeouts > 0 || pending > 0 || averageWaitNanos > targetWaitNanos) {
+      quietIntervals = 0;
+      // The pool grows by a quarter, or by the waiting threads if there are more of them, so a
+      // burst is absorbed in a couple of intervals.
+      int newSize = Math.min(upperBound,
+          maximumPoolSize + Math.max(Math.max(1, maximumPoolSize / 4), pending));
+      if (newSize > maximumPoolSize) {
+        resize(newSize, "grow", String.format(
+            "pending=%d, timeouts=%d, averageWaitMillis=%d", pending, timeouts,
+            TimeUnit.NANOSECONDS.toMillis(averageWaitNanos)));
+        grows++;
+      }
+    } else if (active < maximumPoolSize / 2) {
+      quietIntervals++;
+      if (quietIntervals >= QUIET_INTERVALS_BEFORE_SHRINK && maximumPoolSize > lowerBound) {
+        quietIntervals = 0;
+        resize(maximumPoolSize - 1, "shrink", "active=" + active);
+        shrinks++;
+      }
+    } else {
+      quietIntervals = 0;
+    }
+  }
+
+  /**
+   * Returns the bounds and the decisions taken so far.
+   */
+  public synchronized Map<String, Object> getStatistics() {
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("maximumPoolSize", configBean.getMaximumPoolSize());
+    statistics.put("minimumIdle", configBean.getMinimumIdle());
+    statistics.put("lowerBound", lowerBound);
+    statistics.put("upperBound", upperBound);
+    statistics.put("targetWaitMillis", TimeUnit.NANOSECONDS.toMillis(targetWaitNanos));
+    statistics.put("grows", grows);
+    statistics.put("shrinks", shrinks);
+    statistics.put("lastDecision", lastDecision);
+    statistics.put("lastDecisionTime", lastDecisionTime);
+    return statistics;
+  }
+
+  /**
+   * Sets the new maximum pool size along with its minimum idle connections, and logs why.
+   */
+  private void resize(int newSize, String decision, String reason) {
+    int oldSize = configBean.getMaximumPoolSize();
+    int minimumIdle = Math.max(1, (int) Math.round(newSize * minimumIdleRatio));
+    // Hikari rejects a minimum idle above the maximum, so the order depends on the direction.
+    if (newSize > oldSize) {
+      configBean.setMaximumPoolSize(newSize);
+      configBean.setMinimumIdle(minimumIdle);
+    } else {
+      configBean.setMinimumIdle(minimumIdle);
+      configBean.setMaximumPoolSize(newSize);
+    }
+    lastDecision = String.format("%s from %d to %d (%s)", decision, oldSize, newSize, reason);
+    lastDecisionTime = System.currentTimeMillis();
+    Logger logger = Logger.getLogger(PoolSizeController.class.getName());
+    logger.log(Level.INFO, "Connection pool " + configBean.getPoolName() + " " + lastDecision);
+  }
+}
@@ -14,6 +14,8 @@
 
 package com.google.sps.classes;
 
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.Date;
 
@@ -32,6 +34,27 @@ public class Question {
   private int numberOfAnswers;
   private boolean userFollowsQuestion;
 
+  public Question() {}
+
+  /**
+   * Creates a copy of a question, so a shared question can be given a per-user follow status.
+   */
+  public Question(Question question) {
+    this.id = question.id;
+    this.title = question.title;
+    this.body = question.body;
+    this.askerName = question.askerName;
+    this.askerId = question.askerId;
+    this.dateTime = question.dateTime;
+    this.numberOfFollowers = question.numberOfFollowers;
+    this.numberOfAnswers = question.numberOfAnswers;
+    this.userFollowsQuestion = question.userFollowsQuestion;
+  }
+
+  public int getId() {
+    return id;
+  }
+
   public void setId(int id) {
     this.id = id;
   }
@@ -52,6 +75,10 @@ public class Question {
     this.askerId = askerId;
   }
 
+  public Timestamp getDateTime() {
+    return dateTime;
+  }
+
   public void setDateTime(Timestamp dateTime) {
     this.dateTime = dateTime;
   }
@@ -67,4 +94,29 @@ public class Question {
   public void setUserFollowsQuestion(boolean userFollowsQuestion) {
     this.userFollowsQuestion = userFollowsQuestion;
   }
+
+  /**
+   * Writes a question as JSON without reflection.
+   */
+  public static final class GsonAdapter extends JsonAdapters.WriteOnlyAdapter<Question> {
+    @Override
+    public void write(JsonWriter out, Question question) throws IOException {
+      if (question == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("id").value(question.id);
+      out.name("title").value(question.title);
+      out.name("body").value(question.body);
+      out.name("askerName").value(question.askerName);
+      out.name("askerId").value(question.askerId);
+      out.name("dateTime");
+      JsonAdapters.writeTimestamp(out, question.dateTime);
+      out.name("numberOfFollowers").value(question.numberOfFollowers);
+      out.name("numberOfAnswers").value(question.numberOfAnswers);
+      out.name("userFollowsQuestion").value(question.userFollowsQuestion);
+      out.endObject();
+    }
+  }
 }
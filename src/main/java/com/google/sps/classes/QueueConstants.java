@@ -0,0 +1,60 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+/**
+ * Constants used for setup of the queue that creates notifications and sends emails off the
+ * requests of the posts, of the streams that push the notifications to the browsers, and of the
+ * job that archives the old ones.
+ */
+public final class QueueConstants {
+  // Push queue of the notification tasks, set up in queue.xml along with its rate and retries,
+  // and the servlet its tasks call with the parameters of a NotificationEvent.
+  public static final String NOTIFICATION_QUEUE_NAME = "notifications";
+  public static final String NOTIFICATION_TASK_URL = "/notification-task";
+  public static final String NOTIFICATION_TASK_TYPE = "type";
+  public static final String NOTIFICATION_TASK_ELEMENT_ID = "modifiedElementId";
+  public static final String NOTIFICATION_TASK_STEP = "step";
+  // Days the keys of the notification events are kept, well past the retries of their tasks.
+  public static final int NOTIFICATION_TASK_KEY_RETENTION_DAYS = 1;
+
+  public static final String NOTIFICATION_STREAMS_ATTRIBUTE = "notification-streams";
+  // Requests an instance serves at once, which must match max-concurrent-requests in
+  // appengine-web.xml. Every held long-poll request counts against it, so the streams only get
+  // what is left once the headroom is kept for the other requests. Browsers turned away retry
+  // after a while.
+  public static final int MAX_CONCURRENT_REQUESTS = 80;
+  public static final String MAX_CONCURRENT_REQUESTS_PROPERTY = "instance.maxConcurrentRequests";
+  public static final int NOTIFICATION_STREAMS_REQUEST_HEADROOM = 30;
+  public static final int NOTIFICATION_STREAMS_RETRY_AFTER = 30; // 30 seconds
+  // Time a request is held without news, under the 60 seconds deadline of App Engine requests.
+  public static final long NOTIFICATION_STREAMS_HEARTBEAT = 25000; // 25 seconds
+
+  // Default window within which repeated notifications about the same element are coalesced
+  // into one, used when appengine-web.xml doesn't set it.
+  public static final long NOTIFICATION_COALESCE_WINDOW = 3600000; // 1 hour
+  public static final String NOTIFICATION_COALESCE_WINDOW_PROPERTY =
+      "notifications.coalesceWindow";
+
+  // Default age after which notifications are archived, and number of notifications kept for
+  // each user, used when appengine-web.xml doesn't set them.
+  public static final int NOTIFICATION_RETENTION_DAYS = 180;
+  public static final int NOTIFICATION_CAP_PER_USER = 500;
+  public static final String NOTIFICATION_RETENTION_DAYS_PROPERTY = "notifications.retentionDays";
+  public static final String NOTIFICATION_CAP_PER_USER_PROPERTY = "notifications.capPerUser";
+  // Batches each step of a run of the job moves at most, so it ends well before the deadline of
+  // cron requests. What is left is moved by the next runs.
+  public static final int NOTIFICATION_RETENTION_MAX_BATCHES = 100;
+}
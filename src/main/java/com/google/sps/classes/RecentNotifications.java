@@ -0,0 +1,159 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The newest page of the inbox of a user and their number of unread notifications, kept in
+ * memory so the navbar doesn't query the database on every page load.
+ *
+ * Notifications are kept in a ring buffer of one page: a new notification takes the place of
+ * the oldest one once it is full. Instances are immutable, so they can be shared between
+ * requests; adding a notification creates a new buffer, which only copies a page of references.
+ *
+ * A buffer carries the ETag of the inbox it was read at, so an instance can tell it is out of
+ * date once a different instance gives the inbox a new version.
+ */
+public final class RecentNotifications {
+
+  // The buffer holds exactly the newest page of the inbox.
+  public static final int CAPACITY = SqlConstants.NOTIFICATION_PAGE_SIZE;
+
+  public static final RecentNotifications EMPTY =
+      new RecentNotifications(new Notification[CAPACITY], 0, 0, false, 0, null);
+
+  private final Notification[] buffer;
+  // Position of the newest notification in the buffer. The older ones come before it.
+  private final int newest;
+  private final int size;
+  private final boolean hasOlderNotifications;
+  private final int unreadCount;
+  // ETag of the inbox the buffer was read at, or null if it couldn't be read. Adding a
+  // notification keeps it: the inbox gets a new version right after, so reads load it again.
+  private final String etag;
+
+  private RecentNotifications(Notification[] buffer, int newest, int size,
+      boolean hasOlderNotifications, int unreadCount, String etag) {
+    this.buffer = buffer;
+    this.newest = newest;
+    this.size = size;
+    this.hasOlderNotifications = hasOlderNotifications;
+    this.unreadCount = unreadCount;
+    this.etag = etag;
+  }
+
+  /**
+   * Creates a buffer from the newest page of the inbox of a user.
+   */
+  public static RecentNotifications of(NotificationPage newestPage, int unreadCount) {
+    List<Notification> notifications = newestPage.getNotifications();
+    int size = Math.min(notifications.size(), CAPACITY);
+    Notification[] buffer = new Notification[CAPACITY];
+    // The page is newest first, so the newest notification ends at the last position.
+    for (int index = 0; index < size; index++) {
+      buffer[size - 1 - index] = notifications.get(index);
+    }
+    return new RecentNotifications(buffer, Math.max(size - 1, 0), size,
+        newestPage.getOlderNotificationsCursor() != null, unreadCount, null);
+  }
+
+  /**
+   * Returns the same buffer, read when the inbox had the given ETag.
+   */
+  public RecentNotifications withEtag(String etag) {
+    return new RecentNotifications(buffer, newest, size, hasOlderNotifications, unreadCount,
+        etag);
+  }
+
+  /**
+   * Returns a buffer with a new unread notification as the newest one. The oldest notification
+   * is left out of the page if the buffer is full. A coalesced notification that is already in
+   * the buffer is moved to the newest position instead, and only counts as unread again if it
+   * had been read.
+   */
+  public RecentNotifications with(Notification notification) {
+    int position = find(notification.id);
+    if (position >= 0) {
+      return moveToNewest(position, notification);
+    }
+    Notification[] newBuffer = buffer.clone();
+    int newNewest = size == 0 ? 0 : (newest + 1) % CAPACITY;
+    newBuffer[newNewest] = notification;
+    return new RecentNotifications(newBuffer, newNewest, Math.min(size + 1, CAPACITY),
+        hasOlderNotifications || size == CAPACITY, unreadCount + 1, etag);
+  }
+
+  /**
+   * Returns true if the notification with the given ID is in the buffer.
+   */
+  public boolean contains(int notificationId) {
+    return find(notificationId) >= 0;
+  }
+
+  /**
+   * Returns the newest page of the inbox, as NotificationServlet sends it.
+   */
+  public NotificationPage toPage() {
+    List<Notification> notifications = new ArrayList<>(size);
+    for (int count = 0; count < size; count++) {
+      notifications.add(buffer[(newest - count + CAPACITY) % CAPACITY]);
+    }
+    Notification oldest = size > 0 ? notifications.get(size - 1) : null;
+    String olderNotificationsCursor = hasOlderNotifications && oldest != null
+        ? Utility.buildCursor(oldest.timestamp, oldest.id) : null;
+    return new NotificationPage(notifications, olderNotificationsCursor);
+  }
+
+  public int getUnreadCount() {
+    return unreadCount;
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * Returns how many notifications are newer than the one with the given ID, or -1 if it isn't
+   * in the buffer.
+   */
+  private int find(int notificationId) {
+    for (int count = 0; count < size; count++) {
+      if (buffer[(newest - count + CAPACITY) % CAPACITY].id == notificationId) {
+        return count;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns a buffer where the notification at the given position is replaced by its new
+   * version as the newest one. The buffer is rebuilt from position 0, like in of().
+   */
+  private RecentNotifications moveToNewest(int position, Notification notification) {
+    Notification previous = buffer[(newest - position + CAPACITY) % CAPACITY];
+    Notification[] newBuffer = new Notification[CAPACITY];
+    newBuffer[size - 1] = notification;
+    int index = size - 2;
+    for (int count = 0; count < size; count++) {
+      if (count != position) {
+        newBuffer[index--] = buffer[(newest - count + CAPACITY) % CAPACITY];
+      }
+    }
+    return new RecentNotifications(newBuffer, size - 1, size, hasOlderNotifications,
+        previous.isRead ? unreadCount + 1 : unreadCount, etag);
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Decides whether a request can read from the read replica instead of the primary database.
+ *
+ * Only GET and HEAD requests go to the replica. Replicas lag a little behind the primary, so a
+ * user who just posted would not find their own question or answer on the next page load. To
+ * avoid that, every write leaves a cookie that sends the requests of that browser to the primary
+ * until the replica has caught up. Other browsers keep reading from the replica after a write.
+ * What they read may still be older than the write, so it must not go into the caches the write
+ * invalidated; canCacheReplicaReads() tells when that could happen.
+ */
+public class ReplicaRouter {
+
+  // Cookie left by a write, which expires once the replica has caught up with it.
+  public static final String RECENT_WRITE_COOKIE = "recent-write";
+
+  private final long stickiness;
+  private volatile long lastWriteTime = 0;
+  private final AtomicInteger writesInProgress = new AtomicInteger();
+
+  private final AtomicLong replicaRequests = new AtomicLong();
+  private final AtomicLong primaryReads = new AtomicLong();
+  private final AtomicLong writes = new AtomicLong();
+
+  /**
+   * Creates a router that keeps the reads of a browser on the primary for stickiness
+   * milliseconds after it wrote.
+   */
+  public ReplicaRouter(long stickiness) {
+    this.stickiness = stickiness;
+  }
+
+  /**
+   * Returns true if the request only reads and can't miss a recent write on the replica.
+   */
+  public boolean isReadOnly(HttpServletRequest request) {
+    String method = request.getMethod();
+    if (!"GET".equals(method) && !"HEAD".equals(method)) {
+      return false;
+    }
+    // Cron jobs are GET requests that write.
+    if (request.getHeader("X-Appengine-Cron") != null) {
+      return false;
+    }
+    if (hasRecentWriteCookie(request)) {
+      primaryReads.incrementAndGet();
+      return false;
+    }
+    replicaRequests.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Sends the next requests of the browser to the primary. Must be called before the response
+   * is committed, so the cookie can still be added to it.
+   */
+  public void startWrite(HttpServletResponse response) {
+    writes.incrementAndGet();
+    writesInProgress.incrementAndGet();
+    Cookie cookie = new Cookie(RECENT_WRITE_COOKIE, "1");
+    cookie.setPath("/");
+    cookie.setHttpOnly(true);
+    // Rounded up, so the cookie never expires before the stickiness window.
+    cookie.setMaxAge((int) Math.max(1, (stickiness + 999) / 1000));
+    response.addCookie(cookie);
+  }
+
+  /**
+   * Called once the write ended, when its changes are committed.
+   */
+  public void endWrite() {
+    recordWrite();
+    writesInProgress.decrementAndGet();
+  }
+
+  /**
+   * Records a write done on this instance outside of a request, such as by a background job.
+   */
+  public void recordWrite() {
+    lastWriteTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns true if values read from the replica can be put in the caches of the instance. They
+   * can't while a write is in progress or the replica may not have caught up with the last one,
+   * since they could be older than the write and undo its invalidations.
+   */
+  public boolean canCacheReplicaReads() {
+    return writesInProgress.get() == 0
+        && System.currentTimeMillis() - lastWriteTime >= stickiness;
+  }
+
+  /**
+   * Returns how many requests went to each database.
+   */
+  public Map<String, Object> getStatistics() {
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("stickinessMillis", stickiness);
+    statistics.put("replicaRequests", replicaRequests.get());
+    statistics.put("primaryReads", primaryReads.get());
+    statistics.put("writes", writes.get());
+    statistics.put("lastWriteTime", lastWriteTime);
+    return statistics;
+  }
+
+  private static boolean hasRecentWriteCookie(HttpServletRequest request) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies == null) {
+      return false;
+    }
+    for (Cookie cookie : cookies) {
+      if (RECENT_WRITE_COOKIE.equals(cookie.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,134 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.ServletContext;
+
+/**
+ * The single database connection of a request. It is borrowed from the pool the first time a
+ * servlet asks for a connection and shared with every later caller of the request, including
+ * servlets included with a RequestDispatcher, so a request never holds more than one connection
+ * of the pool. RequestConnectionFilter releases it when the request ends.
+ *
+ * Callers get a connection whose close() ends their use of it instead of closing it: work left
+ * uncommitted is rolled back and auto-commit is restored, as the pool does when a connection is
+ * returned, so the next caller gets it in the same state as a fresh one.
+ *
+ * A read-only request borrows its connection from the pool of the read replica, when there is
+ * one.
+ */
+public class RequestConnection {
+
+  private final ServletContext context;
+  private final boolean readOnly;
+  private Connection connection;
+  private Connection sharedConnection;
+
+  public RequestConnection(ServletContext context) {
+    this(context, /*readOnly=*/false);
+  }
+
+  public RequestConnection(ServletContext context, boolean readOnly) {
+    this.context = context;
+    this.readOnly = readOnly;
+  }
+
+  /**
+   * Returns true if the connection of the request comes from the read replica.
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Returns the connection of the request, borrowing it from the pool if needed. Returns null if
+   * no connection could be obtained.
+   */
+  public Connection get() {
+    if (connection == null) {
+      connection = Utility.getConnection(context, readOnly);
+      if (connection == null) {
+        return null;
+      }
+      sharedConnection = (Connection) Proxy.newProxyInstance(
+          Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+          new SharedConnectionHandler(connection));
+    }
+    return sharedConnection;
+  }
+
+  /**
+   * Returns the connection to the pool, if one was borrowed.
+   */
+  public void release() {
+    if (connection == null) {
+      return;
+    }
+    try {
+      endUse(connection);
+      connection.close();
+    } catch (SQLException exception) {
+      // If the connection isn't closed we get the log of what happened.
+      Logger logger = Logger.getLogger(RequestConnection.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    } finally {
+      connection = null;
+      sharedConnection = null;
+    }
+  }
+
+  /**
+   * Rolls back the work a caller didn't commit and restores auto-commit.
+   */
+  private static void endUse(Connection connection) throws SQLException {
+    if (!connection.isClosed() && !connection.getAutoCommit()) {
+      connection.rollback();
+      connection.setAutoCommit(true);
+    }
+  }
+
+  /**
+   * Forwards every call to the connection of the request, except close().
+   */
+  private static final class SharedConnectionHandler implements InvocationHandler {
+    private final Connection connection;
+
+    private SharedConnectionHandler(Connection connection) {
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+      if (method.getName().equals("close") && method.getParameterCount() == 0) {
+        endUse(connection);
+        return null;
+      }
+      try {
+        return method.invoke(connection, arguments);
+      } catch (InvocationTargetException exception) {
+        // Callers expect the SQLException of the connection, not the reflection wrapper.
+        throw exception.getCause();
+      }
+    }
+  }
+}
@@ -30,12 +30,47 @@ public final class SqlConstants {
   public static final int QUESTION_FETCH_ASKERID = 4;
   public static final int QUESTION_FETCH_ASKERNAME = 8;
   public static final int QUESTION_FETCH_DATETIME = 5;
-  public static final int QUESTION_FETCH_NUMBEROFFOLLOWERS = 7;
-  public static final int QUESTION_FETCH_NUMBEROFANSWERS = 11;
-  public static final int QUESTION_FETCH_USERFOLLOWSQUESTION = 12;
-
-  // Constant used to check if the user follows a question.
-  public static final int QUESTION_QUERY_SET_USERID = 1;
+  public static final int QUESTION_FETCH_NUMBEROFFOLLOWERS = 6;
+  public static final int QUESTION_FETCH_NUMBEROFANSWERS = 7;
+
+  // Constants used for loading the questions a user follows.
+  public static final int FOLLOWED_QUESTIONS_SET_USERID = 1;
+  public static final int FOLLOWED_QUESTIONS_FETCH_QUESTIONID = 1;
+
+  // Constants used for updating the counters of a question or an answer.
+  public static final int COUNTER_SET_VALUE = 1;
+  public static final int COUNTER_SET_ID = 2;
+
+  // Constants used for reconciling the counters of a range of questions or answers.
+  public static final int RECONCILE_SET_LOWERID = 1;
+  public static final int RECONCILE_SET_UPPERID = 2;
+  public static final int RECONCILE_BATCH_SIZE = 1000;
+  public static final int RECONCILE_FETCH_MAXID = 1;
+
+  // Constants used for moving old notifications, and those beyond the cap of each user, to the
+  // archive tables.
+  public static final int RETENTION_SET_CUTOFF = 1;
+  public static final int RETENTION_SET_LIMIT = 2;
+  public static final int RETENTION_FETCH_MAXID = 1;
+  public static final int RETENTION_SET_MAXID = 1;
+  public static final int RETENTION_SET_DATETIME = 2;
+  public static final int RETENTION_BATCH_SIZE = 500;
+  public static final int CAP_FETCH_USERID = 1;
+  public static final int CAP_FETCH_COUNT = 2;
+  public static final int CAP_SET_CAP = 1;
+  public static final int CAP_SET_USERID = 1;
+  public static final int CAP_SET_OFFSET = 2;
+  public static final int CAP_FETCH_DATETIME = 1;
+  public static final int CAP_FETCH_NOTIFICATIONID = 2;
+  public static final int CAP_SET_BOUND_DATETIME = 2;
+  public static final int CAP_SET_BOUND_NOTIFICATIONID = 3;
+  public static final int CAP_DECREMENT_SET_USERID = 4;
+  public static final int CAPPED_FETCH_NOTIFICATIONID = 1;
+  public static final int ORPHAN_SET_ID = 1;
+
+  // Constants used to read and bump the versions of the content.
+  public static final int CONTENT_VERSION_SET_KEY = 1;
+  public static final int CONTENT_VERSION_FETCH_VERSION = 1;
 
   // Constants used for inserting a question.
   public static final int QUESTION_INSERT_TITLE = 1;
@@ -50,15 +85,14 @@ public final class SqlConstants {
   public static final int SINGLE_QUESTION_PAGE = -1;
 
   // Constants used for inserting a follower to a question.
-  // QUESTION_FETCH_MAXID is used to get the ID of the question
-  // that was just posted so the follower can be inserted.
-  public static final int QUESTION_FETCH_MAXID = 1;
   public static final int FOLLOWER_INSERT_QUESTIONID = 1;
   public static final int FOLLOWER_INSERT_ASKERID = 2;
 
   // Constants used for querying a user.
   public static final int USER_FETCH_ID = 1;
   public static final int USER_FETCH_USERNAME = 1;
+  public static final int USER_SET_EMAIL = 1;
+  public static final int USER_SET_ID = 1;
   
   // Constants used for inserting a new user.
   public static final int USER_INSERT_FIRSTNAME = 1;
@@ -70,20 +104,31 @@ public final class SqlConstants {
 
   // Constants used for querying an answer.
   public static final int ANSWER_FETCH_ID = 1;
-  public static final int ANSWER_FETCH_BODY = 3;
-  public static final int ANSWER_FETCH_AUTHORNAME = 8;
-  public static final int ANSWER_FETCH_AUTHORID = 4;
-  public static final int ANSWER_FETCH_DATETIME = 5;
-  public static final int ANSWER_FETCH_VOTES = 6;
+  public static final int ANSWER_FETCH_BODY = 2;
+  public static final int ANSWER_FETCH_AUTHORID = 3;
+  public static final int ANSWER_FETCH_DATETIME = 4;
+  public static final int ANSWER_FETCH_VOTES = 5;
+  public static final int ANSWER_FETCH_AUTHORNAME = 6;
+  public static final int ANSWER_FETCH_NUMBEROFCOMMENTS = 7;
 
   // Constant used to set parameter in answer prepared statement.
   public static final int ANSWER_SET_QUESTIONID = 1;
 
   // Constants used for querying a comment.
-  public static final int COMMENT_FETCH_BODY = 11;
-  public static final int COMMENT_FETCH_AUTHORNAME = 15;
-  public static final int COMMENT_FETCH_AUTHORID = 12;
-  public static final int COMMENT_FETCH_DATETIME = 13;
+  public static final int COMMENT_FETCH_ANSWERID = 1;
+  public static final int COMMENT_FETCH_BODY = 2;
+  public static final int COMMENT_FETCH_AUTHORID = 3;
+  public static final int COMMENT_FETCH_DATETIME = 4;
+  public static final int COMMENT_FETCH_AUTHORNAME = 5;
+  public static final int COMMENT_FETCH_ID = 6;
+
+  // Number of the newest comments of each answer sent along with it. The rest are requested
+  // in pages of COMMENT_PAGE_SIZE.
+  public static final int COMMENTS_PER_ANSWER = 3;
+  public static final int COMMENT_PAGE_SIZE = 10;
+
+  // Constants used to set parameters in the comment page prepared statement.
+  public static final int COMMENT_PAGE_SET_ANSWERID = 1;
 
   // Constants used for inserting an answer.
   public static final int ANSWER_INSERT_QUESTIONID = 1;
@@ -91,9 +136,6 @@ public final class SqlConstants {
   public static final int ANSWER_INSERT_AUTHORID = 3;
 
   // Constants used for inserting a follower to an answer.
-  // ANSWER_FETCH_MAXID is used to get the ID of the answer
-  // that was just posted so the follower can be inserted.
-  public static final int ANSWER_FETCH_MAXID = 1;
   public static final int FOLLOWER_INSERT_ANSWERID = 1;
   public static final int FOLLOWER_INSERT_AUTHORID = 2;
 
@@ -106,22 +148,65 @@ public final class SqlConstants {
   public static final int NOTIFICATION_FETCH_MESSAGE = 1;
   public static final int NOTIFICATION_FETCH_URL = 2;
   public static final int NOTIFICATION_FETCH_TIMESTAMP = 3;
+  public static final int NOTIFICATION_FETCH_ID = 4;
+  public static final int NOTIFICATION_FETCH_IS_READ = 5;
+
+  // Number of notifications in each page of the inbox.
+  public static final int NOTIFICATION_PAGE_SIZE = 10;
 
   // Constants used to insert a new notification.
   public static final int NOTIFICATION_INSERT_MESSAGE = 1;
   public static final int NOTIFICATION_INSERT_URL = 2;
   public static final int NOTIFICATION_INSERT_DATETIME = 3;
+  public static final int NOTIFICATION_INSERT_COALESCE_KEY = 4;
   public static final int NOTIFICATION_FETCH_ID_ANSWERED_QUESTION = 1;
 
   // Constants used to insert a relationship between user and notification.
   public static final int USER_NOTIFICATION_INSERT_USERID = 1;
   public static final int USER_NOTIFICATION_INSERT_NOTIFICATIONID = 2;
+  public static final int USER_NOTIFICATION_INSERT_DATETIME = 3;
+
+  // Constants used to record the key of a notification event, and delete the old ones.
+  public static final int NOTIFICATION_TASK_INSERT_NAME = 1;
+  public static final int NOTIFICATION_TASK_INSERT_DATETIME = 2;
+  public static final int NOTIFICATION_TASK_SET_CUTOFF = 1;
+
+  // Constants used to coalesce a new notification into a recent one about the same element.
+  public static final int COALESCE_SET_KEY = 1;
+  public static final int COALESCE_SET_DATETIME = 2;
+  public static final int COALESCE_FETCH_ID = 1;
+  public static final int COALESCE_FETCH_EVENT_COUNT = 2;
+  public static final int COALESCED_UPDATE_MESSAGE = 1;
+  public static final int COALESCED_UPDATE_EVENT_COUNT = 2;
+  public static final int COALESCED_UPDATE_DATETIME = 3;
+  public static final int COALESCED_UPDATE_ID = 4;
+  public static final int COALESCE_USERS_SET_NOTIFICATIONID = 1;
+  public static final int COALESCE_USERS_FETCH_USERID = 1;
+  public static final int COALESCE_USERS_FETCH_IS_READ = 2;
+  public static final int COALESCED_USERS_UPDATE_DATETIME = 1;
+  public static final int COALESCED_USERS_UPDATE_NOTIFICATIONID = 2;
+
+  // Constant used to read the ID the database generated for an inserted question, answer or
+  // notification.
+  public static final int GENERATED_ID = 1;
+
+  // Constants used to fetch the ID of every user to notify of a change in an element.
+  public static final int CREATE_NOTIFICATION_FETCH_USERID = 1;
+  public static final int NOTIFY_SET_ELEMENTID = 1;
 
-  // Constant used to fetch the ID of the last inserted notification.
-  public static final int LAST_NOTIFICATION_FETCH_ID = 1;
+  // Constant used to fetch the notifications of a user.
+  public static final int NOTIFICATION_SET_USERID = 1;
 
-  // Constant used to fetch the ID of every user following a question or answer.
-  public static final int CREATE_NOTIFICATION_FETCH_USERID = 1;
+  // Constants used to mark notifications as read and keep the unread counter of the user.
+  public static final int NOTIFICATION_READ_SET_USERID = 1;
+  public static final int NOTIFICATION_READ_SET_NOTIFICATIONID = 2;
+  public static final int UNREAD_DECREMENT_SET_VALUE = 1;
+  public static final int UNREAD_DECREMENT_SET_USERID = 2;
+  public static final int UNREAD_INCREMENT_SET_NOTIFICATIONID = 1;
+  public static final int UNREAD_FETCH_COUNT = 1;
+
+  // Constant used to fetch the question of an answer.
+  public static final int ANSWER_SET_ID = 1;
 
   // Constants used for inserting mentor experience.
   public static final int MENTOR_EXPERIENCE_INSERT_ID = 1;
@@ -132,6 +217,7 @@ public final class SqlConstants {
   public static final int MENTOR_EVIDENCE_FETCH_ISAPPROVED = 3;
   public static final int MENTOR_EVIDENCE_FETCH_ISREJECTED = 4;
   public static final int MENTOR_EVIDENCE_FETCH_PARAGRAPH = 5;
+  public static final int MENTOR_EVIDENCE_SET_MENTORID = 1;
 
   // Constants used in the follower system.
   public static final int FOLLOWER_QUERY_QUESTIONID = 1;
@@ -141,7 +227,7 @@ public final class SqlConstants {
   public static final int MENTOR_APPROVAL_FETCH_MENTORID = 1;
   public static final int MENTOR_APPROVAL_FETCH_APPROVERID = 2;
   public static final int MENTOR_APPROVAL_FETCH_ISREVIEWED = 3;
-  
-  // Constant used in building the question query.
-  public static final int QUESTION_QUERY_WHERE_CONDITION = 573;
+
+  // Constant used to fetch a single question.
+  public static final int QUESTION_SET_ID = 1;
 }
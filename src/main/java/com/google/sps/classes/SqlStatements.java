@@ -0,0 +1,401 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+/**
+ * Catalog of every SQL statement of the app. Values always go through placeholders, never into
+ * the text, so each statement has a single text no matter the IDs it runs with. That lets the
+ * driver and MySQL reuse the prepared statement instead of parsing it again on every request.
+ * Statements whose WHERE clause varies are declared once per variant instead of being built
+ * when they run. The indices of their parameters and columns are in SqlConstants.
+ */
+public final class SqlStatements {
+
+  // Queries of the questions. They generate the following table:
+  //
+  // |--------------------------------------Question--------------------------------------|-----GetUsername-----|
+  // +----+-------+------+----------+-----------+---------------------+-------------------+----------+----------+
+  // | id | title | body | asker_id | date_time | number_of_followers | number_of_answers | username | asker_id |
+  // +----+-------+------+----------+-----------+---------------------+-------------------+----------+----------+
+  //
+  // They don't depend on the user, so their results can be shared; whether the user follows each
+  // question is added from their FollowedQuestions.
+  private static final String QUESTIONS_SELECT = "SELECT * FROM Question "
+      + "LEFT JOIN (SELECT username, id AS asker_id FROM User) GetUsername "
+      + "ON Question.asker_id=GetUsername.asker_id ";
+  public static final String FETCH_QUESTION = QUESTIONS_SELECT + "WHERE Question.id = ?";
+
+  // Conditions of a single page of the forum. The cursor conditions implement keyset pagination
+  // over (date_time, id), so MySQL can seek directly to the page in the date_time index instead
+  // of reading every question before it.
+  private static final String QUESTIONS_AFTER_CURSOR_CONDITION = "(Question.date_time < ? "
+      + "OR (Question.date_time = ? AND Question.id < ?)) ";
+  private static final String QUESTIONS_BEFORE_CURSOR_CONDITION = "(Question.date_time > ? "
+      + "OR (Question.date_time = ? AND Question.id > ?)) ";
+  private static final String QUESTIONS_MATCH_CONDITION =
+      "MATCH(title,body) AGAINST(? IN NATURAL LANGUAGE MODE) ";
+  private static final String QUESTIONS_NEWEST_FIRST_ORDER =
+      "ORDER BY Question.date_time DESC, Question.id DESC LIMIT ?";
+  private static final String QUESTIONS_OLDEST_FIRST_ORDER =
+      "ORDER BY Question.date_time ASC, Question.id ASC LIMIT ?";
+
+  // Variants of the forum page query. The parameters are, in this order: the search input of
+  // search pages, the date, date and ID of the cursor of every page but the first one, and the
+  // page size.
+  public static final String FETCH_FORUM_FIRST_PAGE = QUESTIONS_SELECT
+      + QUESTIONS_NEWEST_FIRST_ORDER;
+  public static final String FETCH_FORUM_NEXT_PAGE = QUESTIONS_SELECT
+      + "WHERE " + QUESTIONS_AFTER_CURSOR_CONDITION + QUESTIONS_NEWEST_FIRST_ORDER;
+  public static final String FETCH_FORUM_PREVIOUS_PAGE = QUESTIONS_SELECT
+      + "WHERE " + QUESTIONS_BEFORE_CURSOR_CONDITION + QUESTIONS_OLDEST_FIRST_ORDER;
+  public static final String FETCH_SEARCH_FIRST_PAGE = QUESTIONS_SELECT
+      + "WHERE " + QUESTIONS_MATCH_CONDITION + QUESTIONS_NEWEST_FIRST_ORDER;
+  public static final String FETCH_SEARCH_NEXT_PAGE = QUESTIONS_SELECT
+      + "WHERE " + QUESTIONS_MATCH_CONDITION + "AND " + QUESTIONS_AFTER_CURSOR_CONDITION
+      + QUESTIONS_NEWEST_FIRST_ORDER;
+  public static final String FETCH_SEARCH_PREVIOUS_PAGE = QUESTIONS_SELECT
+      + "WHERE " + QUESTIONS_MATCH_CONDITION + "AND " + QUESTIONS_BEFORE_CURSOR_CONDITION
+      + QUESTIONS_OLDEST_FIRST_ORDER;
+
+  // NOW() is the function to get the current date and time in MySQL.
+  public static final String INSERT_QUESTION = "INSERT INTO Question(title, body, asker_id, "
+      + "date_time) VALUES (?,?,?,NOW())";
+  public static final String FETCH_MAX_QUESTION_ID = "SELECT MAX(id) FROM Question";
+
+  // Followers of the questions.
+  public static final String FETCH_FOLLOWED_QUESTIONS = "SELECT question_id "
+      + "FROM QuestionFollower WHERE follower_id = ?";
+  public static final String FETCH_QUESTION_FOLLOWERS = "SELECT follower_id "
+      + "FROM QuestionFollower WHERE question_id = ?";
+  public static final String INSERT_QUESTION_FOLLOWER = "INSERT INTO "
+      + "QuestionFollower(question_id, follower_id) VALUES (?,?)";
+  public static final String DELETE_QUESTION_FOLLOWER = "DELETE FROM QuestionFollower "
+      + "WHERE question_id = ? AND follower_id = ?";
+
+  // Statements that add to the counters kept in the Question and Answer tables. They must run in
+  // the same transaction as the insert or delete they account for.
+  public static final String UPDATE_NUMBER_OF_FOLLOWERS = "UPDATE Question "
+      + "SET number_of_followers = number_of_followers + ? WHERE id = ?";
+  public static final String UPDATE_NUMBER_OF_ANSWERS = "UPDATE Question "
+      + "SET number_of_answers = number_of_answers + ? WHERE id = ?";
+  public static final String UPDATE_NUMBER_OF_COMMENTS = "UPDATE Answer "
+      + "SET number_of_comments = number_of_comments + ? WHERE id = ?";
+
+  // Statements that recompute the counters of a range of IDs from the tables they count.
+  public static final String RECONCILE_QUESTION_COUNTERS = "UPDATE Question SET "
+      + "number_of_followers = "
+      + "(SELECT COUNT(*) FROM QuestionFollower WHERE question_id = Question.id), "
+      + "number_of_answers = (SELECT COUNT(*) FROM Answer WHERE question_id = Question.id) "
+      + "WHERE id > ? AND id <= ?";
+  public static final String RECONCILE_ANSWER_COUNTERS = "UPDATE Answer SET "
+      + "number_of_comments = (SELECT COUNT(*) FROM Comment WHERE answer_id = Answer.id) "
+      + "WHERE id > ? AND id <= ?";
+
+  // Query of the answers of a question, without their comments. Generates the following table:
+  //
+  // |-------------------Answer--------------------|-User---|-Answer-------------|
+  // +----+------+-----------+-----------+-------+----------+--------------------+
+  // | id | body | author_id | date_time | votes | username | number_of_comments |
+  // +----+------+-----------+-----------+-------+----------+--------------------+
+  public static final String FETCH_ANSWERS = "SELECT Answer.id, Answer.body, "
+      + "Answer.author_id, Answer.date_time, Answer.votes, User.username, "
+      + "Answer.number_of_comments FROM Answer "
+      + "LEFT JOIN User ON Answer.author_id=User.id "
+      + "WHERE Answer.question_id=? "
+      + "ORDER BY Answer.date_time ASC, Answer.id ASC";
+  public static final String FETCH_QUESTION_OF_ANSWER = "SELECT question_id FROM Answer "
+      + "WHERE id = ?";
+  public static final String INSERT_ANSWER = "INSERT INTO Answer(question_id, body, author_id, "
+      + "date_time) VALUES (?,?,?,NOW())";
+  public static final String FETCH_MAX_ANSWER_ID = "SELECT MAX(id) FROM Answer";
+
+  // Followers of the answers.
+  public static final String FETCH_ANSWER_FOLLOWERS = "SELECT follower_id "
+      + "FROM AnswerFollower WHERE answer_id = ?";
+  public static final String INSERT_ANSWER_FOLLOWER = "INSERT INTO "
+      + "AnswerFollower(answer_id, follower_id) VALUES (?,?)";
+
+  // Query of the newest comments of several answers at once, in the order they were posted.
+  // getCommentsOfAnswers() completes it with a placeholder for each answer, and the number of
+  // comments per answer is the last parameter. Generates the following table:
+  //
+  // |----------------------Comment----------------|-User---|-Comment-|
+  // +-----------+------+-----------+-----------+----------+----+
+  // | answer_id | body | author_id | date_time | username | id |
+  // +-----------+------+-----------+-----------+----------+----+
+  private static final String COMMENTS_OF_ANSWERS_SELECT = "SELECT answer_id, body, author_id, "
+      + "date_time, username, id FROM (SELECT Comment.answer_id, Comment.body, "
+      + "Comment.author_id, Comment.date_time, User.username, Comment.id, ROW_NUMBER() OVER "
+      + "(PARTITION BY Comment.answer_id ORDER BY Comment.date_time DESC, Comment.id DESC) "
+      + "AS position FROM Comment LEFT JOIN User ON Comment.author_id=User.id "
+      + "WHERE Comment.answer_id IN (";
+  private static final String COMMENTS_OF_ANSWERS_ORDER = ")) NewestComments "
+      + "WHERE position <= ? ORDER BY date_time ASC, id ASC";
+
+  // Queries of a page of the comments of an answer, newest first. Every page but the newest one
+  // starts at a cursor. They generate the same table as the query above.
+  private static final String COMMENT_PAGE_SELECT = "SELECT Comment.answer_id, Comment.body, "
+      + "Comment.author_id, Comment.date_time, User.username, Comment.id FROM Comment "
+      + "LEFT JOIN User ON Comment.author_id=User.id "
+      + "WHERE Comment.answer_id = ? ";
+  private static final String COMMENTS_NEWEST_FIRST_ORDER =
+      "ORDER BY Comment.date_time DESC, Comment.id DESC LIMIT ?";
+  public static final String FETCH_NEWEST_COMMENT_PAGE = COMMENT_PAGE_SELECT
+      + COMMENTS_NEWEST_FIRST_ORDER;
+  public static final String FETCH_OLDER_COMMENT_PAGE = COMMENT_PAGE_SELECT
+      + "AND (Comment.date_time < ? OR (Comment.date_time = ? AND Comment.id < ?)) "
+      + COMMENTS_NEWEST_FIRST_ORDER;
+
+  public static final String INSERT_COMMENT = "INSERT INTO Comment(answer_id, body, author_id, "
+      + "date_time) VALUES (?,?,?,NOW())";
+
+  // Users.
+  public static final String FETCH_USER_ID = "SELECT id FROM User WHERE email = ?";
+  public static final String FETCH_USER_ID_BY_ID = "SELECT id FROM User WHERE id = ?";
+  public static final String FETCH_USERNAME = "SELECT username FROM User WHERE id = ?";
+  public static final String FETCH_USER_EMAIL = "SELECT email FROM User WHERE id = ?";
+  public static final String INSERT_USER = "INSERT INTO User (first_name, last_name, username, "
+      + "email, major_id, is_mentor) VALUES (?, ?, ?, ?, ?, ?)";
+  public static final String FETCH_MAJORS = "SELECT * FROM Major";
+
+  // Mentors and their approval.
+  public static final String FETCH_SUBJECT_TAGS = "SELECT * FROM SubjectTag";
+  public static final String INSERT_MENTOR_EXPERIENCE = "INSERT INTO MentorExperience "
+      + "(mentor_id, tag_id) VALUES (?, ?)";
+  public static final String FETCH_MENTOR_EVIDENCE = "SELECT * FROM MentorEvidence "
+      + "WHERE mentor_id = ?";
+  public static final String FETCH_MENTOR_ID = "SELECT mentor_id FROM MentorEvidence "
+      + "WHERE mentor_id = ?";
+  public static final String FETCH_APPROVED_MENTOR_EVIDENCE = "SELECT * FROM MentorEvidence "
+      + "WHERE mentor_id = ? AND is_approved = TRUE";
+  public static final String FETCH_REJECTED_MENTOR_EVIDENCE = "SELECT * FROM MentorEvidence "
+      + "WHERE mentor_id = ? AND is_rejected = TRUE";
+  public static final String INSERT_MENTOR_EVIDENCE = "INSERT INTO MentorEvidence "
+      + "(mentor_id, approvals, is_approved, is_rejected, paragraph) "
+      + "VALUES (?, 0, FALSE, FALSE, '')";
+  public static final String UPDATE_MENTOR_EVIDENCE_PARAGRAPH = "UPDATE MentorEvidence "
+      + "SET paragraph = ?, is_rejected = FALSE WHERE mentor_id = ?";
+  public static final String UPDATE_MENTOR_EVIDENCE_FIRST_APPROVAL = "UPDATE MentorEvidence "
+      + "SET approvals = 1 WHERE mentor_id = ?";
+  public static final String UPDATE_MENTOR_EVIDENCE_APPROVED = "UPDATE MentorEvidence "
+      + "SET approvals = 2, is_approved = TRUE WHERE mentor_id = ?";
+  public static final String UPDATE_MENTOR_EVIDENCE_REJECTED = "UPDATE MentorEvidence "
+      + "SET is_rejected = TRUE WHERE mentor_id = ?";
+  public static final String FETCH_MENTOR_APPROVAL = "SELECT * FROM MentorApproval "
+      + "WHERE mentor_id = ? AND approver_id = ?";
+  public static final String FETCH_MENTOR_APPROVERS = "SELECT approver_id FROM MentorApproval "
+      + "WHERE mentor_id = ?";
+  public static final String INSERT_MENTOR_APPROVAL = "INSERT INTO MentorApproval "
+      + "(mentor_id, approver_id, is_reviewed) VALUES (?, ?, FALSE)";
+  public static final String UPDATE_MENTOR_APPROVAL_REVIEWED = "UPDATE MentorApproval "
+      + "SET is_reviewed = TRUE WHERE mentor_id = ? AND approver_id = ?";
+  public static final String DELETE_MENTOR_APPROVALS = "DELETE FROM MentorApproval "
+      + "WHERE mentor_id = ?";
+
+  // Notifications. The inbox is read a page at a time, newest first, through the index of
+  // UserNotification on (user_id, date_time, notification_id).
+  private static final String NOTIFICATION_PAGE_SELECT = "SELECT Notification.message, "
+      + "Notification.url, UserNotification.date_time, UserNotification.notification_id, "
+      + "UserNotification.is_read FROM UserNotification "
+      + "JOIN Notification ON Notification.id = UserNotification.notification_id "
+      + "WHERE UserNotification.user_id = ? ";
+  private static final String NOTIFICATIONS_NEWEST_FIRST_ORDER = "ORDER BY "
+      + "UserNotification.date_time DESC, UserNotification.notification_id DESC LIMIT ?";
+  public static final String FETCH_NEWEST_NOTIFICATION_PAGE = NOTIFICATION_PAGE_SELECT
+      + NOTIFICATIONS_NEWEST_FIRST_ORDER;
+  public static final String FETCH_OLDER_NOTIFICATION_PAGE = NOTIFICATION_PAGE_SELECT
+      + "AND (UserNotification.date_time < ? OR (UserNotification.date_time = ? "
+      + "AND UserNotification.notification_id < ?)) "
+      + NOTIFICATIONS_NEWEST_FIRST_ORDER;
+  // Notifications created or coalesced after the newest one a browser has, for its stream.
+  public static final String FETCH_NEWER_NOTIFICATIONS = NOTIFICATION_PAGE_SELECT
+      + "AND (UserNotification.date_time > ? OR (UserNotification.date_time = ? "
+      + "AND UserNotification.notification_id > ?)) "
+      + NOTIFICATIONS_NEWEST_FIRST_ORDER;
+  public static final String INSERT_NOTIFICATION = "INSERT INTO Notification(message, url, "
+      + "date_time, coalesce_key) VALUES(?,?,?,?)";
+  public static final String INSERT_USER_NOTIFICATION = "INSERT INTO "
+      + "UserNotification(user_id, notification_id, date_time) VALUES(?,?,?)";
+  // Keys of the events whose notification was created. A key that is already there inserts
+  // nothing, which tells a retried event apart.
+  public static final String INSERT_NOTIFICATION_TASK = "INSERT IGNORE INTO "
+      + "NotificationTask(task_name, date_time) VALUES(?,?)";
+  public static final String DELETE_OLD_NOTIFICATION_TASKS = "DELETE FROM NotificationTask "
+      + "WHERE date_time < ?";
+  // Coalescing of a new notification into a recent one about the same element. The recent one
+  // is locked while its count and message change, so concurrent events are all counted. The count
+  // is shared by its users, so it is only coalesced while every one of them still has it unread,
+  // and they get it back at the top of the inbox without changing their unread counters.
+  public static final String FETCH_COALESCIBLE_NOTIFICATION = "SELECT id, event_count "
+      + "FROM Notification WHERE coalesce_key = ? AND date_time >= ? "
+      + "ORDER BY date_time DESC, id DESC LIMIT 1 FOR UPDATE";
+  public static final String UPDATE_COALESCED_NOTIFICATION = "UPDATE Notification "
+      + "SET message = ?, event_count = ?, date_time = ? WHERE id = ?";
+  public static final String FETCH_COALESCIBLE_NOTIFICATION_USERS = "SELECT user_id, is_read "
+      + "FROM UserNotification WHERE notification_id = ? FOR UPDATE";
+  public static final String UPDATE_COALESCED_USER_NOTIFICATIONS = "UPDATE UserNotification "
+      + "SET date_time = ? WHERE notification_id = ?";
+  public static final String DELETE_USER_NOTIFICATIONS_WITH_URL = "DELETE FROM UserNotification "
+      + "WHERE notification_id IN (SELECT id FROM Notification WHERE url = ?)";
+  public static final String DELETE_NOTIFICATIONS_WITH_URL = "DELETE FROM Notification "
+      + "WHERE url = ?";
+
+  // Read state of the notifications and the unread counter of each user.
+  public static final String FETCH_UNREAD_NOTIFICATIONS = "SELECT unread_notifications "
+      + "FROM User WHERE id = ?";
+  public static final String UPDATE_NOTIFICATION_READ = "UPDATE UserNotification "
+      + "SET is_read = TRUE WHERE user_id = ? AND notification_id = ? AND is_read = FALSE";
+  public static final String UPDATE_ALL_NOTIFICATIONS_READ = "UPDATE UserNotification "
+      + "SET is_read = TRUE WHERE user_id = ? AND is_read = FALSE";
+  public static final String DECREMENT_UNREAD_NOTIFICATIONS = "UPDATE User "
+      + "SET unread_notifications = GREATEST(unread_notifications - ?, 0) WHERE id = ?";
+  // Every user of a notification gets a single row, so a user is never counted twice.
+  public static final String INCREMENT_UNREAD_NOTIFICATIONS = "UPDATE User "
+      + "JOIN UserNotification ON UserNotification.user_id = User.id "
+      + "SET User.unread_notifications = User.unread_notifications + 1 "
+      + "WHERE UserNotification.notification_id = ?";
+  // A user may have several unread notifications with the URL, which are counted first since a
+  // multiple-table UPDATE changes each row only once.
+  public static final String DECREMENT_UNREAD_NOTIFICATIONS_WITH_URL = "UPDATE User JOIN "
+      + "(SELECT UserNotification.user_id, COUNT(*) AS unread FROM UserNotification "
+      + "JOIN Notification ON Notification.id = UserNotification.notification_id "
+      + "WHERE Notification.url = ? AND UserNotification.is_read = FALSE "
+      + "GROUP BY UserNotification.user_id) AS Deleted ON Deleted.user_id = User.id "
+      + "SET User.unread_notifications = GREATEST(User.unread_notifications - Deleted.unread, 0)";
+  public static final String FETCH_MAX_USER_ID = "SELECT MAX(id) FROM User";
+  public static final String RECONCILE_UNREAD_NOTIFICATIONS = "UPDATE User SET "
+      + "unread_notifications = (SELECT COUNT(*) FROM UserNotification "
+      + "WHERE user_id = User.id AND is_read = FALSE) "
+      + "WHERE id > ? AND id <= ?";
+
+  // Retention of the notifications. Old notifications are moved to the archive tables in batches
+  // of the oldest IDs, each bounded by the largest ID of the batch so every statement only locks
+  // that range. The archive inserts ignore rows already archived, since a notification shared by
+  // several users may be archived once for each of them.
+  public static final String FETCH_RETENTION_BATCH_MAXID = "SELECT MAX(id) FROM "
+      + "(SELECT id FROM Notification WHERE date_time < ? ORDER BY id LIMIT ?) AS Batch";
+  public static final String ARCHIVE_OLD_NOTIFICATIONS = "INSERT IGNORE INTO NotificationArchive "
+      + "(id, message, url, date_time, event_count) "
+      + "SELECT id, message, url, date_time, event_count FROM Notification "
+      + "WHERE id <= ? AND date_time < ?";
+  public static final String ARCHIVE_OLD_USER_NOTIFICATIONS = "INSERT IGNORE INTO "
+      + "UserNotificationArchive (user_id, notification_id, date_time, is_read) "
+      + "SELECT UserNotification.user_id, UserNotification.notification_id, "
+      + "UserNotification.date_time, UserNotification.is_read FROM UserNotification "
+      + "JOIN Notification ON Notification.id = UserNotification.notification_id "
+      + "WHERE Notification.id <= ? AND Notification.date_time < ?";
+  public static final String DECREMENT_UNREAD_OLD_NOTIFICATIONS = "UPDATE User JOIN "
+      + "(SELECT UserNotification.user_id, COUNT(*) AS unread FROM UserNotification "
+      + "JOIN Notification ON Notification.id = UserNotification.notification_id "
+      + "WHERE Notification.id <= ? AND Notification.date_time < ? "
+      + "AND UserNotification.is_read = FALSE "
+      + "GROUP BY UserNotification.user_id) AS Archived ON Archived.user_id = User.id "
+      + "SET User.unread_notifications = GREATEST(User.unread_notifications - Archived.unread, 0)";
+  public static final String DELETE_OLD_USER_NOTIFICATIONS = "DELETE UserNotification "
+      + "FROM UserNotification "
+      + "JOIN Notification ON Notification.id = UserNotification.notification_id "
+      + "WHERE Notification.id <= ? AND Notification.date_time < ?";
+  public static final String DELETE_OLD_NOTIFICATIONS = "DELETE FROM Notification "
+      + "WHERE id <= ? AND date_time < ?";
+  // The notifications of each user beyond the cap are moved in batches of their oldest ones,
+  // each bounded by the position of its newest one in the index of the inbox.
+  public static final String FETCH_USERS_OVER_NOTIFICATION_CAP = "SELECT user_id, COUNT(*) "
+      + "FROM UserNotification GROUP BY user_id HAVING COUNT(*) > ?";
+  public static final String FETCH_CAP_BATCH_BOUND = "SELECT date_time, notification_id "
+      + "FROM UserNotification WHERE user_id = ? "
+      + "ORDER BY date_time, notification_id LIMIT 1 OFFSET ?";
+  public static final String ARCHIVE_CAPPED_NOTIFICATIONS = "INSERT IGNORE INTO "
+      + "NotificationArchive (id, message, url, date_time, event_count) "
+      + "SELECT Notification.id, Notification.message, Notification.url, Notification.date_time, "
+      + "Notification.event_count "
+      + "FROM Notification JOIN UserNotification ON UserNotification.notification_id = "
+      + "Notification.id WHERE UserNotification.user_id = ? "
+      + "AND (UserNotification.date_time, UserNotification.notification_id) <= (?, ?)";
+  public static final String ARCHIVE_CAPPED_USER_NOTIFICATIONS = "INSERT IGNORE INTO "
+      + "UserNotificationArchive (user_id, notification_id, date_time, is_read) "
+      + "SELECT user_id, notification_id, date_time, is_read FROM UserNotification "
+      + "WHERE user_id = ? AND (date_time, notification_id) <= (?, ?)";
+  public static final String DECREMENT_UNREAD_CAPPED_NOTIFICATIONS = "UPDATE User SET "
+      + "unread_notifications = GREATEST(unread_notifications - (SELECT COUNT(*) "
+      + "FROM UserNotification WHERE user_id = ? AND (date_time, notification_id) <= (?, ?) "
+      + "AND is_read = FALSE), 0) WHERE id = ?";
+  public static final String DELETE_CAPPED_USER_NOTIFICATIONS = "DELETE FROM UserNotification "
+      + "WHERE user_id = ? AND (date_time, notification_id) <= (?, ?)";
+  // Only the notifications whose users were moved by the cap can be left without users, so their
+  // IDs are read before the users are moved, and each of them is archived if no user is left.
+  public static final String FETCH_CAPPED_NOTIFICATION_IDS = "SELECT notification_id "
+      + "FROM UserNotification WHERE user_id = ? AND (date_time, notification_id) <= (?, ?)";
+  public static final String ARCHIVE_ORPHAN_NOTIFICATION = "INSERT IGNORE INTO "
+      + "NotificationArchive (id, message, url, date_time, event_count) "
+      + "SELECT Notification.id, Notification.message, Notification.url, Notification.date_time, "
+      + "Notification.event_count "
+      + "FROM Notification LEFT JOIN UserNotification ON UserNotification.notification_id = "
+      + "Notification.id WHERE Notification.id = ? AND UserNotification.notification_id IS NULL";
+  public static final String DELETE_ORPHAN_NOTIFICATION = "DELETE Notification "
+      + "FROM Notification LEFT JOIN UserNotification ON UserNotification.notification_id = "
+      + "Notification.id WHERE Notification.id = ? AND UserNotification.notification_id IS NULL";
+
+  // Versions of the content served with ETags, shared by every instance. A missing row is the
+  // version 0 of its content.
+  public static final String FETCH_CONTENT_VERSION = "SELECT version FROM ContentVersion "
+      + "WHERE content_key = ?";
+  public static final String BUMP_CONTENT_VERSION = "INSERT INTO ContentVersion "
+      + "(content_key, version) VALUES (?, 1) ON DUPLICATE KEY UPDATE version = version + 1";
+
+  // Sizes the IN list of the comments query is rounded up to. Each size is a different statement
+  // text, so a few fixed sizes keep the statement cache small whatever the number of answers.
+  private static final int[] COMMENTS_OF_ANSWERS_SIZES = {4, 16, 64};
+
+  /**
+   * Returns the query that fetches the newest comments of a number of answers. The number of
+   * placeholders for the IDs of the answers is rounded up to one of a few sizes, so the callers
+   * fill the spare ones by repeating an ID.
+   */
+  public static String getCommentsOfAnswers(int numberOfAnswers) {
+    int placeholders = getCommentsOfAnswersPlaceholders(numberOfAnswers);
+    StringBuilder query = new StringBuilder(COMMENTS_OF_ANSWERS_SELECT);
+    for (int i = 0; i < placeholders; i++) {
+      query.append(i == 0 ? "?" : ",?");
+    }
+    return query.append(COMMENTS_OF_ANSWERS_ORDER).toString();
+  }
+
+  /**
+   * Returns the number of placeholders for answer IDs in getCommentsOfAnswers().
+   */
+  public static int getCommentsOfAnswersPlaceholders(int numberOfAnswers) {
+    for (int size : COMMENTS_OF_ANSWERS_SIZES) {
+      if (numberOfAnswers <= size) {
+        return size;
+      }
+    }
+    return numberOfAnswers;
+  }
+
+  /**
+   * Returns the variant of the forum page query for a page of the whole forum or of a search,
+   * and for the first page or the page after or before a cursor.
+   */
+  public static String getForumPage(boolean isSearch, boolean hasCursor,
+      boolean isPreviousPage) {
+    if (!hasCursor) {
+      return isSearch ? FETCH_SEARCH_FIRST_PAGE : FETCH_FORUM_FIRST_PAGE;
+    }
+    if (isPreviousPage) {
+      return isSearch ? FETCH_SEARCH_PREVIOUS_PAGE : FETCH_FORUM_PREVIOUS_PAGE;
+    }
+    return isSearch ? FETCH_SEARCH_NEXT_PAGE : FETCH_FORUM_NEXT_PAGE;
+  }
+}
@@ -14,19 +14,43 @@
 
 package com.google.sps.classes;
 
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.QueueStatistics;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskOptions;
 import com.google.appengine.api.users.UserService;
 import com.google.appengine.api.users.UserServiceFactory;
 import com.google.gson.Gson;
-import com.google.sps.classes.Keys;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.classes.CacheConstants;
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.FollowedQuestions;
 import com.google.sps.classes.ForumPage;
+import com.google.sps.classes.LruCache;
+import com.google.sps.classes.Notification;
+import com.google.sps.classes.NotificationPage;
+import com.google.sps.classes.PoolSizeController;
+import com.google.sps.classes.RecentNotifications;
+import com.google.sps.classes.ReplicaRouter;
+import com.google.sps.classes.RequestConnection;
 import com.google.sps.classes.SqlConstants;
 import com.google.sps.classes.Utility;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import javax.sql.DataSource;
 
 // TODO(aabundis): Add JUnit tests for utility functions.
@@ -35,24 +59,131 @@ import javax.sql.DataSource;
  * Utility methods used across classes. Just import class to access all methods.
  */
 public final class Utility {
-  // Define if running locally or deploying the current branch.
-  // Define IS_LOCALLY_DEPLOYED constant as true for a local deployment or deploy for a cloud deployment.
-  public static final boolean IS_LOCALLY_DEPLOYED = false;
+  // Value of the pool.profile setting for a local deployment. Any other value, or none, deploys
+  // to the cloud. Both use a connection pool; a local deployment connects it to
+  // Keys.SQL_LOCAL_URL.
+  public static final String LOCAL_PROFILE = "local";
+
+  // Attribute of the request that holds its RequestConnection.
+  public static final String REQUEST_CONNECTION_ATTRIBUTE = "request-connection";
+  // Attribute of the context that holds the ConnectionLeakTracker.
+  public static final String LEAK_TRACKER_ATTRIBUTE = "leak-tracker";
+  // Attribute of the context that holds the PoolMetrics of the pool.
+  public static final String POOL_METRICS_ATTRIBUTE = "pool-metrics";
+  // Attribute of the context that holds the PoolSizeController of the pool.
+  public static final String POOL_SIZE_CONTROLLER_ATTRIBUTE = "pool-size-controller";
+  // Attributes of the context that hold the pool of the read replica, its PoolMetrics and its
+  // PoolSizeController. They are only set when a replica is configured.
+  public static final String READ_POOL_ATTRIBUTE = "my-read-pool";
+  public static final String READ_POOL_METRICS_ATTRIBUTE = "read-pool-metrics";
+  public static final String READ_POOL_SIZE_CONTROLLER_ATTRIBUTE = "read-pool-size-controller";
+  // Attribute of the context that holds the ReplicaRouter.
+  public static final String REPLICA_ROUTER_ATTRIBUTE = "replica-router";
 
   /**
    * Returns a connection that it's obtained depending on the defined way of deployment.
+   * During a request that went through RequestConnectionFilter, every call returns the same
+   * connection, which is released when the request ends. Callers still close it when they are
+   * done, which rolls back what they didn't commit.
    */
   public static Connection getConnection(HttpServletRequest request) {
+    Object requestConnection = request.getAttribute(REQUEST_CONNECTION_ATTRIBUTE);
+    if (requestConnection instanceof RequestConnection) {
+      return ((RequestConnection) requestConnection).get();
+    }
+    return getConnection(request.getServletContext());
+  }
+
+  /**
+   * Makes the calls to getConnection() of a request share a single connection. The caller must
+   * release it once the request ends. Requests that only read get it from the read replica.
+   */
+  public static RequestConnection startRequestConnection(ServletRequest request) {
+    RequestConnection requestConnection = new RequestConnection(request.getServletContext(),
+        isReadOnlyRequest(request));
+    request.setAttribute(REQUEST_CONNECTION_ATTRIBUTE, requestConnection);
+    return requestConnection;
+  }
+
+  /**
+   * Resizes the pools whose interval has passed since they were last resized.
+   */
+  public static void adjustPoolSizes(ServletContext context) {
+    for (String attribute :
+        new String[] {POOL_SIZE_CONTROLLER_ATTRIBUTE, READ_POOL_SIZE_CONTROLLER_ATTRIBUTE}) {
+      Object poolSizeController = context.getAttribute(attribute);
+      if (poolSizeController instanceof PoolSizeController) {
+        ((PoolSizeController) poolSizeController).adjustIfDue();
+      }
+    }
+  }
+
+  /**
+   * Returns the ReplicaRouter of the context, or null if there is no read replica.
+   */
+  public static ReplicaRouter getReplicaRouter(ServletContext context) {
+    Object replicaRouter = context.getAttribute(REPLICA_ROUTER_ATTRIBUTE);
+    return replicaRouter instanceof ReplicaRouter ? (ReplicaRouter) replicaRouter : null;
+  }
+
+  /**
+   * Returns true if running locally, as set by the pool.profile setting, e.g. with
+   * POOL_PROFILE=local when starting the development server.
+   */
+  public static boolean isLocallyDeployed() {
+    return LOCAL_PROFILE.equals(getStringSetting(HikariConstants.PROFILE_PROPERTY));
+  }
+
+  /**
+   * Returns true if what the request reads can be put in the caches shared by the instance.
+   * Reads from the replica right after a write of this instance may be older than the write.
+   */
+  public static boolean canCacheReads(HttpServletRequest request) {
+    Object requestConnection = request.getAttribute(REQUEST_CONNECTION_ATTRIBUTE);
+    if (!(requestConnection instanceof RequestConnection)
+        || !((RequestConnection) requestConnection).isReadOnly()) {
+      return true;
+    }
+    ReplicaRouter replicaRouter = getReplicaRouter(request.getServletContext());
+    return replicaRouter == null || replicaRouter.canCacheReplicaReads();
+  }
+
+  /**
+   * Returns true if the request can be served from the read replica.
+   */
+  private static boolean isReadOnlyRequest(ServletRequest request) {
+    ReplicaRouter replicaRouter = getReplicaRouter(request.getServletContext());
+    return replicaRouter != null && request instanceof HttpServletRequest
+        && replicaRouter.isReadOnly((HttpServletRequest) request);
+  }
+
+  /**
+   * Returns a connection for work that is not tied to a request, such as background jobs.
+   * Connections are tracked until they are closed, so the ones never closed show up as leaks.
+   */
+  public static Connection getConnection(ServletContext context) {
+    return getConnection(context, /*readOnly=*/false);
+  }
+
+  /**
+   * Returns a connection to the read replica if readOnly is true and there is one, or to the
+   * primary database otherwise.
+   */
+  public static Connection getConnection(ServletContext context, boolean readOnly) {
     try {
-      if (IS_LOCALLY_DEPLOYED) {
-        // Creates connection to access the local MySQL database.
-        return DriverManager.getConnection(Keys.SQL_LOCAL_URL, Keys.SQL_LOCAL_USER, 
-            Keys.SQL_LOCAL_PASSWORD);
-      } else {
-        // Obtains pool with connections to access Cloud MySQL from the context listener file.
-        DataSource pool = (DataSource) request.getServletContext().getAttribute("my-pool");
-        return pool.getConnection();
+      // Obtains pool with connections to access MySQL from the context listener file. Local
+      // deployments get their connections from a pool as well.
+      DataSource pool = (DataSource) context.getAttribute("my-pool");
+      DataSource readPool = (DataSource) context.getAttribute(READ_POOL_ATTRIBUTE);
+      if (readOnly && readPool != null) {
+        pool = readPool;
       }
+      Connection connection = pool.getConnection();
+      Object leakTracker = context.getAttribute(LEAK_TRACKER_ATTRIBUTE);
+      if (leakTracker instanceof ConnectionLeakTracker) {
+        return ((ConnectionLeakTracker) leakTracker).track(connection);
+      }
+      return connection;
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(Utility.class.getName());
@@ -63,52 +194,66 @@ public final class Utility {
 
   // Variables for user login status.
   public static final int USER_LOGGED_OUT_ID = -1;
+
+  // Attributes that keep the ID of the logged in user, on the request once it is resolved and on
+  // the session along with the email it belongs to.
+  public static final String USER_ID_ATTRIBUTE = "user-id";
+  public static final String USER_EMAIL_ATTRIBUTE = "user-email";
+
+  // Separates the date and ID of the question a forum page cursor points to.
+  public static final String CURSOR_SEPARATOR = "_";
   
-  // Query to retrieve data from all questions. Can be appended a WHERE condition to select
-  // specific questions. Generates the following table:
-  //
-  // |-----------------Question-----------------|----FollowerCount--------|-----GetUsername-----|------AnswerCount------|----UserFollows---|
-  // +----+-------+------+----------+-----------+-------------+-----------+----------+----------+-------------+---------+------------------+
-  // | id | title | body | asker_id | date_time | question_id | followers | username | asker_id | question_id | answers | follows_question |
-  // +----+-------+------+----------+-----------+-------------+-----------+----------+----------+-------------+---------+------------------+
-  public static final String fetchQuestionsQuery = "SELECT * FROM Question "
-      + "LEFT JOIN (SELECT question_id, COUNT(follower_id) followers FROM QuestionFollower "
-      + "GROUP BY question_id) FollowerCount ON Question.id=FollowerCount.question_id "
-      + "LEFT JOIN (SELECT username, id AS asker_id FROM User) GetUsername "
-      + "ON Question.asker_id=GetUsername.asker_id "
-      + "LEFT JOIN (SELECT question_id, COUNT(id) answers FROM Answer "
-      + "GROUP BY question_id) AnswerCount ON Question.id=AnswerCount.question_id "
-      + "LEFT JOIN (SELECT question_id AS follows_question FROM QuestionFollower WHERE follower_id=?) "
-      + "UserFollows ON Question.id=UserFollows.follows_question "
-      + "ORDER BY Question.date_time DESC;";
-
-  // Query to get answers and comments from a question. Generates the following table:
-  //
-  // |-------------------------Answer--------------------------|AnswerUsername-|---------------------Comment-------------------|CommentUsername|
-  // +----+-------------+------+-----------+-----------+-------+----+----------+----+-----------+------+-----------+-----------+----+----------+
-  // | id | question_id | body | author_id | date_time | votes | id | username | id | answer_id | body | author_id | date_time | id | username |
-  // +----+-------------+------+-----------+-----------+-------+----+----------+----+-----------+------+-----------+-----------+----+----------+
-  public static final String fetchAnswersAndCommentsQuery = "SELECT * FROM Answer LEFT JOIN " 
-      + "(SELECT id, username FROM User) AnswerUsername ON Answer.author_id=AnswerUsername.id "
-      + "LEFT JOIN Comment ON Answer.id=Comment.answer_id "
-      + "LEFT JOIN (SELECT id, username FROM User) CommentUsername "
-      + "ON Comment.author_id=CommentUsername.id "
-      + "WHERE Answer.question_id=? "
-      + "ORDER BY Answer.date_time ASC;";
+  // Gson instances are thread-safe and cache the adapter of every class they serialize, so a
+  // single one is shared instead of creating one per response. The classes sent most often use
+  // the hand-written adapters of JsonAdapters.
+  private static final Gson gson = JsonAdapters.createGson();
 
   /**
    * Converts objects to JSON using GSON class.
    */
   public static String convertToJsonUsingGson(Object object) {
-    Gson gson = new Gson();
     return gson.toJson(object);
   }
 
+  /**
+   * Writes an object as JSON directly to the response, without building the whole JSON string
+   * in memory first. The content type must be set before calling it.
+   */
+  public static void writeJsonUsingGson(Object object, HttpServletResponse response)
+      throws IOException {
+    JsonWriter jsonWriter = gson.newJsonWriter(response.getWriter());
+    try {
+      gson.toJson(object, object.getClass(), jsonWriter);
+    } catch (JsonIOException exception) {
+      // Gson wraps the errors of the underlying writer.
+      throw new IOException(exception);
+    }
+    jsonWriter.flush();
+  }
+
   /**
    * Returns the ID of a logged in user.
    * If the user is not logged in or if no user ID is found, returns -1.
+   * The ID is resolved once per request, by RequestConnectionFilter with the connection of the
+   * request, and kept on the request, so later calls and included servlets don't query it again.
+   * It is looked up in the session, then in the cache of IDs by email and only then in the
+   * database.
    */
   public static int getUserId(HttpServletRequest request) {
+    Object resolvedUserId = request.getAttribute(USER_ID_ATTRIBUTE);
+    if (resolvedUserId instanceof Integer) {
+      return (Integer) resolvedUserId;
+    }
+
+    int userId = resolveUserId(request);
+    request.setAttribute(USER_ID_ATTRIBUTE, userId);
+    return userId;
+  }
+
+  /**
+   * Looks up the ID of the logged in user, without checking the request first.
+   */
+  private static int resolveUserId(HttpServletRequest request) {
     int userId = USER_LOGGED_OUT_ID;
     UserService userService = UserServiceFactory.getUserService();
 
@@ -120,31 +265,86 @@ public final class Utility {
     // Get logged in user email.
     String email = userService.getCurrentUser().getEmail();
 
-    // Set up query to check if user is already registered.
-    String query = "SELECT id FROM User WHERE email = '" + email + "'";
-
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = getConnection(request);
+    // The session keeps the ID of registered users from their login or signup on, and is shared
+    // by every instance.
+    HttpSession session = request.getSession(/*create=*/false);
+    if (session != null && email.equals(session.getAttribute(USER_EMAIL_ATTRIBUTE))) {
+      Object sessionUserId = session.getAttribute(USER_ID_ATTRIBUTE);
+      if (sessionUserId instanceof Integer) {
+        return (Integer) sessionUserId;
+      }
+    }
 
-      // Create the MySQL prepared statement, execute it, and store the result.
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
-      ResultSet queryResult = preparedStatement.executeQuery();
+    // Only registered users are cached. A user that hasn't signed up yet could sign up on a
+    // different instance, which this one would only learn when the entry expires.
+    LruCache<String, Integer> userIdCache = request.getServletContext() != null
+        ? getUserIdCache(request.getServletContext()) : null;
+    if (userIdCache != null) {
+      Integer cachedUserId = userIdCache.get(email);
+      if (cachedUserId != null) {
+        storeUserIdInSession(request, email, cachedUserId, /*create=*/false);
+        return cachedUserId;
+      }
+    }
+    long cacheGeneration = userIdCache != null ? userIdCache.getGeneration() : 0;
 
-      // If email is found, set userId to the ID retrieved from the database.
-      if (queryResult.next()) {
-        userId = queryResult.getInt(SqlConstants.USER_FETCH_ID);
-      } 
-      connection.close();
+    // Check if user is already registered.
+    try (Connection connection = getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_USER_ID)) {
+      preparedStatement.setString(SqlConstants.USER_SET_EMAIL, email);
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        // If email is found, set userId to the ID retrieved from the database.
+        if (queryResult.next()) {
+          userId = queryResult.getInt(SqlConstants.USER_FETCH_ID);
+        }
+      }
     } catch (SQLException exception) {
-      // If the connection or the query don't go through, get the log of the error.
+      // If the connection or the query don't go through, get the log of the error and don't
+      // cache the result.
       Logger logger = Logger.getLogger(Utility.class.getName());
       logger.log(Level.SEVERE, exception.getMessage(), exception);
+      return userId;
     }
 
+    if (userIdCache != null && userId != USER_LOGGED_OUT_ID && canCacheReads(request)) {
+      userIdCache.put(email, userId, cacheGeneration);
+    }
+    storeUserIdInSession(request, email, userId, /*create=*/false);
     return userId;
   }
 
+  /**
+   * Keeps the ID of a registered user in their session, so the next requests don't look it up on
+   * any instance. Called when the user logs in or signs up, which creates the session.
+   */
+  public static void startUserSession(HttpServletRequest request, String email, int userId) {
+    storeUserIdInSession(request, email, userId, /*create=*/true);
+  }
+
+  /**
+   * Keeps the ID of a registered user in their session. The session is only created if asked.
+   */
+  private static void storeUserIdInSession(HttpServletRequest request, String email, int userId,
+      boolean create) {
+    HttpSession session = request.getSession(create);
+    if (session == null || userId == USER_LOGGED_OUT_ID) {
+      return;
+    }
+    session.setAttribute(USER_EMAIL_ATTRIBUTE, email);
+    session.setAttribute(USER_ID_ATTRIBUTE, userId);
+  }
+
+  /**
+   * Returns the cache of user IDs by email shared by every request to this instance. Users that
+   * are logged in but not registered aren't cached.
+   */
+  @SuppressWarnings("unchecked")
+  public static LruCache<String, Integer> getUserIdCache(ServletContext context) {
+    return (LruCache<String, Integer>) context.getAttribute(
+        CacheConstants.USER_ID_CACHE_ATTRIBUTE);
+  }
+
   /**
    * Returns username of a user given their ID.
    * Returns empty string if user was not found.
@@ -152,21 +352,17 @@ public final class Utility {
   public static String getUsername(int userId, HttpServletRequest request) {
     String username = "";
 
-    // Set up query to get username.
-    String query = "SELECT username FROM User WHERE id = " + userId;
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = getConnection(request);
-
-      // Create the MySQL prepared statement, execute it, and store the result.
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
-      ResultSet queryResult = preparedStatement.executeQuery();
-
-      // If user is found, set username to the username retrieved from the database.
-      if (queryResult.next()) {
-        username = queryResult.getString(SqlConstants.USER_FETCH_USERNAME);
-      } 
-      connection.close();
+    // The connection, statement and result are closed even if the query fails.
+    try (Connection connection = getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_USERNAME)) {
+      preparedStatement.setInt(SqlConstants.USER_SET_ID, userId);
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        // If user is found, set username to the username retrieved from the database.
+        if (queryResult.next()) {
+          username = queryResult.getString(SqlConstants.USER_FETCH_USERNAME);
+        }
+      }
     } catch (SQLException exception) {
       // If the connection or the query don't go through, get the log of the error.
       Logger logger = Logger.getLogger(Utility.class.getName());
@@ -178,20 +374,15 @@ public final class Utility {
   
   /**
    * Receives the attributes necessary to insert a new user into the database and inserts it to the
-   * User table.
+   * User table. The new user starts a session with their ID.
    */
   public static void addNewUser(String firstName, String lastName, String username, String email,
       int major, boolean isMentor, HttpServletRequest request) {
-    // Set up query to insert new user into database.
-    String query = "INSERT INTO User (first_name, last_name, username, email, major_id, is_mentor)"
-        + " VALUES (?, ?, ?, ?, ?, ?)";
-
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = getConnection(request);
-
-      // Create the MySQL INSERT prepared statement.
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
+    int userId = USER_LOGGED_OUT_ID;
+    // Insert new user into database.
+    try (Connection connection = getConnection(request);
+        PreparedStatement preparedStatement = connection.prepareStatement(
+            SqlStatements.INSERT_USER, Statement.RETURN_GENERATED_KEYS)) {
       preparedStatement.setString(SqlConstants.USER_INSERT_FIRSTNAME, firstName);
       preparedStatement.setString(SqlConstants.USER_INSERT_LASTNAME, lastName);
       preparedStatement.setString(SqlConstants.USER_INSERT_USERNAME, username);
@@ -199,14 +390,20 @@ public final class Utility {
       preparedStatement.setInt(SqlConstants.USER_INSERT_MAJOR, major);
       preparedStatement.setBoolean(SqlConstants.USER_INSERT_ISMENTOR, isMentor);
 
-      // Execute the prepared statement and close connection.
-      preparedStatement.execute();
-      connection.close();
+      // Execute the prepared statement. The connection is closed by the try.
+      userId = executeInsertForId(preparedStatement);
     } catch (SQLException exception) {
       // If the connection or the query don't go through, get the log of the error.
       Logger logger = Logger.getLogger(Utility.class.getName());
       logger.log(Level.SEVERE, exception.getMessage(), exception);
     }
+
+    // The request resolved the user as not registered, so the ID is resolved again on the next
+    // call, from the session when the user was inserted.
+    request.removeAttribute(USER_ID_ATTRIBUTE);
+    if (userId != USER_LOGGED_OUT_ID) {
+      startUserSession(request, email, userId);
+    }
   }
 
   /**
@@ -214,22 +411,33 @@ public final class Utility {
    * and password to give the user the ability to choose between local and cloud SQL variables.
    */
   public static String getUserEmailsAsString(List<Integer> userIds, HttpServletRequest request) {
+    try (Connection connection = getConnection(request)) {
+      return getUserEmailsAsString(userIds, connection);
+    } catch (SQLException ex) {
+      Logger lgr = Logger.getLogger(Utility.class.getName());
+      lgr.log(Level.SEVERE, ex.getMessage(), ex);
+    }
+    return "";
+  }
+
+  /**
+   * Queries the mails of users to notify with the given connection and returns them in a single
+   * string, separated by commas.
+   */
+  public static String getUserEmailsAsString(List<Integer> userIds, Connection connection)
+      throws SQLException {
     String userEmails = new String();
-    for (int userId : userIds) {
-      // Query the email of the current user.
-      String query = "SELECT email FROM User WHERE id = " + userId;
-      try (Connection connection = getConnection(request);
-        PreparedStatement pst = connection.prepareStatement(query);
-        ResultSet rs = pst.executeQuery()) {
-        if (rs.next()) {
-          // Concatenate the user's email and a comma for the InternetAddress parser to separate.
-          userEmails = userEmails.concat(rs.getString(1));
-          userEmails = userEmails.concat(",");
+    // The same statement queries the email of every user.
+    try (PreparedStatement pst = connection.prepareStatement(SqlStatements.FETCH_USER_EMAIL)) {
+      for (int userId : userIds) {
+        pst.setInt(SqlConstants.USER_SET_ID, userId);
+        try (ResultSet rs = pst.executeQuery()) {
+          if (rs.next()) {
+            // Concatenate the user's email and a comma for the InternetAddress parser to separate.
+            userEmails = userEmails.concat(rs.getString(1));
+            userEmails = userEmails.concat(",");
+          }
         }
-        connection.close();
-      } catch (SQLException ex) {
-        Logger lgr = Logger.getLogger(Utility.class.getName());
-        lgr.log(Level.SEVERE, ex.getMessage(), ex);
       }
     }
     // Erase the last comma.
@@ -244,43 +452,49 @@ public final class Utility {
    */
   public static List<Integer> getUsersToNotify(String typeOfNotification, int modifiedElementId,
                                                HttpServletRequest request) {
+    try (Connection connection = getConnection(request)) {
+      return getUsersToNotify(typeOfNotification, modifiedElementId, connection);
+    } catch (SQLException ex) {
+      Logger lgr = Logger.getLogger(Utility.class.getName());
+      lgr.log(Level.SEVERE, ex.getMessage(), ex);
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Queries IDs of the author of the modified question/answer and its followers with the given
+   * connection.
+   */
+  public static List<Integer> getUsersToNotify(String typeOfNotification, int modifiedElementId,
+      Connection connection) throws SQLException {
     List<Integer> usersToNotify = new ArrayList<>();
     String query = "";
     if (typeOfNotification.equals("question")) {
       // If the notification is for an anwer to a question.
-      query =  "SELECT follower_id FROM QuestionFollower WHERE question_id = " +
-                      modifiedElementId;
+      query = SqlStatements.FETCH_QUESTION_FOLLOWERS;
     } else if (typeOfNotification.equals("answer")) {
       // If the notification is for a new comment in an answer.
-      query =  "SELECT follower_id FROM AnswerFollower WHERE answer_id = " +
-                      modifiedElementId;
+      query = SqlStatements.FETCH_ANSWER_FOLLOWERS;
     } else if (typeOfNotification.equals("requestApproval")) {
       // If the notification is for a new approval request.
-      query =  "SELECT approver_id FROM MentorApproval WHERE mentor_id = " +
-                      modifiedElementId;
+      query = SqlStatements.FETCH_MENTOR_APPROVERS;
     } else if (typeOfNotification.equals("approved")) {
       // If the notification is for an approved mentor.
-      query =  "SELECT mentor_id FROM MentorEvidence WHERE mentor_id = " +
-                      modifiedElementId;
+      query = SqlStatements.FETCH_MENTOR_ID;
     } else if (typeOfNotification.equals("rejected")) {
       // If the notification is for a rejected mentor.
-      query =  "SELECT mentor_id FROM MentorEvidence WHERE mentor_id = " +
-                      modifiedElementId;
+      query = SqlStatements.FETCH_MENTOR_ID;
     }
     if (query.equals("")) { return usersToNotify; }
-    // Query the infor1mation from the corresponding table defined in the query.
-    try (Connection connection = getConnection(request);
-        PreparedStatement pst = connection.prepareStatement(query);
-        ResultSet rs = pst.executeQuery()) {
-      while(rs.next()){
-        // Add the current ID (first column of ResultSet) to the list.
-        usersToNotify.add(rs.getInt(1));
+    // Query the information from the corresponding table defined in the query.
+    try (PreparedStatement pst = connection.prepareStatement(query)) {
+      pst.setInt(SqlConstants.NOTIFY_SET_ELEMENTID, modifiedElementId);
+      try (ResultSet rs = pst.executeQuery()) {
+        while (rs.next()) {
+          // Add the current ID (first column of ResultSet) to the list.
+          usersToNotify.add(rs.getInt(1));
+        }
       }
-      // Close the connection once the query was performed have been performed.
-      connection.close();
-    } catch (SQLException ex) {
-      Logger lgr = Logger.getLogger(Utility.class.getName());
-      lgr.log(Level.SEVERE, ex.getMessage(), ex);
     }
     return usersToNotify;
   }
@@ -301,10 +515,6 @@ public final class Utility {
           SqlConstants.QUESTION_FETCH_NUMBEROFFOLLOWERS));
       question.setNumberOfAnswers(queryResult.getInt(
           SqlConstants.QUESTION_FETCH_NUMBEROFANSWERS));
-      question.setUserFollowsQuestion((queryResult.getInt(
-          // follows_question returns the ID of the question if the user follows it, or 0
-          // if the user doesn't follow it.
-          SqlConstants.QUESTION_FETCH_USERFOLLOWSQUESTION) != 0 ? true : false));
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(Utility.class.getName());
@@ -324,9 +534,8 @@ public final class Utility {
       answer.setBody(queryResult.getString(SqlConstants.ANSWER_FETCH_BODY));
       answer.setAuthorName(queryResult.getString(SqlConstants.ANSWER_FETCH_AUTHORNAME));
       answer.setDateTime(queryResult.getTimestamp(SqlConstants.ANSWER_FETCH_DATETIME));
-
-      // Adds the comment from the same row.
-      answer.addComment(buildComment(queryResult));
+      answer.setNumberOfComments(
+          queryResult.getInt(SqlConstants.ANSWER_FETCH_NUMBEROFCOMMENTS));
 
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
@@ -343,6 +552,7 @@ public final class Utility {
   public static Comment buildComment(ResultSet queryResult) {
     Comment comment = new Comment();
     try {
+      comment.setId(queryResult.getInt(SqlConstants.COMMENT_FETCH_ID));
       comment.setBody(queryResult.getString(SqlConstants.COMMENT_FETCH_BODY));
       comment.setAuthorName(queryResult.getString(SqlConstants.COMMENT_FETCH_AUTHORNAME));
       comment.setDateTime(queryResult.getTimestamp(SqlConstants.COMMENT_FETCH_DATETIME));
@@ -360,31 +570,25 @@ public final class Utility {
    * Returns the mentor review status, which could be approved, rejected or not reviewed.
    */
   public static String getReviewStatus(int mentorId, HttpServletRequest request) {
-    // Create the MySQL queries for approved and rejected mentor.
-    String approvedQuery = "SELECT * FROM MentorEvidence "
-        + "WHERE mentor_id = " + Integer.toString(mentorId) + " "
-        + "AND is_approved = TRUE";
-    String rejectedQuery = "SELECT * FROM MentorEvidence "
-        + "WHERE mentor_id = " + Integer.toString(mentorId) + " "
-        + "AND is_rejected = TRUE";
-
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = getConnection(request);
-      
-      // Create and execute the MySQL SELECT prepared statements.
-      PreparedStatement approvedPreparedStatement = connection.prepareStatement(approvedQuery);
-      ResultSet approvedQueryResult = approvedPreparedStatement.executeQuery();
-      PreparedStatement rejectedPreparedStatement = connection.prepareStatement(rejectedQuery);
-      ResultSet rejectedQueryResult = rejectedPreparedStatement.executeQuery();
-      
-      if (approvedQueryResult.next()) {
-        // If query exists for approved prepared statement, return approved status.
-        return "approved";
+    // The connection, statements and results are closed on every return, even if a query fails.
+    try (Connection connection = getConnection(request);
+        PreparedStatement approvedPreparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_APPROVED_MENTOR_EVIDENCE);
+        PreparedStatement rejectedPreparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_REJECTED_MENTOR_EVIDENCE)) {
+      approvedPreparedStatement.setInt(SqlConstants.MENTOR_EVIDENCE_SET_MENTORID, mentorId);
+      try (ResultSet approvedQueryResult = approvedPreparedStatement.executeQuery()) {
+        if (approvedQueryResult.next()) {
+          // If query exists for approved prepared statement, return approved status.
+          return "approved";
+        }
       }
-      if (rejectedQueryResult.next()) {
-        // If query exists for rejected prepared statement, return rejected status.
-        return "rejected";
+      rejectedPreparedStatement.setInt(SqlConstants.MENTOR_EVIDENCE_SET_MENTORID, mentorId);
+      try (ResultSet rejectedQueryResult = rejectedPreparedStatement.executeQuery()) {
+        if (rejectedQueryResult.next()) {
+          // If query exists for rejected prepared statement, return rejected status.
+          return "rejected";
+        }
       }
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
@@ -410,17 +614,18 @@ public final class Utility {
   }
 
   /**
-   * Takes a MySQL query and executes it.
+   * Takes a MySQL statement of SqlStatements and executes it with the values of its placeholders,
+   * in the order they appear.
    */
-  public static void executeQuery(String query, HttpServletRequest request) {
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = getConnection(request);
-      
-      // Execute the MySQL prepared statement.
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
+  public static void executeQuery(String query, HttpServletRequest request,
+      Object... parameters) {
+    // The connection and statement are closed even if the query fails.
+    try (Connection connection = getConnection(request);
+        PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+      for (int i = 0; i < parameters.length; i++) {
+        preparedStatement.setObject(i + 1, parameters[i]);
+      }
       preparedStatement.execute();
-      connection.close();
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(Utility.class.getName());
@@ -429,16 +634,88 @@ public final class Utility {
   }
 
   /** 
-   * Makes a user follow an answer.
+   * Adds a value (negative to subtract) to one of the counters of a question or an answer. The
+   * query is one of the update counter statements of SqlStatements.
    */
-  public static void insertCommentFollower(Connection connection, int answerId, int authorId) {
+  public static void updateCounter(Connection connection, String query, int id, int value)
+      throws SQLException {
+    try (PreparedStatement counterStatement = connection.prepareStatement(query)) {
+      counterStatement.setInt(SqlConstants.COUNTER_SET_VALUE, value);
+      counterStatement.setInt(SqlConstants.COUNTER_SET_ID, id);
+      counterStatement.executeUpdate();
+    }
+  }
+
+  /** 
+   * Runs an INSERT prepared with Statement.RETURN_GENERATED_KEYS and returns the ID the database
+   * gave the new row, so it doesn't have to be looked up afterwards.
+   */
+  public static int executeInsertForId(PreparedStatement statement) throws SQLException {
+    statement.executeUpdate();
+    try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+      if (!generatedKeys.next()) {
+        throw new SQLException("No ID was generated for the inserted row.");
+      }
+      return generatedKeys.getInt(SqlConstants.GENERATED_ID);
+    }
+  }
+
+  /** 
+   * Undoes the changes of a failed transaction and restores auto-commit, so the connection can
+   * be used by the rest of the request.
+   */
+  public static void rollbackTransaction(Connection connection) {
+    if (connection == null) {
+      return;
+    }
     try {
-      String insertFollowerQuery = "INSERT INTO AnswerFollower(answer_id, follower_id) "
-          + "VALUES (?,?)";
-      PreparedStatement followerStatement = connection.prepareStatement(insertFollowerQuery);
+      connection.rollback();
+      connection.setAutoCommit(true);
+    } catch (SQLException exception) {
+      // If the rollback doesn't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+  }
+
+  /**
+   * Closes a connection that outlives a single try block, so it is always returned to the pool.
+   */
+  public static void closeConnection(Connection connection) {
+    if (connection == null) {
+      return;
+    }
+    try {
+      connection.close();
+    } catch (SQLException exception) {
+      // If the connection isn't closed we get the log of what happened.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+  }
+
+  /** 
+   * Makes the author of a new answer follow it. Fails if the follower can't be inserted, so the
+   * answer is rolled back along with it.
+   */
+  public static void insertAnswerFollower(Connection connection, int answerId, int authorId)
+      throws SQLException {
+    try (PreparedStatement followerStatement =
+        connection.prepareStatement(SqlStatements.INSERT_ANSWER_FOLLOWER)) {
       followerStatement.setInt(SqlConstants.FOLLOWER_INSERT_ANSWERID, answerId);
       followerStatement.setInt(SqlConstants.FOLLOWER_INSERT_AUTHORID, authorId);
       followerStatement.executeUpdate();
+    }
+  }
+
+  /** 
+   * Makes a user follow an answer.
+   */
+  public static void insertCommentFollower(Connection connection, int answerId, int authorId) {
+    // A user who already follows the answer fails on the primary key, which leaves the rest of
+    // the transaction untouched.
+    try {
+      insertAnswerFollower(connection, answerId, authorId);
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(Utility.class.getName());
@@ -447,23 +724,637 @@ public final class Utility {
   }
   
   /** 
-   * Split the query by the page length depending on the current page.
+   * Fetches a single page of the forum. Only the questions of the requested page are read from
+   * the database: the page is located with the cursor of a neighbouring page and trimmed with a
+   * LIMIT, so the cost of a page does not depend on the size of the Question table. If
+   * searchInput is null the whole forum is paged, otherwise only the questions that match it.
+   * The cursor is the one received from a previous ForumPage; isPreviousPage tells whether the
+   * page before or after it is requested. A null or invalid cursor fetches the first page.
+   * The page is the same for every user; see ForumPage.withFollowedQuestions().
    */
-  public static ForumPage splitPages(List<Question> questions, int page) {
-    int numberOfComments = questions.size();
-    int numberOfPages = (int) Math.ceil((double) numberOfComments / SqlConstants.PAGE_SIZE);
-   
-    // If the user is on the first or last page, avoid non-existing indexes.
-    Integer nextPage = page < numberOfPages ? (page + 1) : null;
-    Integer previousPage = page > 1 ? (page - 1) : null;
-    
-    // Indexes for the questions of the current page.
-    int lowerIndex = (page - 1) * SqlConstants.PAGE_SIZE;
-    int upperIndex = page * SqlConstants.PAGE_SIZE;
+  public static ForumPage fetchForumPage(String searchInput, String cursor,
+      boolean isPreviousPage, int page, HttpServletRequest request) {
+    List<Question> questions = new ArrayList<>();
+
+    // A cursor that can't be parsed is treated as a request for the first page.
+    String[] cursorValues = cursor != null ? cursor.split(CURSOR_SEPARATOR) : new String[0];
+    boolean hasCursor = cursorValues.length == 2;
+    Timestamp cursorDateTime = null;
+    int cursorId = 0;
+    if (hasCursor) {
+      try {
+        cursorDateTime = new Timestamp(Long.parseLong(cursorValues[0]));
+        cursorId = Integer.parseInt(cursorValues[1]);
+      } catch (NumberFormatException exception) {
+        hasCursor = false;
+      }
+    }
+    if (!hasCursor) {
+      isPreviousPage = false;
+      page = 1;
+    }
+
+    // Pick the variants of the queries with the conditions that apply to this page.
+    boolean isSearch = searchInput != null;
+    String pageQuery = SqlStatements.getForumPage(isSearch, hasCursor, isPreviousPage);
+
+    try (Connection connection = getConnection(request);
+        PreparedStatement pageStatement = connection.prepareStatement(pageQuery)) {
+      // Parameters are set in the same order as their placeholders appear in the query.
+      int parameterIndex = 1;
+      if (searchInput != null) {
+        pageStatement.setString(parameterIndex++, searchInput);
+      }
+      if (hasCursor) {
+        pageStatement.setTimestamp(parameterIndex++, cursorDateTime);
+        pageStatement.setTimestamp(parameterIndex++, cursorDateTime);
+        pageStatement.setInt(parameterIndex++, cursorId);
+      }
+      // One more question than fits in the page is read, to know if there is a page after it in
+      // the direction of the query without counting the questions.
+      pageStatement.setInt(parameterIndex, SqlConstants.PAGE_SIZE + 1);
+
+      try (ResultSet queryResult = pageStatement.executeQuery()) {
+        while (queryResult.next()) {
+          questions.add(buildQuestion(queryResult));
+        }
+      }
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+
+    boolean hasMoreQuestions = questions.size() > SqlConstants.PAGE_SIZE;
+    if (hasMoreQuestions) {
+      questions.remove(questions.size() - 1);
+    }
+    // Pages before the cursor are read oldest first, so they are flipped back to forum order.
+    // Going back, the page the user comes from is after this one.
+    if (isPreviousPage) {
+      Collections.reverse(questions);
+      return buildForumPage(questions, page, /*hasNextPage=*/true, hasMoreQuestions);
+    }
+    return buildForumPage(questions, page, hasMoreQuestions, /*hasPreviousPage=*/hasCursor);
+  }
+
+  /** 
+   * Returns the cache of forum pages shared by every request to this instance.
+   */
+  @SuppressWarnings("unchecked")
+  public static LruCache<String, ForumPage> getForumPageCache(ServletContext context) {
+    return (LruCache<String, ForumPage>) context.getAttribute(
+        CacheConstants.FORUM_PAGE_CACHE_ATTRIBUTE);
+  }
+
+  /** 
+   * Returns the IDs of the questions a user follows. They are loaded from the database the first
+   * time and then served from memory while their ETag doesn't change, since a different instance
+   * may have changed them since. Users that are logged out follow nothing.
+   */
+  public static FollowedQuestions getFollowedQuestions(int userId, HttpServletRequest request) {
+    if (userId == USER_LOGGED_OUT_ID) {
+      return FollowedQuestions.EMPTY;
+    }
+    LruCache<Integer, FollowedQuestions> followedQuestionsCache =
+        getFollowedQuestionsCache(request.getServletContext());
+    // The ETag is read before the set, so a set read after a new version never gets the old one.
+    // Without an ETag the set is neither taken from the cache nor put in it.
+    String etag = getEtag(request, ContentVersions.followedQuestions(userId));
+    FollowedQuestions followedQuestions = followedQuestionsCache.get(userId);
+    if (followedQuestions != null && etag != null && etag.equals(followedQuestions.getEtag())) {
+      return followedQuestions;
+    }
+
+    long cacheGeneration = followedQuestionsCache.getGeneration();
+    int[] questionIds = new int[16];
+    int numberOfQuestions = 0;
+    try (Connection connection = getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_FOLLOWED_QUESTIONS)) {
+      preparedStatement.setInt(SqlConstants.FOLLOWED_QUESTIONS_SET_USERID, userId);
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        while (queryResult.next()) {
+          // Grow the array as needed instead of boxing every ID into a list.
+          if (numberOfQuestions == questionIds.length) {
+            questionIds = Arrays.copyOf(questionIds, questionIds.length * 2);
+          }
+          questionIds[numberOfQuestions++] =
+              queryResult.getInt(SqlConstants.FOLLOWED_QUESTIONS_FETCH_QUESTIONID);
+        }
+      }
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened and
+      // don't cache the incomplete set.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+      return FollowedQuestions.of(questionIds, numberOfQuestions);
+    }
+    followedQuestions = FollowedQuestions.of(questionIds, numberOfQuestions).withEtag(etag);
+    if (etag != null && canCacheReads(request)) {
+      followedQuestionsCache.put(userId, followedQuestions, cacheGeneration);
+    }
+    return followedQuestions;
+  }
+
+  /** 
+   * Updates the cached questions a user follows after they follow or unfollow a question.
+   */
+  public static void updateFollowedQuestions(int userId, int questionId, boolean follows,
+      HttpServletRequest request) {
+    LruCache<Integer, FollowedQuestions> followedQuestionsCache =
+        getFollowedQuestionsCache(request.getServletContext());
+    if (followedQuestionsCache != null) {
+      followedQuestionsCache.update(userId, followedQuestions -> follows
+          ? followedQuestions.with(questionId) : followedQuestions.without(questionId));
+    }
+    bumpContentVersion(ContentVersions.followedQuestions(userId), request);
+  }
+
+  /** 
+   * Returns the cache of the questions followed by each user of this instance.
+   */
+  @SuppressWarnings("unchecked")
+  public static LruCache<Integer, FollowedQuestions> getFollowedQuestionsCache(
+      ServletContext context) {
+    return (LruCache<Integer, FollowedQuestions>) context.getAttribute(
+        CacheConstants.FOLLOWED_QUESTIONS_CACHE_ATTRIBUTE);
+  }
+
+  /** 
+   * Removes every cached forum page. Called after any write that changes what the forum shows:
+   * a new question, a new answer or a follower change.
+   */
+  public static void invalidateForumPages(HttpServletRequest request) {
+    LruCache<String, ForumPage> forumPageCache = getForumPageCache(request.getServletContext());
+    if (forumPageCache != null) {
+      forumPageCache.invalidateAll();
+    }
+    bumpContentVersion(ContentVersions.FEED, request);
+  }
+
+  /** 
+   * Returns the newest page of the inbox of a user along with their number of unread
+   * notifications, from the cache if possible. A cached page is only used while the inbox has
+   * the ETag it was read at, since a different instance may have changed it since.
+   */
+  public static RecentNotifications getRecentNotifications(int userId,
+      HttpServletRequest request) {
+    if (userId == USER_LOGGED_OUT_ID) {
+      return RecentNotifications.EMPTY;
+    }
+    LruCache<Integer, RecentNotifications> recentNotificationsCache =
+        getRecentNotificationsCache(request.getServletContext());
+    // The ETag is read before the inbox, so a page read after a new version never gets the old
+    // one. Without an ETag the page is neither taken from the cache nor put in it.
+    String etag = getEtag(request, ContentVersions.inbox(userId));
+    RecentNotifications recentNotifications = recentNotificationsCache.get(userId);
+    if (recentNotifications != null && etag != null
+        && etag.equals(recentNotifications.getEtag())) {
+      return recentNotifications;
+    }
+
+    long cacheGeneration = recentNotificationsCache.getGeneration();
+    try (Connection connection = getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_UNREAD_NOTIFICATIONS)) {
+      NotificationPage newestPage =
+          fetchNotificationPage(connection, userId, /*cursor=*/null);
+      preparedStatement.setInt(SqlConstants.USER_SET_ID, userId);
+      int unreadCount = 0;
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        if (queryResult.next()) {
+          unreadCount = queryResult.getInt(SqlConstants.UNREAD_FETCH_COUNT);
+        }
+      }
+      recentNotifications = RecentNotifications.of(newestPage, unreadCount).withEtag(etag);
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened and
+      // don't cache anything.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+      return RecentNotifications.EMPTY;
+    }
+    if (etag != null && canCacheReads(request)) {
+      recentNotificationsCache.put(userId, recentNotifications, cacheGeneration);
+    }
+    return recentNotifications;
+  }
+
+  /** 
+   * Adds a new notification to the cached recent notifications of each of its users. Users
+   * whose notifications aren't cached get them from the database on their next read.
+   */
+  public static void addRecentNotification(List<Integer> userIds, Notification notification,
+      ServletContext context) {
+    LruCache<Integer, RecentNotifications> recentNotificationsCache =
+        getRecentNotificationsCache(context);
+    if (recentNotificationsCache != null) {
+      for (int userId : userIds) {
+        recentNotificationsCache.update(userId,
+            recentNotifications -> recentNotifications.with(notification));
+      }
+    }
+  }
+
+  /** 
+   * Moves a coalesced notification to the top of the cached recent notifications of its users.
+   * Users whose buffer doesn't hold it anymore lose their cached notifications instead, since it
+   * comes back from further down their inbox, which only the database has.
+   */
+  public static void refreshRecentNotification(List<Integer> userIds, Notification notification,
+      ServletContext context) {
+    LruCache<Integer, RecentNotifications> recentNotificationsCache =
+        getRecentNotificationsCache(context);
+    if (recentNotificationsCache != null) {
+      for (int userId : userIds) {
+        RecentNotifications recentNotifications = recentNotificationsCache.get(userId);
+        if (recentNotifications != null && recentNotifications.contains(notification.id)) {
+          recentNotificationsCache.update(userId,
+              cachedNotifications -> cachedNotifications.with(notification));
+        } else {
+          recentNotificationsCache.invalidate(userId);
+        }
+      }
+    }
+  }
+
+  /** 
+   * Removes the cached recent notifications of a user, after some of them were read.
+   */
+  public static void invalidateRecentNotifications(int userId, HttpServletRequest request) {
+    LruCache<Integer, RecentNotifications> recentNotificationsCache =
+        getRecentNotificationsCache(request.getServletContext());
+    if (recentNotificationsCache != null) {
+      recentNotificationsCache.invalidate(userId);
+    }
+  }
+
+  /** 
+   * Returns the cache of the recent notifications of each user of this instance.
+   */
+  @SuppressWarnings("unchecked")
+  public static LruCache<Integer, RecentNotifications> getRecentNotificationsCache(
+      ServletContext context) {
+    return (LruCache<Integer, RecentNotifications>) context.getAttribute(
+        CacheConstants.RECENT_NOTIFICATIONS_CACHE_ATTRIBUTE);
+  }
+
+  /** 
+   * Fetches the page of notifications of a user older than the cursor, or the newest page if
+   * there is no cursor. A cursor that can't be parsed is treated as a request for the newest
+   * page.
+   */
+  public static NotificationPage fetchNotificationPage(Connection connection, int userId,
+      String cursor) throws SQLException {
+    String[] cursorValues = cursor != null ? cursor.split(CURSOR_SEPARATOR) : new String[0];
+    boolean hasCursor = cursorValues.length == 2;
+    Timestamp cursorDateTime = null;
+    int cursorId = 0;
+    if (hasCursor) {
+      try {
+        cursorDateTime = new Timestamp(Long.parseLong(cursorValues[0]));
+        cursorId = Integer.parseInt(cursorValues[1]);
+      } catch (NumberFormatException exception) {
+        hasCursor = false;
+      }
+    }
+
+    String query = hasCursor ? SqlStatements.FETCH_OLDER_NOTIFICATION_PAGE
+        : SqlStatements.FETCH_NEWEST_NOTIFICATION_PAGE;
+    List<Notification> notifications = new ArrayList<>();
+    boolean hasOlderNotifications = false;
+    try (PreparedStatement pst = connection.prepareStatement(query)) {
+      int parameterIndex = SqlConstants.NOTIFICATION_SET_USERID;
+      pst.setInt(parameterIndex++, userId);
+      if (hasCursor) {
+        pst.setTimestamp(parameterIndex++, cursorDateTime);
+        pst.setTimestamp(parameterIndex++, cursorDateTime);
+        pst.setInt(parameterIndex++, cursorId);
+      }
+      // One more notification than the page is fetched to know if there are older ones.
+      pst.setInt(parameterIndex, SqlConstants.NOTIFICATION_PAGE_SIZE + 1);
+      try (ResultSet resultSet = pst.executeQuery()) {
+        while (resultSet.next()) {
+          if (notifications.size() == SqlConstants.NOTIFICATION_PAGE_SIZE) {
+            hasOlderNotifications = true;
+            break;
+          }
+          notifications.add(buildNotification(resultSet));
+        }
+      }
+    }
+    Notification oldestNotification = hasOlderNotifications
+        ? notifications.get(notifications.size() - 1) : null;
+    String olderNotificationsCursor = oldestNotification != null
+        ? buildCursor(oldestNotification.timestamp, oldestNotification.id) : null;
+    return new NotificationPage(notifications, olderNotificationsCursor);
+  }
+
+  /** 
+   * Fetches the notifications of a user created or coalesced after the one of the cursor,
+   * newest first, at most a page of them. Coalesced notifications come back with their new time,
+   * so they are fetched again too. A malformed cursor fetches nothing.
+   */
+  public static List<Notification> fetchNewerNotifications(Connection connection, int userId,
+      String cursor) throws SQLException {
+    String[] cursorValues = cursor.split(CURSOR_SEPARATOR);
+    List<Notification> notifications = new ArrayList<>();
+    if (cursorValues.length != 2) {
+      return notifications;
+    }
+    Timestamp cursorDateTime;
+    int cursorId;
+    try {
+      cursorDateTime = new Timestamp(Long.parseLong(cursorValues[0]));
+      cursorId = Integer.parseInt(cursorValues[1]);
+    } catch (NumberFormatException exception) {
+      return notifications;
+    }
+    try (PreparedStatement pst =
+        connection.prepareStatement(SqlStatements.FETCH_NEWER_NOTIFICATIONS)) {
+      int parameterIndex = SqlConstants.NOTIFICATION_SET_USERID;
+      pst.setInt(parameterIndex++, userId);
+      pst.setTimestamp(parameterIndex++, cursorDateTime);
+      pst.setTimestamp(parameterIndex++, cursorDateTime);
+      pst.setInt(parameterIndex++, cursorId);
+      pst.setInt(parameterIndex, SqlConstants.NOTIFICATION_PAGE_SIZE);
+      try (ResultSet resultSet = pst.executeQuery()) {
+        while (resultSet.next()) {
+          notifications.add(buildNotification(resultSet));
+        }
+      }
+    }
+    return notifications;
+  }
+
+  /** 
+   * Create a notification object using the results from a query.
+   */
+  public static Notification buildNotification(ResultSet resultSet) throws SQLException {
+    Notification notification = new Notification();
+    notification.id = resultSet.getInt(SqlConstants.NOTIFICATION_FETCH_ID);
+    notification.message = resultSet.getString(SqlConstants.NOTIFICATION_FETCH_MESSAGE);
+    notification.url = resultSet.getString(SqlConstants.NOTIFICATION_FETCH_URL);
+    notification.timestamp = resultSet.getTimestamp(SqlConstants.NOTIFICATION_FETCH_TIMESTAMP);
+    notification.isRead = resultSet.getBoolean(SqlConstants.NOTIFICATION_FETCH_IS_READ);
+    return notification;
+  }
+
+  /** 
+   * Hands the notification of the given type about the modified element to the notifications
+   * queue, whose task creates it and sends its email in a request of its own. Must be called
+   * after the modified element is committed, since the task reads it with its own connection.
+   * The next step of an event with a key gets a task named after it, so a retried task doesn't
+   * queue it twice.
+   */
+  public static void enqueueNotification(NotificationEvent event, ServletContext context) {
+    TaskOptions task = TaskOptions.Builder.withUrl(QueueConstants.NOTIFICATION_TASK_URL)
+        .param(QueueConstants.NOTIFICATION_TASK_TYPE, event.getType())
+        .param(QueueConstants.NOTIFICATION_TASK_ELEMENT_ID,
+            String.valueOf(event.getModifiedElementId()))
+        .param(QueueConstants.NOTIFICATION_TASK_STEP, event.getStep().name());
+    if (event.getKey() != null) {
+      task.taskName(event.getKey() + "-" + event.getStep().name());
+    }
+    try {
+      QueueFactory.getQueue(QueueConstants.NOTIFICATION_QUEUE_NAME).add(task);
+      return;
+    } catch (TaskAlreadyExistsException exception) {
+      // A previous run of the same task already queued the step.
+      return;
+    } catch (RuntimeException exception) {
+      // If the queue can't take the task, we get the log of what happened and the event is
+      // handled on this request instead of being lost.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.WARNING, "Handling notification event " + event + " in place", exception);
+    }
+    NotificationSender notificationSender = new NotificationSender(context);
+    try {
+      while (event != null) {
+        event = notificationSender.handle(event);
+      }
+    } catch (Exception exception) {
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+  }
+
+  public static void enqueueNotification(String typeOfNotification, int modifiedElementId,
+      HttpServletRequest request) {
+    enqueueNotification(new NotificationEvent(typeOfNotification, modifiedElementId),
+        request.getServletContext());
+  }
 
-    List<Question> trimmedQuestions = questions.subList(lowerIndex >= 0 ? lowerIndex : 0,
-        upperIndex <= numberOfComments ? upperIndex : numberOfComments);
+  /** 
+   * Pushes a new notification to the open streams of each of its users, along with their number
+   * of unread notifications when it is cached.
+   */
+  public static void pushNotification(List<Integer> userIds, Notification notification,
+      ServletContext context) {
+    NotificationStreams notificationStreams = getNotificationStreams(context);
+    if (notificationStreams == null) {
+      return;
+    }
+    LruCache<Integer, RecentNotifications> recentNotificationsCache =
+        getRecentNotificationsCache(context);
+    for (int userId : userIds) {
+      RecentNotifications recentNotifications =
+          recentNotificationsCache != null ? recentNotificationsCache.get(userId) : null;
+      notificationStreams.push(userId, Collections.singletonList(notification),
+          recentNotifications != null ? recentNotifications.getUnreadCount() : null);
+    }
+  }
+
+  /** 
+   * Returns the streams that push notifications to the browsers connected to this instance.
+   */
+  public static NotificationStreams getNotificationStreams(ServletContext context) {
+    return (NotificationStreams) context.getAttribute(
+        QueueConstants.NOTIFICATION_STREAMS_ATTRIBUTE);
+  }
+
+  /** 
+   * Returns the statistics of the notifications queue, shared by every instance, or null if
+   * they can't be fetched.
+   */
+  public static Map<String, Object> getNotificationQueueStatistics() {
+    QueueStatistics queueStatistics;
+    try {
+      queueStatistics =
+          QueueFactory.getQueue(QueueConstants.NOTIFICATION_QUEUE_NAME).fetchStatistics();
+    } catch (RuntimeException exception) {
+      // If the queue service doesn't answer, we get the log of what happened.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.WARNING, exception.getMessage(), exception);
+      return null;
+    }
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("tasks", queueStatistics.getNumTasks());
+    statistics.put("oldestEtaUsec", queueStatistics.getOldestEtaUsec());
+    statistics.put("executedLastMinute", queueStatistics.getExecutedLastMinute());
+    statistics.put("requestsInFlight", queueStatistics.getRequestsInFlight());
+    statistics.put("enforcedRate", queueStatistics.getEnforcedRate());
+    return statistics;
+  }
+
+  /**
+   * Returns the value of a setting, such as a size of the connection pool. The environment
+   * variable named after it wins over the system property set in appengine-web.xml, and the
+   * default value is used if neither is set.
+   */
+  public static long getSetting(String property, long defaultValue) {
+    String value = getStringSetting(property);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException exception) {
+      // A mistyped setting shouldn't keep the app from starting, so the default is used.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.WARNING, "Invalid value " + value + " for " + property, exception);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Returns the value of a setting the same way as getSetting(), or null if it isn't set.
+   */
+  public static String getStringSetting(String property) {
+    // "pool.maximumPoolSize" is read from POOL_MAXIMUM_POOL_SIZE.
+    String value = System.getenv(
+        property.replaceAll("([a-z])([A-Z])", "$1_$2").replace('.', '_').toUpperCase());
+    if (value == null) {
+      value = System.getProperty(property);
+    }
+    if (value == null || value.trim().isEmpty()) {
+      return null;
+    }
+    return value.trim();
+  }
+
+  /** 
+   * Returns the versions used to build the ETags of the GET servlets of this instance.
+   */
+  public static ContentVersions getContentVersions(ServletContext context) {
+    return (ContentVersions) context.getAttribute(CacheConstants.CONTENT_VERSIONS_ATTRIBUTE);
+  }
 
-    return new ForumPage(nextPage, previousPage, numberOfPages, trimmedQuestions);
+  /** 
+   * Returns the ETag of the content with the given version keys, or null if the versions can't
+   * be read, in which case the content is sent without one.
+   */
+  public static String getEtag(HttpServletRequest request, String... keys) {
+    ContentVersions contentVersions = getContentVersions(request.getServletContext());
+    if (contentVersions == null) {
+      return null;
+    }
+    try (Connection connection = getConnection(request)) {
+      return contentVersions.getEtag(connection, canCacheReads(request), keys);
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+    return null;
+  }
+
+  /** 
+   * Gives a new version to content changed by a write, so clients holding the old ETag fetch it
+   * again. Must be called after the write is committed.
+   */
+  public static void bumpContentVersion(String key, HttpServletRequest request) {
+    try (Connection connection = getConnection(request)) {
+      bumpContentVersions(Collections.singletonList(key), connection,
+          request.getServletContext());
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(Utility.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+  }
+
+  /** 
+   * Gives a new version to content changed by work done outside of a request, such as the
+   * notifications created by the notification tasks, with the connection of that work.
+   */
+  public static void bumpContentVersions(List<String> keys, Connection connection,
+      ServletContext context) throws SQLException {
+    ContentVersions contentVersions = getContentVersions(context);
+    if (contentVersions != null) {
+      contentVersions.bump(keys, connection);
+    }
+    // Requests reading from the replica right after the bump could cache the old versions.
+    ReplicaRouter replicaRouter = getReplicaRouter(context);
+    if (replicaRouter != null) {
+      replicaRouter.recordWrite();
+    }
+  }
+
+  /** 
+   * Sets the ETag and caching headers of a GET response and answers 304 Not Modified if the
+   * client already has that version, in which case it returns true and nothing else must be
+   * written. Responses that are the same for every user, like those for logged out users, can be
+   * kept by shared caches. Caches must always check the ETag before reusing a response. A null
+   * ETag, when the versions couldn't be read, never matches.
+   */
+  public static boolean respondIfNotModified(String etag, boolean isPublic,
+      HttpServletRequest request, HttpServletResponse response) {
+    response.setHeader("Cache-Control", isPublic ? "public, no-cache" : "private, no-cache");
+    if (etag == null) {
+      return false;
+    }
+    response.setHeader("ETag", etag);
+
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String clientEtag : ifNoneMatch.split(",")) {
+      clientEtag = clientEtag.trim();
+      // If-None-Match uses the weak comparison, so a weak version of the ETag also matches.
+      if (clientEtag.startsWith("W/")) {
+        clientEtag = clientEtag.substring(2);
+      }
+      if (clientEtag.equals(etag) || clientEtag.equals("*")) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** 
+   * Wraps the questions of a page with the information needed to move between pages. The
+   * questions must already be trimmed to the page and in forum order.
+   */
+  public static ForumPage buildForumPage(List<Question> questions, int page,
+      boolean hasNextPage, boolean hasPreviousPage) {
+    // If the user is on the first or last page, avoid non-existing pages.
+    Integer nextPage = hasNextPage ? (page + 1) : null;
+    Integer previousPage = hasPreviousPage ? Math.max(page - 1, 1) : null;
+
+    // The neighbouring pages are located from the last and first questions of this one.
+    String nextCursor = nextPage != null && !questions.isEmpty()
+        ? buildCursor(questions.get(questions.size() - 1)) : null;
+    String previousCursor = previousPage != null && !questions.isEmpty()
+        ? buildCursor(questions.get(0)) : null;
+
+    return new ForumPage(nextPage, previousPage, questions, nextCursor, previousCursor);
+  }
+
+  /** 
+   * Returns the cursor that points to a question's position in the forum.
+   */
+  public static String buildCursor(Question question) {
+    return buildCursor(question.getDateTime(), question.getId());
+  }
+
+  /** 
+   * Returns a cursor that points to the position of a row ordered by date and then by ID.
+   */
+  public static String buildCursor(Timestamp dateTime, int id) {
+    return (dateTime != null ? dateTime.getTime() : 0) + CURSOR_SEPARATOR + id;
   }
 }
@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.filters;
+
+import com.google.sps.classes.ReplicaRouter;
+import com.google.sps.classes.RequestConnection;
+import com.google.sps.classes.Utility;
+import java.io.IOException;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Gives each request a single database connection, shared by everything that runs during the
+ * request, and returns it to the pool once the request ends, even if a servlet fails.
+ *
+ * It also resolves the Mintern user ID of the logged in App Engine user before any servlet runs,
+ * with that same connection, and keeps it on the request. Every later call to
+ * Utility.getUserId(), including those of servlets included with a RequestDispatcher, reads it
+ * from there. Static files are served by App Engine without going through the filter.
+ *
+ * When there is a read replica, requests that may write leave the ReplicaRouter a trace, so the
+ * reads that follow them see what they wrote.
+ *
+ * Once a request is done with its connection, it also gives the PoolSizeControllers a chance to
+ * resize the pools, which one request per interval takes.
+ */
+// Async requests, such as the notification streams, go through the filter before they start.
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class RequestConnectionFilter implements Filter {
+
+  @Override
+  public void init(FilterConfig filterConfig) {}
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+    ReplicaRouter replicaRouter = Utility.getReplicaRouter(request.getServletContext());
+    boolean isWrite = replicaRouter != null && request instanceof HttpServletRequest
+        && !isSafeMethod(((HttpServletRequest) request).getMethod());
+    if (isWrite) {
+      // The cookie is added before the servlet runs, since the response may be committed by then.
+      replicaRouter.startWrite((HttpServletResponse) response);
+    }
+    RequestConnection requestConnection = Utility.startRequestConnection(request);
+    try {
+      if (request instanceof HttpServletRequest) {
+        Utility.getUserId((HttpServletRequest) request);
+      }
+      chain.doFilter(request, response);
+    } finally {
+      requestConnection.release();
+      request.removeAttribute(Utility.REQUEST_CONNECTION_ATTRIBUTE);
+      if (isWrite) {
+        replicaRouter.endWrite();
+      }
+      Utility.adjustPoolSizes(request.getServletContext());
+    }
+  }
+
+  @Override
+  public void destroy() {}
+
+  private static boolean isSafeMethod(String method) {
+    return "GET".equals(method) || "HEAD".equals(method);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.sps.listeners;
+
+import com.google.sps.classes.CacheConstants;
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.FollowedQuestions;
+import com.google.sps.classes.ForumPage;
+import com.google.sps.classes.LruCache;
+import com.google.sps.classes.RecentNotifications;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+@WebListener("Creates the in-memory caches that are stored in the Servlet's context for later use.")
+public class CacheContextListener implements ServletContextListener {
+
+  /**
+   * Removes the caches whenever the webapp is terminated.
+   */
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    event.getServletContext().removeAttribute(CacheConstants.FORUM_PAGE_CACHE_ATTRIBUTE);
+    event.getServletContext().removeAttribute(
+        CacheConstants.FOLLOWED_QUESTIONS_CACHE_ATTRIBUTE);
+    event.getServletContext().removeAttribute(CacheConstants.CONTENT_VERSIONS_ATTRIBUTE);
+    event.getServletContext().removeAttribute(CacheConstants.USER_ID_CACHE_ATTRIBUTE);
+    event.getServletContext().removeAttribute(
+        CacheConstants.RECENT_NOTIFICATIONS_CACHE_ATTRIBUTE);
+  }
+
+  /**
+   * Creates the caches whenever the webapp is loaded.
+   */
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    ServletContext servletContext = event.getServletContext();
+    if (servletContext.getAttribute(CacheConstants.FORUM_PAGE_CACHE_ATTRIBUTE) == null) {
+      servletContext.setAttribute(CacheConstants.FORUM_PAGE_CACHE_ATTRIBUTE,
+          new LruCache<String, ForumPage>(CacheConstants.FORUM_PAGE_CACHE_MAX_ENTRIES,
+              CacheConstants.FORUM_PAGE_CACHE_TIME_TO_LIVE));
+    }
+    if (servletContext.getAttribute(CacheConstants.FOLLOWED_QUESTIONS_CACHE_ATTRIBUTE) == null) {
+      servletContext.setAttribute(CacheConstants.FOLLOWED_QUESTIONS_CACHE_ATTRIBUTE,
+          new LruCache<Integer, FollowedQuestions>(
+              CacheConstants.FOLLOWED_QUESTIONS_CACHE_MAX_ENTRIES,
+              CacheConstants.FOLLOWED_QUESTIONS_CACHE_TIME_TO_LIVE));
+    }
+    if (servletContext.getAttribute(CacheConstants.CONTENT_VERSIONS_ATTRIBUTE) == null) {
+      servletContext.setAttribute(CacheConstants.CONTENT_VERSIONS_ATTRIBUTE,
+          new ContentVersions(CacheConstants.CONTENT_VERSIONS_MAX_ENTRIES,
+              CacheConstants.CONTENT_VERSIONS_TIME_TO_LIVE));
+    }
+    if (servletContext.getAttribute(CacheConstants.USER_ID_CACHE_ATTRIBUTE) == null) {
+      servletContext.setAttribute(CacheConstants.USER_ID_CACHE_ATTRIBUTE,
+          new LruCache<String, Integer>(CacheConstants.USER_ID_CACHE_MAX_ENTRIES,
+              CacheConstants.USER_ID_CACHE_TIME_TO_LIVE));
+    }
+    if (servletContext.getAttribute(CacheConstants.RECENT_NOTIFICATIONS_CACHE_ATTRIBUTE) == null) {
+      servletContext.setAttribute(CacheConstants.RECENT_NOTIFICATIONS_CACHE_ATTRIBUTE,
+          new LruCache<Integer, RecentNotifications>(
+              CacheConstants.RECENT_NOTIFICATIONS_CACHE_MAX_ENTRIES,
+              CacheConstants.RECENT_NOTIFICATIONS_CACHE_TIME_TO_LIVE));
+    }
+  }
+}
@@ -16,8 +16,12 @@
 
 package com.google.sps.listeners;
 
-import com.google.sps.classes.Keys;
+import com.google.sps.classes.ConnectionLeakTracker;
 import com.google.sps.classes.HikariConstants;
+import com.google.sps.classes.Keys;
+import com.google.sps.classes.PoolMetrics;
+import com.google.sps.classes.PoolSizeController;
+import com.google.sps.classes.ReplicaRouter;
 import com.google.sps.classes.Utility;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
@@ -33,56 +37,171 @@ import javax.sql.DataSource;
 @WebListener("Creates a connection pool that is stored in the Servlet's context for later use.")
 public class ConnectionPoolContextListener implements ServletContextListener {
 
-  private DataSource createConnectionPool() {
+  /**
+   * Creates the pool of connections to the given database, which is the connection name of a
+   * Cloud SQL instance, or the JDBC URL of a MySQL server in a local deployment. Both profiles
+   * get the same pool settings, so local load tests behave like production. A read-only pool
+   * only hands out read-only connections, so a write sent to it by mistake fails instead of
+   * reaching a replica.
+   */
+  private DataSource createConnectionPool(PoolMetrics poolMetrics, String poolName,
+      String database, int maximumPoolSize, boolean readOnly) {
     // The configuration object specifies behaviors for the connection pool.
     HikariConfig config = new HikariConfig();
+    config.setPoolName(poolName);
+    config.setReadOnly(readOnly);
 
     // Configure which instance and what database user to connect with.
-    config.setJdbcUrl(String.format("jdbc:mysql:///%s", Keys.SQL_CLOUD_DATABASE_NAME));
-    config.setUsername(Keys.SQL_CLOUD_USER); // e.g. "root", "postgres"
-    config.setPassword(Keys.SQL_CLOUD_PASSWORD); // e.g. "my-password"
+    if (Utility.isLocallyDeployed()) {
+      // A local MySQL server, such as a Docker container: "jdbc:mysql://localhost:3306/mintern".
+      config.setJdbcUrl(database);
+      config.setUsername(Keys.SQL_LOCAL_USER);
+      config.setPassword(Keys.SQL_LOCAL_PASSWORD);
+    } else {
+      config.setJdbcUrl(String.format("jdbc:mysql:///%s", Keys.SQL_CLOUD_DATABASE_NAME));
+      config.setUsername(Keys.SQL_CLOUD_USER); // e.g. "root", "postgres"
+      config.setPassword(Keys.SQL_CLOUD_PASSWORD); // e.g. "my-password"
+
+      // For Java users, the Cloud SQL JDBC Socket Factory can provide authenticated connections.
+      config.addDataSourceProperty("socketFactory", "com.google.cloud.sql.mysql.SocketFactory");
+      config.addDataSourceProperty("cloudSqlInstance", database);
+    }
+
+    // The sizes and timeouts below come from appengine-web.xml when it sets them, so each
+    // environment can be tuned without a code change.
 
     // maximumPoolSize limits the total number of concurrent connections this pool will keep. Ideal
     // values for this setting are highly variable on app design, infrastructure, and database.
-    config.setMaximumPoolSize(HikariConstants.MAX_POOL_SIZE);
+    config.setMaximumPoolSize(maximumPoolSize);
     // minimumIdle is the minimum number of idle connections Hikari maintains in the pool.
     // Additional connections will be established to meet this value unless the pool is full.
-    config.setMinimumIdle(HikariConstants.MIN_IDLE_TIME);
+    config.setMinimumIdle(Math.min(maximumPoolSize, (int) getSetting(
+        HikariConstants.MIN_IDLE_PROPERTY, HikariConstants.MIN_IDLE_TIME)));
 
     // setConnectionTimeout is the maximum number of milliseconds to wait for a connection checkout.
     // Any attempt to retrieve a connection from this pool that exceeds the set limit will throw an
     // SQLException.
-    config.setConnectionTimeout(HikariConstants.CONNECTION_TIMEOUT);
+    config.setConnectionTimeout(getSetting(HikariConstants.CONNECTION_TIMEOUT_PROPERTY,
+        HikariConstants.CONNECTION_TIMEOUT));
     // idleTimeout is the maximum amount of time a connection can sit in the pool. Connections that
     // sit idle for this many milliseconds are retried if minimumIdle is exceeded.
-    config.setIdleTimeout(HikariConstants.IDLE_TIMEOUT);
+    config.setIdleTimeout(getSetting(HikariConstants.IDLE_TIMEOUT_PROPERTY,
+        HikariConstants.IDLE_TIMEOUT));
 
     // maxLifetime is the maximum possible lifetime of a connection in the pool. Connections that
     // live longer than this many milliseconds will be closed and reestablished between uses. This
     // value should be several minutes shorter than the database's timeout value to avoid unexpected
     // terminations.
-    config.setMaxLifetime(HikariConstants.MAX_LIFETIME);
+    config.setMaxLifetime(getSetting(HikariConstants.MAX_LIFETIME_PROPERTY,
+        HikariConstants.MAX_LIFETIME));
+
+    // leakDetectionThreshold is the number of milliseconds a connection can be out of the pool
+    // before Hikari logs a warning with the stack trace of the code that borrowed it.
+    config.setLeakDetectionThreshold(getLeakDetectionThreshold());
 
-    // For Java users, the Cloud SQL JDBC Socket Factory can provide authenticated connections.
-    config.addDataSourceProperty("socketFactory", "com.google.cloud.sql.mysql.SocketFactory");
-    config.addDataSourceProperty("cloudSqlInstance", Keys.SQL_CLOUD_CONNECTION_NAME);
+    // Hikari reports the wait and usage times of its connections to the metrics.
+    config.setMetricsTrackerFactory(poolMetrics);
+
+    // The driver keeps the prepared statements of each connection, so the queries the servlets
+    // run over and over are parsed once on the server instead of on every request.
+    config.addDataSourceProperty("cachePrepStmts", "true");
+    config.addDataSourceProperty("useServerPrepStmts", "true");
+    config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(getSetting(
+        HikariConstants.PREPARED_STATEMENT_CACHE_SIZE_PROPERTY,
+        HikariConstants.PREPARED_STATEMENT_CACHE_SIZE)));
+    config.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(getSetting(
+        HikariConstants.PREPARED_STATEMENT_CACHE_SQL_LIMIT_PROPERTY,
+        HikariConstants.PREPARED_STATEMENT_CACHE_SQL_LIMIT)));
+    // Batches of inserts are sent as a single multi-row statement.
+    config.addDataSourceProperty("rewriteBatchedStatements", "true");
+    // The driver remembers the session state and server settings instead of asking for them.
+    config.addDataSourceProperty("useLocalSessionState", "true");
+    config.addDataSourceProperty("cacheResultSetMetadata", "true");
+    config.addDataSourceProperty("cacheServerConfiguration", "true");
+    config.addDataSourceProperty("elideSetAutoCommits", "true");
+    config.addDataSourceProperty("maintainTimeStats", "false");
 
     // Initialize the connection pool using the configuration object.
     DataSource pool = new HikariDataSource(config);
     return pool;
   }
 
+  /**
+   * Creates the controller that resizes a pool within the bounds set by the given properties.
+   * It is stored under the given attribute of the context, where RequestConnectionFilter runs
+   * it and the stats page reads it.
+   */
+  private void createPoolSizeController(HikariDataSource pool, PoolMetrics poolMetrics,
+      String controllerAttribute, String lowerBoundProperty, String upperBoundProperty,
+      ServletContext servletContext) {
+    PoolSizeController controller = new PoolSizeController(pool.getHikariPoolMXBean(),
+        pool.getHikariConfigMXBean(), poolMetrics,
+        (int) getSetting(lowerBoundProperty, HikariConstants.POOL_SIZE_LOWER_BOUND),
+        (int) getSetting(upperBoundProperty, HikariConstants.POOL_SIZE_UPPER_BOUND),
+        getSetting(HikariConstants.TARGET_WAIT_PROPERTY, HikariConstants.TARGET_WAIT),
+        getSetting(HikariConstants.ADJUST_INTERVAL_PROPERTY, HikariConstants.ADJUST_INTERVAL));
+    servletContext.setAttribute(controllerAttribute, controller);
+  }
+
+  /**
+   * Creates the pool of the read replica and the ReplicaRouter that sends read-only requests to
+   * it. Nothing is created if no replica is configured, so every request uses the primary.
+   * Locally, the replica can be a second MySQL server replicating the first one. Most GET
+   * requests use this pool, so it is resized like the primary one, within its own bounds.
+   */
+  private void createReadPool(ServletContext servletContext) {
+    String replica = getStringSetting(Utility.isLocallyDeployed()
+        ? HikariConstants.LOCAL_REPLICA_URL_PROPERTY : HikariConstants.REPLICA_INSTANCE_PROPERTY);
+    if (replica == null) {
+      return;
+    }
+    PoolMetrics readPoolMetrics = new PoolMetrics();
+    DataSource readPool = createConnectionPool(readPoolMetrics, HikariConstants.READ_POOL_NAME,
+        replica, (int) getSetting(HikariConstants.REPLICA_MAX_POOL_SIZE_PROPERTY,
+            HikariConstants.MAX_POOL_SIZE), /*readOnly=*/true);
+    servletContext.setAttribute(Utility.READ_POOL_ATTRIBUTE, readPool);
+    servletContext.setAttribute(Utility.READ_POOL_METRICS_ATTRIBUTE, readPoolMetrics);
+    createPoolSizeController((HikariDataSource) readPool, readPoolMetrics,
+        Utility.READ_POOL_SIZE_CONTROLLER_ATTRIBUTE,
+        HikariConstants.REPLICA_POOL_SIZE_LOWER_BOUND_PROPERTY,
+        HikariConstants.REPLICA_POOL_SIZE_UPPER_BOUND_PROPERTY, servletContext);
+    servletContext.setAttribute(Utility.REPLICA_ROUTER_ATTRIBUTE, new ReplicaRouter(getSetting(
+        HikariConstants.REPLICA_STICKINESS_PROPERTY, HikariConstants.REPLICA_STICKINESS)));
+  }
+
+  /**
+   * Returns the number of milliseconds a connection can be borrowed before it is reported.
+   */
+  private static long getLeakDetectionThreshold() {
+    return getSetting(HikariConstants.LEAK_DETECTION_THRESHOLD_PROPERTY,
+        HikariConstants.LEAK_DETECTION_THRESHOLD);
+  }
+
+  /**
+   * Returns the value of a setting of the pool, as read by Utility.getSetting().
+   */
+  private static long getSetting(String property, long defaultValue) {
+    return Utility.getSetting(property, defaultValue);
+  }
+
+  private static String getStringSetting(String property) {
+    return Utility.getStringSetting(property);
+  }
+
   /**
    * Destroys pool of connections whenever the webapp is terminated.
    */
   @Override
   public void contextDestroyed(ServletContextEvent event) {
-    if (!Utility.IS_LOCALLY_DEPLOYED) {
-      // This function is called when the Servlet is destroyed.
-      HikariDataSource pool = (HikariDataSource) event.getServletContext().getAttribute("my-pool");
-      if (pool != null) {
-        pool.close();
-      }
+    // This function is called when the Servlet is destroyed.
+    HikariDataSource pool = (HikariDataSource) event.getServletContext().getAttribute("my-pool");
+    if (pool != null) {
+      pool.close();
+    }
+    HikariDataSource readPool = (HikariDataSource) event.getServletContext().getAttribute(
+        Utility.READ_POOL_ATTRIBUTE);
+    if (readPool != null) {
+      readPool.close();
     }
   }
 
@@ -91,15 +210,24 @@ public class ConnectionPoolContextListener implements ServletContextListener {
    */
   @Override
   public void contextInitialized(ServletContextEvent event) {
-    if (!Utility.IS_LOCALLY_DEPLOYED) {
-      // This function is called when the application starts and will safely create a connection pool
-      // that can be used to connect to.
-      ServletContext servletContext = event.getServletContext();
-      DataSource pool = (DataSource) servletContext.getAttribute("my-pool");
-      if (pool == null) {
-        pool = createConnectionPool();
-        servletContext.setAttribute("my-pool", pool);
-      }
+    event.getServletContext().setAttribute(Utility.LEAK_TRACKER_ATTRIBUTE,
+        new ConnectionLeakTracker(getLeakDetectionThreshold()));
+    // This function is called when the application starts and will safely create a connection pool
+    // that can be used to connect to.
+    ServletContext servletContext = event.getServletContext();
+    DataSource pool = (DataSource) servletContext.getAttribute("my-pool");
+    if (pool == null) {
+      PoolMetrics poolMetrics = new PoolMetrics();
+      pool = createConnectionPool(poolMetrics, HikariConstants.POOL_NAME,
+          Utility.isLocallyDeployed() ? Keys.SQL_LOCAL_URL : Keys.SQL_CLOUD_CONNECTION_NAME,
+          (int) getSetting(HikariConstants.MAX_POOL_SIZE_PROPERTY, HikariConstants.MAX_POOL_SIZE),
+          /*readOnly=*/false);
+      servletContext.setAttribute("my-pool", pool);
+      servletContext.setAttribute(Utility.POOL_METRICS_ATTRIBUTE, poolMetrics);
+      createPoolSizeController((HikariDataSource) pool, poolMetrics,
+          Utility.POOL_SIZE_CONTROLLER_ATTRIBUTE, HikariConstants.POOL_SIZE_LOWER_BOUND_PROPERTY,
+          HikariConstants.POOL_SIZE_UPPER_BOUND_PROPERTY, servletContext);
+      createReadPool(servletContext);
     }
   }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.sps.listeners;
+
+import com.google.sps.classes.NotificationStreams;
+import com.google.sps.classes.QueueConstants;
+import com.google.sps.classes.Utility;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+@WebListener("Starts the streams that push the notifications to the browsers.")
+public class NotificationStreamsContextListener implements ServletContextListener {
+
+  /**
+   * Sends the open streams to reconnect elsewhere whenever the webapp is terminated.
+   */
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    ServletContext servletContext = event.getServletContext();
+    NotificationStreams notificationStreams = Utility.getNotificationStreams(servletContext);
+    if (notificationStreams != null) {
+      servletContext.removeAttribute(QueueConstants.NOTIFICATION_STREAMS_ATTRIBUTE);
+      notificationStreams.closeAll();
+    }
+  }
+
+  /**
+   * Starts the streams whenever the webapp is loaded, with room for as many of them as the
+   * concurrent requests of the instance allow.
+   */
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    ServletContext servletContext = event.getServletContext();
+    if (Utility.getNotificationStreams(servletContext) == null) {
+      long maxConcurrentRequests = Utility.getSetting(
+          QueueConstants.MAX_CONCURRENT_REQUESTS_PROPERTY,
+          QueueConstants.MAX_CONCURRENT_REQUESTS);
+      int maxStreams = (int) Math.max(0,
+          maxConcurrentRequests - QueueConstants.NOTIFICATION_STREAMS_REQUEST_HEADROOM);
+      servletContext.setAttribute(QueueConstants.NOTIFICATION_STREAMS_ATTRIBUTE,
+          new NotificationStreams(maxStreams, QueueConstants.NOTIFICATION_STREAMS_HEARTBEAT));
+    }
+  }
+}
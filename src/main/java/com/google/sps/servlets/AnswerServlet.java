@@ -16,20 +16,24 @@ package com.google.sps.servlets;
 
 import com.google.sps.classes.Answer;
 import com.google.sps.classes.Comment;
+import com.google.sps.classes.ContentVersions;
 import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -50,34 +54,21 @@ public class AnswerServlet extends HttpServlet {
     // ID of the question to which the answers correspond.
     int questionId = Utility.tryParseInt(request.getParameter("id"));
 
-    // Create a map that will hold all of the answers from the query.
-    // Each <int> will be an answer's id, and will be used to avoid creating duplicate
-    // answers and easily add a <Comment> to the corresponding <Answer>.
-    Map<Integer, Answer> answers = new HashMap<>();
-
-    String query = Utility.fetchAnswersAndCommentsQuery;
+    // Answers are the same for every user, so shared caches can keep them too.
+    String etag = Utility.getEtag(request, ContentVersions.question(questionId));
+    if (Utility.respondIfNotModified(etag, /*isPublic=*/true, request, response)) {
+      return;
+    }
 
-    // The connection and query are attempted.
-    try {
-        Connection connection = Utility.getConnection(request);
-        PreparedStatement preparedStatement = connection.prepareStatement(query);
-        preparedStatement.setInt(SqlConstants.ANSWER_SET_QUESTIONID, questionId);
-        ResultSet queryResult = preparedStatement.executeQuery();
-        // All of the rows from the query are looped if it goes through.
-        while (queryResult.next()) {
-          int currentAnswerId = queryResult.getInt(SqlConstants.ANSWER_FETCH_ID);
-          if (answers.containsKey(currentAnswerId)) {
-            // The comment of the current row corresponds to a previous answer, 
-            // so we add it to its corresponding answer object.
-            answers.get(currentAnswerId).addComment(Utility.buildComment(queryResult));
-          } else {
-            // The comment of the current row corresponds to a new answer,
-            // so we create that answer along with its comment and add it to
-            // the map.
-            answers.put(currentAnswerId, Utility.buildAnswer(queryResult));
-          }
-        }
-        connection.close();
+    // Answers are fetched first and their newest comments with a single query afterwards, so
+    // the answers aren't repeated in a row for each of their comments and the size of the
+    // response doesn't grow with the length of the discussion.
+    List<Answer> answers = new ArrayList<>();
+    try (Connection connection = Utility.getConnection(request)) {
+      fetchAnswers(connection, questionId, answers);
+      if (!answers.isEmpty()) {
+        fetchComments(connection, answers);
+      }
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(AnswerServlet.class.getName());
@@ -85,7 +76,72 @@ public class AnswerServlet extends HttpServlet {
     }
 
     response.setContentType("application/json;");
-    response.getWriter().println(Utility.convertToJsonUsingGson(answers));
+    Utility.writeJsonUsingGson(answers, response);
+  }
+
+  /** 
+   * Adds the answers of a question to the list, in the order they were posted.
+   */
+  private void fetchAnswers(Connection connection, int questionId, List<Answer> answers)
+      throws SQLException {
+    try (PreparedStatement preparedStatement =
+        connection.prepareStatement(SqlStatements.FETCH_ANSWERS)) {
+      preparedStatement.setInt(SqlConstants.ANSWER_SET_QUESTIONID, questionId);
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        while (queryResult.next()) {
+          answers.add(Utility.buildAnswer(queryResult));
+        }
+      }
+    }
+  }
+
+  /** 
+   * Adds their newest comments to the answers, in the order they were posted, with one query for
+   * all of the answers. Answers with older comments get the cursor to request them.
+   */
+  private void fetchComments(Connection connection, List<Answer> answers) throws SQLException {
+    // Index of each answer with comments by its ID, to add the comments to the right answer.
+    Map<Integer, Answer> answersById = new HashMap<>(answers.size() * 2);
+    for (Answer answer : answers) {
+      if (answer.getNumberOfComments() > 0) {
+        answersById.put(answer.getId(), answer);
+      }
+    }
+    if (answersById.isEmpty()) {
+      return;
+    }
+
+    String query = SqlStatements.getCommentsOfAnswers(answersById.size());
+    int placeholders = SqlStatements.getCommentsOfAnswersPlaceholders(answersById.size());
+    try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+      int parameterIndex = 1;
+      int answerId = 0;
+      for (int id : answersById.keySet()) {
+        answerId = id;
+        preparedStatement.setInt(parameterIndex++, answerId);
+      }
+      // The spare placeholders repeat the last ID, which doesn't change the result.
+      while (parameterIndex <= placeholders) {
+        preparedStatement.setInt(parameterIndex++, answerId);
+      }
+      preparedStatement.setInt(parameterIndex, SqlConstants.COMMENTS_PER_ANSWER);
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        while (queryResult.next()) {
+          Answer answer = answersById.get(
+              queryResult.getInt(SqlConstants.COMMENT_FETCH_ANSWERID));
+          answer.addComment(Utility.buildComment(queryResult));
+        }
+      }
+    }
+
+    for (Answer answer : answersById.values()) {
+      List<Comment> comments = answer.getCommentList();
+      if (!comments.isEmpty() && answer.getNumberOfComments() > comments.size()) {
+        Comment oldestComment = comments.get(0);
+        answer.setOlderCommentsCursor(
+            Utility.buildCursor(oldestComment.getDateTime(), oldestComment.getId()));
+      }
+    }
   }
 
   /** 
@@ -97,64 +153,43 @@ public class AnswerServlet extends HttpServlet {
     int questionId = Utility.tryParseInt(request.getParameter("question-id"));
     int authorId = Utility.getUserId(request);
 
+    // The answer, its first follower and the answer counter of its question are written in a
+    // single transaction so the counter never disagrees with the Answer table.
     Connection connection = Utility.getConnection(request);
-    insertNewAnswer(connection, questionId, body, authorId);
-    Utility.insertCommentFollower(connection, getLatestAnswerId(connection), authorId);
-    
     try {
-      // We call the notification servlet to notify of this posted answer.
-      request.getRequestDispatcher("/notification?type=question&modifiedElementId=" + questionId)
-          .include(request, response);
-      connection.close();
-    } catch (ServletException exception) {
-      // If the notification doesn't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(AnswerServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
+      connection.setAutoCommit(false);
+      int answerId = insertNewAnswer(connection, questionId, body, authorId);
+      Utility.insertAnswerFollower(connection, answerId, authorId);
+      Utility.updateCounter(connection, SqlStatements.UPDATE_NUMBER_OF_ANSWERS, questionId,
+          /*value=*/1);
+      connection.commit();
+      connection.setAutoCommit(true);
+      Utility.invalidateForumPages(request);
+      Utility.bumpContentVersion(ContentVersions.question(questionId), request);
+      // The followers are notified by a queued task, once the answer is committed.
+      Utility.enqueueNotification("question", questionId, request);
     } catch (SQLException exception) {
-      // If the connection isn't closed we get the log of what happened.
+      // If the connection or the query don't go through, we get the log of what happened.
+      Utility.rollbackTransaction(connection);
       Logger logger = Logger.getLogger(AnswerServlet.class.getName());
       logger.log(Level.SEVERE, exception.getMessage(), exception);
+    } finally {
+      Utility.closeConnection(connection);
     }
     response.sendRedirect("/question.html?id=" + questionId);
   }
 
   /** 
-   * Inserts an answer into the database.
+   * Inserts an answer into the database and returns its ID.
    */
-  private void insertNewAnswer(Connection connection, int questionId, String body, int authorId) {
-    try {
-      // NOW() is the function to get the current date and time in MySQL.
-      String insertAnswerQuery = "INSERT INTO Answer(question_id, body, author_id, date_time) "
-          + "VALUES (?,?,?,NOW())";
-      PreparedStatement answerStatement = connection.prepareStatement(insertAnswerQuery);
+  private int insertNewAnswer(Connection connection, int questionId, String body, int authorId)
+      throws SQLException {
+    try (PreparedStatement answerStatement = connection.prepareStatement(
+        SqlStatements.INSERT_ANSWER, Statement.RETURN_GENERATED_KEYS)) {
       answerStatement.setInt(SqlConstants.ANSWER_INSERT_QUESTIONID, questionId);
       answerStatement.setString(SqlConstants.ANSWER_INSERT_BODY, body);
       answerStatement.setInt(SqlConstants.ANSWER_INSERT_AUTHORID, authorId);
-      answerStatement.executeUpdate();
-    } catch (SQLException exception) {
-      // If the connection or the query don't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(AnswerServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
+      return Utility.executeInsertForId(answerStatement);
     }
   }
-
-  /** 
-   * Gets the ID from the last answer posted. Returns -1 on query failure.
-   */
-  private int getLatestAnswerId(Connection connection) {
-    int id = -1;
-    try {
-      String maxIdQuery = "SELECT MAX(id) FROM Answer;";
-      PreparedStatement maxIdStatement = connection.prepareStatement(maxIdQuery);
-      ResultSet queryResult = maxIdStatement.executeQuery();
-      queryResult.next();
-      id = queryResult.getInt(SqlConstants.ANSWER_FETCH_MAXID);
-    } catch (SQLException exception) {
-      // If the connection or the query don't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(AnswerServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
-    }
-
-    return id;
-  }
 }
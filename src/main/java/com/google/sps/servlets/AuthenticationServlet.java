@@ -56,8 +56,9 @@ public class AuthenticationServlet extends HttpServlet {
 
       int userId = Utility.getUserId(request);
       if (userId != Utility.USER_LOGGED_OUT_ID) {
-        // If user is registered, change isUserRegistered to true.
+        // If user is registered, change isUserRegistered to true and keep their ID in a session.
         isUserRegistered = true;
+        Utility.startUserSession(request, email, userId);
       }
     } else {
       // If user is logged out, set authenticationUrl to login URL.
@@ -0,0 +1,119 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.classes.Comment;
+import com.google.sps.classes.CommentPage;
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
+import com.google.sps.classes.Utility;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** 
+ * This servlet fetches the comments of an answer one page at a time. The newest comments are
+ * sent along with the answer by AnswerServlet; this one sends the older ones.
+ */
+@WebServlet("/comments")
+public class CommentServlet extends HttpServlet {
+
+  /** 
+   * Gets the page of comments posted before the cursor, or the newest page if there is none, and
+   * sends it back as JSON. Pages carry the ETag of the question of the answer, like the answers.
+   */
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int answerId = Utility.tryParseInt(request.getParameter("answer-id"));
+    String cursor = request.getParameter("cursor");
+
+    // Even a page older than the cursor can change: a comment gets its time when it is inserted,
+    // not when it is committed, and the page may come from a replica that lags behind. Without
+    // the ID of the question, the page has no ETag and is always sent.
+    int questionId = Utility.tryParseInt(request.getParameter("question-id"));
+    String etag = questionId > 0
+        ? Utility.getEtag(request, ContentVersions.question(questionId)) : null;
+    if (Utility.respondIfNotModified(etag, /*isPublic=*/true, request, response)) {
+      return;
+    }
+
+    // A cursor that can't be parsed is treated as a request for the newest page.
+    String[] cursorValues = cursor != null
+        ? cursor.split(Utility.CURSOR_SEPARATOR) : new String[0];
+    boolean hasCursor = cursorValues.length == 2;
+    Timestamp cursorDateTime = null;
+    int cursorId = 0;
+    if (hasCursor) {
+      try {
+        cursorDateTime = new Timestamp(Long.parseLong(cursorValues[0]));
+        cursorId = Integer.parseInt(cursorValues[1]);
+      } catch (NumberFormatException exception) {
+        hasCursor = false;
+      }
+    }
+
+    String query = hasCursor
+        ? SqlStatements.FETCH_OLDER_COMMENT_PAGE : SqlStatements.FETCH_NEWEST_COMMENT_PAGE;
+    List<Comment> comments = new ArrayList<>();
+    boolean hasOlderComments = false;
+    try (Connection connection = Utility.getConnection(request);
+        PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+      int parameterIndex = SqlConstants.COMMENT_PAGE_SET_ANSWERID;
+      preparedStatement.setInt(parameterIndex++, answerId);
+      if (hasCursor) {
+        preparedStatement.setTimestamp(parameterIndex++, cursorDateTime);
+        preparedStatement.setTimestamp(parameterIndex++, cursorDateTime);
+        preparedStatement.setInt(parameterIndex++, cursorId);
+      }
+      // One more comment than the page is fetched to know if there are older ones.
+      preparedStatement.setInt(parameterIndex, SqlConstants.COMMENT_PAGE_SIZE + 1);
+
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        while (queryResult.next()) {
+          if (comments.size() == SqlConstants.COMMENT_PAGE_SIZE) {
+            hasOlderComments = true;
+            break;
+          }
+          comments.add(Utility.buildComment(queryResult));
+        }
+      }
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(CommentServlet.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+
+    // Comments are fetched newest first and sent in the order they were posted.
+    Collections.reverse(comments);
+    String olderCommentsCursor = hasOlderComments
+        ? Utility.buildCursor(comments.get(0).getDateTime(), comments.get(0).getId()) : null;
+
+    response.setContentType("application/json;");
+    Utility.writeJsonUsingGson(new CommentPage(comments, olderCommentsCursor), response);
+  }
+}
@@ -14,7 +14,9 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.classes.ContentVersions;
 import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
 import java.sql.Connection;
@@ -43,35 +45,60 @@ public class FollowerSystemServlet extends HttpServlet {
     int questionId = Utility.tryParseInt(request.getParameter("question-id"));
     int userId = Utility.getUserId(request);
 
-    Connection connection = Utility.getConnection(request);
-    updateFollower(type, connection, questionId, userId);
+    boolean isCommitted = false;
+    try (Connection connection = Utility.getConnection(request)) {
+      isCommitted = updateFollower(type, connection, questionId, userId);
+    } catch (SQLException exception) {
+      // If the connection isn't closed we get the log of what happened.
+      Logger logger = Logger.getLogger(FollowerSystemServlet.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+    // Nothing changed if the transaction was rolled back, so the caches are left as they are.
+    if (!isCommitted) {
+      return;
+    }
+    Utility.invalidateForumPages(request);
+    Utility.bumpContentVersion(ContentVersions.question(questionId), request);
+    Utility.updateFollowedQuestions(userId, questionId, type.equals("follow"), request);
   }
 
 
   /** 
-   * If the user follows a question, now they don't, and viceversa.
+   * If the user follows a question, now they don't, and viceversa. The follower counter of the
+   * question is updated in the same transaction. Returns true if the transaction was committed.
    */
-  private void updateFollower(String type, Connection connection, int questionId, int userId) {
+  private boolean updateFollower(String type, Connection connection, int questionId,
+      int userId) {
     String followerQuery;
+    int counterValue;
     if (type.equals("follow")) {
       // Inserting follower query.
-      followerQuery = "INSERT INTO QuestionFollower(question_id, follower_id) "
-          + "VALUES (?,?)";
+      followerQuery = SqlStatements.INSERT_QUESTION_FOLLOWER;
+      counterValue = 1;
     } else {
       // Deleting follower query.
-      followerQuery = "DELETE FROM QuestionFollower "
-          + "WHERE question_id=? AND follower_id=?;";
+      followerQuery = SqlStatements.DELETE_QUESTION_FOLLOWER;
+      counterValue = -1;
     }
-    try {
-      PreparedStatement followerStatement = connection.prepareStatement(followerQuery);
+    try (PreparedStatement followerStatement = connection.prepareStatement(followerQuery)) {
+      connection.setAutoCommit(false);
       followerStatement.setInt(SqlConstants.FOLLOWER_QUERY_QUESTIONID, questionId);
       followerStatement.setInt(SqlConstants.FOLLOWER_QUERY_USERID, userId);
-      followerStatement.executeUpdate();
-      connection.close();
+      // The counter only changes if a follower was actually inserted or deleted. A repeated
+      // follow fails on the primary key and a repeated unfollow deletes nothing.
+      if (followerStatement.executeUpdate() > 0) {
+        Utility.updateCounter(connection, SqlStatements.UPDATE_NUMBER_OF_FOLLOWERS,
+            questionId, counterValue);
+      }
+      connection.commit();
+      connection.setAutoCommit(true);
+      return true;
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
+      Utility.rollbackTransaction(connection);
       Logger logger = Logger.getLogger(FollowerSystemServlet.class.getName());
       logger.log(Level.SEVERE, exception.getMessage(), exception);
     }
+    return false;
   }
 }
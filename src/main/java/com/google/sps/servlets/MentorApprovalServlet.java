@@ -18,6 +18,7 @@ import com.google.appengine.api.users.UserService;
 import com.google.appengine.api.users.UserServiceFactory;
 import com.google.sps.classes.MentorEvidence;
 import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
 import java.sql.*;
@@ -27,7 +28,6 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.ServletException;
 
 /**
  * Servlet that handles mentor evidence for approver to see.
@@ -61,25 +61,19 @@ public class MentorApprovalServlet extends HttpServlet {
       approverStatus = checkForApprover(mentorId, userId, request);
       mentorUsername = Utility.getUsername(mentorId, request);
 
-      // Create the MySQL prepared statement.
-      String query = "SELECT * FROM MentorEvidence "
-          + "WHERE mentor_id = " + Integer.toString(mentorId);
-
-      try {
-        // Establish connection to MySQL database.
-        Connection connection = Utility.getConnection(request);
-        
-        // Create the MySQL SELECT prepared statement.
-        PreparedStatement preparedStatement = connection.prepareStatement(query);
-        ResultSet queryResult = preparedStatement.executeQuery();
-
-        // Get results from query.
-        if (queryResult.next()) {
-          isApproved = queryResult.getBoolean(SqlConstants.MENTOR_EVIDENCE_FETCH_ISAPPROVED);
-          isRejected = queryResult.getBoolean(SqlConstants.MENTOR_EVIDENCE_FETCH_ISREJECTED); 
-          paragraph = queryResult.getString(SqlConstants.MENTOR_EVIDENCE_FETCH_PARAGRAPH);
+      // Establish connection to MySQL database and create the MySQL SELECT prepared statement.
+      try (Connection connection = Utility.getConnection(request);
+          PreparedStatement preparedStatement =
+              connection.prepareStatement(SqlStatements.FETCH_MENTOR_EVIDENCE)) {
+        preparedStatement.setInt(SqlConstants.MENTOR_EVIDENCE_SET_MENTORID, mentorId);
+        try (ResultSet queryResult = preparedStatement.executeQuery()) {
+          // Get results from query.
+          if (queryResult.next()) {
+            isApproved = queryResult.getBoolean(SqlConstants.MENTOR_EVIDENCE_FETCH_ISAPPROVED);
+            isRejected = queryResult.getBoolean(SqlConstants.MENTOR_EVIDENCE_FETCH_ISREJECTED);
+            paragraph = queryResult.getString(SqlConstants.MENTOR_EVIDENCE_FETCH_PARAGRAPH);
+          }
         }
-        connection.close();
       } catch (SQLException exception) {
         // If the connection or the query don't go through, we get the log of what happened.
         Logger logger = Logger.getLogger(MentorApprovalServlet.class.getName());
@@ -110,17 +104,10 @@ public class MentorApprovalServlet extends HttpServlet {
     // If mentor review is complete, send them a notification.
     String notificationType = Utility.getReviewStatus(mentorId, request);
 
-    // Post to notification servlet.
+    // Queue the notification, which is created by a task of the notifications queue.
     if (!notificationType.equals("")) {
       // If mentor is approved, send notification of type 'approved'.
-      response.setContentType("text/plain");
-      try {
-        request.getRequestDispatcher("/notification?type=" + notificationType +
-            "&modifiedElementId=" + mentorId).include(request, response);
-      } catch (ServletException exception) {
-        Logger logger = Logger.getLogger(MentorApprovalServlet.class.getName());
-        logger.log(Level.SEVERE, exception.getMessage(), exception);
-      }
+      Utility.enqueueNotification(notificationType, mentorId, request);
     }
   }
 
@@ -133,27 +120,20 @@ public class MentorApprovalServlet extends HttpServlet {
   private boolean[] checkForApprover(int mentorId, int approverId, HttpServletRequest request) {
     boolean[] approver = {false, false};
 
-    // Create the MySQL prepared statement.
-    String query = "SELECT * FROM MentorApproval "
-        + "WHERE mentor_id = ? AND approver_id = ?";
-
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = Utility.getConnection(request);
-      
-      // Create and execute the MySQL SELECT prepared statement.
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
+    // Establish connection to MySQL database and create the MySQL SELECT prepared statement.
+    try (Connection connection = Utility.getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_MENTOR_APPROVAL)) {
       preparedStatement.setInt(SqlConstants.MENTOR_APPROVAL_FETCH_MENTORID, mentorId);
       preparedStatement.setInt(SqlConstants.MENTOR_APPROVAL_FETCH_APPROVERID, approverId);
-      ResultSet queryResult = preparedStatement.executeQuery();
-
-      // If link is found between mentor and approver in MentorApproval table, set first index as
-      // true and get result for other index.
-      if (queryResult.next()) {
-        approver[0] = true;
-        approver[1] = queryResult.getBoolean(SqlConstants.MENTOR_APPROVAL_FETCH_ISREVIEWED);
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        // If link is found between mentor and approver in MentorApproval table, set first index
+        // as true and get result for other index.
+        if (queryResult.next()) {
+          approver[0] = true;
+          approver[1] = queryResult.getBoolean(SqlConstants.MENTOR_APPROVAL_FETCH_ISREVIEWED);
+        }
       }
-      connection.close();
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(MentorApprovalServlet.class.getName());
@@ -166,12 +146,9 @@ public class MentorApprovalServlet extends HttpServlet {
    * Updates the is_reviewed variable in MentorApproval table.
    */
   private void addApproval(int mentorId, int approverId, HttpServletRequest request) {
-    // Create and execute the MySQL query.
-    String query = "UPDATE MentorApproval "
-        + "SET is_reviewed = TRUE "
-        + "WHERE mentor_id = " + Integer.toString(mentorId)
-        + " AND approver_id = " + Integer.toString(approverId);
-    Utility.executeQuery(query, request);
+    // Execute the MySQL statement.
+    Utility.executeQuery(SqlStatements.UPDATE_MENTOR_APPROVAL_REVIEWED, request, mentorId,
+        approverId);
   }
 
   /**
@@ -187,22 +164,16 @@ public class MentorApprovalServlet extends HttpServlet {
     if(isApproved && numberOfApprovals == 1) {
       // If user is approved by approver, and already has one approval,
       // increment number of approvals and update is_approved in MentorEvidence table.
-      query = "UPDATE MentorEvidence "
-          + "SET approvals = 2, is_approved = TRUE "
-          + "WHERE mentor_id = " + Integer.toString(mentorId);
+      query = SqlStatements.UPDATE_MENTOR_EVIDENCE_APPROVED;
     } else if (isApproved && numberOfApprovals == 0) {
       // If user is approved by approver, but has no previous approvals,
       // increment number of approvals in MentorEvidence table.
-      query = "UPDATE MentorEvidence "
-          + "SET approvals = 1 "
-          + "WHERE mentor_id = " + Integer.toString(mentorId);
+      query = SqlStatements.UPDATE_MENTOR_EVIDENCE_FIRST_APPROVAL;
     } else {
       // If user is rejected, update is_rejected in MentorEvidence table.
-      query = "UPDATE MentorEvidence "
-          + "SET is_rejected = TRUE "
-          + "WHERE mentor_id = " + Integer.toString(mentorId);
+      query = SqlStatements.UPDATE_MENTOR_EVIDENCE_REJECTED;
     }
-    Utility.executeQuery(query, request);
+    Utility.executeQuery(query, request, mentorId);
   }
 
   /**
@@ -211,23 +182,17 @@ public class MentorApprovalServlet extends HttpServlet {
   private int getNumberOfApprovals(int mentorId, HttpServletRequest request) {
     int numberOfApprovals = 0;
 
-    // Create the MySQL prepared statement.
-    String query = "SELECT * FROM MentorEvidence "
-        + "WHERE mentor_id = " + Integer.toString(mentorId);
-
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = Utility.getConnection(request);
-      
-      // Create and execute the MySQL SELECT prepared statement.
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
-      ResultSet queryResult = preparedStatement.executeQuery();
-      
-      // Get results from query.
-      if (queryResult.next()) {
-        numberOfApprovals = queryResult.getInt(SqlConstants.MENTOR_EVIDENCE_FETCH_APPROVALS);
+    // Establish connection to MySQL database and execute the MySQL SELECT prepared statement.
+    try (Connection connection = Utility.getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_MENTOR_EVIDENCE)) {
+      preparedStatement.setInt(SqlConstants.MENTOR_EVIDENCE_SET_MENTORID, mentorId);
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        // Get results from query.
+        if (queryResult.next()) {
+          numberOfApprovals = queryResult.getInt(SqlConstants.MENTOR_EVIDENCE_FETCH_APPROVALS);
+        }
       }
-      connection.close();
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(MentorApprovalServlet.class.getName());
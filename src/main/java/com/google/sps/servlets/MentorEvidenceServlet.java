@@ -15,16 +15,14 @@
 package com.google.sps.servlets;
 
 import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
 import java.sql.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.ServletException;
 import javax.sql.DataSource;
 
 /**
@@ -51,15 +49,8 @@ public class MentorEvidenceServlet extends HttpServlet {
     updateMentorEvidence(mentorId, paragraph, request);
     addApprovers(mentorId, request);
 
-    // Call NotificationServlet to notify approvers.
-    response.setContentType("text/plain");
-    try {
-      request.getRequestDispatcher("/notification?type=requestApproval&modifiedElementId="
-          + mentorId).include(request, response);
-    } catch (ServletException exception) {
-      Logger logger = Logger.getLogger(MentorApprovalServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
-    }
+    // Queue the notification of the approvers, which is created by a queued task.
+    Utility.enqueueNotification("requestApproval", mentorId, request);
     response.sendRedirect("/index.html");
   }
 
@@ -67,40 +58,37 @@ public class MentorEvidenceServlet extends HttpServlet {
    * Deletes existing notifications related to current mentor's approval from database.
    */
   private void deleteApprovalNotifications(int mentorId, HttpServletRequest request) {
-    // Set up query to delete all relations of users to notifications of this mentor approval.
-    String query = "DELETE FROM UserNotification "
-        + "WHERE notification_id IN "
-        + "(SELECT id FROM Notification "
-        + "WHERE url = '/approval.html?id=" + mentorId + "')";
-    Utility.executeQuery(query, request);
+    String approvalUrl = "/approval.html?id=" + mentorId;
+    // The unread ones stop counting for their users before they are deleted.
+    Utility.executeQuery(SqlStatements.DECREMENT_UNREAD_NOTIFICATIONS_WITH_URL, request,
+        approvalUrl);
+
+    // Delete all relations of users to notifications of this mentor approval.
+    Utility.executeQuery(SqlStatements.DELETE_USER_NOTIFICATIONS_WITH_URL, request, approvalUrl);
+
+    // Delete all notifications related to mentor.
+    Utility.executeQuery(SqlStatements.DELETE_NOTIFICATIONS_WITH_URL, request, approvalUrl);
 
-    // Set up query to delete all notifications related to mentor.
-    query = "DELETE FROM Notification "
-        + "WHERE url = '/approval.html?id=" + mentorId + "'";
-    Utility.executeQuery(query, request);
+    // The users of the deleted notifications aren't known here, so every cached inbox is dropped.
+    Utility.getRecentNotificationsCache(request.getServletContext()).invalidateAll();
   }
 
   /**
    * Deletes approvers assigned to mentor from database.
    */
   private void deleteApprovers(int mentorId, HttpServletRequest request) {
-    // Set up query to delete assigned approvers.
-    String query = "DELETE FROM MentorApproval "
-        + "WHERE mentor_id = " + mentorId;
-    Utility.executeQuery(query, request);
+    // Delete assigned approvers.
+    Utility.executeQuery(SqlStatements.DELETE_MENTOR_APPROVALS, request, mentorId);
   }
 
   /**
    * Updates evidence provided by mentor in MentorEvidence table.
    */
   private void updateMentorEvidence(int mentorId, String paragraph, HttpServletRequest request) {
-    // Set up query to insert new experience tag to user.
-    // Use replace in case mentor evidence already exists in database and mentor wants to update
+    // Use update in case mentor evidence already exists in database and mentor wants to update
     // their information.
-    String query = "UPDATE MentorEvidence "
-        + "SET paragraph = '" + paragraph + "', is_rejected = FALSE "
-        + "WHERE mentor_id = " + mentorId;
-    Utility.executeQuery(query, request);
+    Utility.executeQuery(SqlStatements.UPDATE_MENTOR_EVIDENCE_PARAGRAPH, request, paragraph,
+        mentorId);
   }
 
   /**
@@ -112,10 +100,8 @@ public class MentorEvidenceServlet extends HttpServlet {
     int[] approvers = {SqlConstants.SHAAR_USER_ID, SqlConstants.ANDRES_USER_ID, SqlConstants.OMAR_USER_ID};
 
     for (int approverId : approvers) {
-      // Set up query to insert approver to mentor's list of approvers to user.
-      String query = "INSERT INTO MentorApproval (mentor_id, approver_id, is_reviewed) "
-          + "VALUES (" + mentorId + ", " + approverId + ", FALSE)";
-      Utility.executeQuery(query, request);
+      // Insert approver to mentor's list of approvers to user.
+      Utility.executeQuery(SqlStatements.INSERT_MENTOR_APPROVAL, request, mentorId, approverId);
     }
   }
 }
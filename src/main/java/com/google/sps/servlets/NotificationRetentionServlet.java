@@ -0,0 +1,347 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.LruCache;
+import com.google.sps.classes.QueueConstants;
+import com.google.sps.classes.RecentNotifications;
+import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
+import com.google.sps.classes.Utility;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** 
+ * This servlet keeps the Notification and UserNotification tables small, so the inbox queries
+ * don't slow down as notifications pile up. It moves to the archive tables the notifications
+ * older than the retention period, then the oldest notifications of each user beyond the cap,
+ * and last the notifications left without users by the cap. It also deletes the keys of the
+ * notification events once their tasks can't be retried anymore. It is called periodically by
+ * the cron job defined in cron.xml.
+ */
+@WebServlet("/notification-retention")
+public class NotificationRetentionServlet extends HttpServlet {
+
+  /** 
+   * Moves the notifications in batches, each in its own short transaction, so the tables are
+   * never locked for long and the inbox keeps working while the job runs.
+   */
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // App Engine removes this header from external requests, so it can only be set by cron.
+    if (!"true".equals(request.getHeader("X-Appengine-Cron"))) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    Timestamp retentionCutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(
+        Utility.getSetting(QueueConstants.NOTIFICATION_RETENTION_DAYS_PROPERTY,
+            QueueConstants.NOTIFICATION_RETENTION_DAYS)));
+    int capPerUser = (int) Utility.getSetting(QueueConstants.NOTIFICATION_CAP_PER_USER_PROPERTY,
+        QueueConstants.NOTIFICATION_CAP_PER_USER);
+
+    int archivedOldNotifications = 0;
+    int archivedUserNotifications = 0;
+    int archivedOrphanNotifications = 0;
+    try (Connection connection = Utility.getConnection(request)) {
+      archivedOldNotifications = archiveOldNotifications(connection, retentionCutoff);
+      Set<Integer> cappedNotificationIds = new TreeSet<>();
+      archivedUserNotifications =
+          archiveNotificationsOverCap(connection, capPerUser, cappedNotificationIds);
+      archivedOrphanNotifications = archiveOrphanNotifications(connection, cappedNotificationIds);
+      deleteOldEventKeys(connection);
+      if (archivedOldNotifications + archivedUserNotifications > 0) {
+        // Every inbox may have lost notifications, so they all get a new ETag.
+        Utility.bumpContentVersions(Collections.singletonList(ContentVersions.ALL), connection,
+            request.getServletContext());
+      }
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(NotificationRetentionServlet.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+
+    if (archivedOldNotifications + archivedUserNotifications > 0) {
+      // The inboxes and unread counters cached by this instance may include archived
+      // notifications. Other instances drop theirs once they expire.
+      LruCache<Integer, RecentNotifications> recentNotificationsCache =
+          Utility.getRecentNotificationsCache(request.getServletContext());
+      if (recentNotificationsCache != null) {
+        recentNotificationsCache.invalidateAll();
+      }
+    }
+
+    response.setContentType("text/plain");
+    response.getWriter().println("Archived old notifications: " + archivedOldNotifications);
+    response.getWriter().println("Archived notifications over the cap of their users: "
+        + archivedUserNotifications);
+    response.getWriter().println("Archived notifications without users: "
+        + archivedOrphanNotifications);
+  }
+
+  /** 
+   * Moves the notifications older than the cutoff, along with the relationships with their
+   * users, in batches of the oldest IDs. Returns the number of notifications moved.
+   */
+  private int archiveOldNotifications(Connection connection, Timestamp cutoff)
+      throws SQLException {
+    int archivedNotifications = 0;
+    try (PreparedStatement batchStatement =
+        connection.prepareStatement(SqlStatements.FETCH_RETENTION_BATCH_MAXID)) {
+      batchStatement.setTimestamp(SqlConstants.RETENTION_SET_CUTOFF, cutoff);
+      batchStatement.setInt(SqlConstants.RETENTION_SET_LIMIT, SqlConstants.RETENTION_BATCH_SIZE);
+      for (int batch = 0; batch < QueueConstants.NOTIFICATION_RETENTION_MAX_BATCHES; batch++) {
+        int maxId;
+        try (ResultSet queryResult = batchStatement.executeQuery()) {
+          queryResult.next();
+          // The largest ID is NULL, read as 0, once there are no old notifications left.
+          maxId = queryResult.getInt(SqlConstants.RETENTION_FETCH_MAXID);
+        }
+        if (maxId == 0) {
+          break;
+        }
+        try {
+          connection.setAutoCommit(false);
+          updateOldNotifications(connection, SqlStatements.ARCHIVE_OLD_NOTIFICATIONS, maxId,
+              cutoff);
+          updateOldNotifications(connection, SqlStatements.ARCHIVE_OLD_USER_NOTIFICATIONS, maxId,
+              cutoff);
+          // The unread ones stop counting for their users before they are deleted.
+          updateOldNotifications(connection, SqlStatements.DECREMENT_UNREAD_OLD_NOTIFICATIONS,
+              maxId, cutoff);
+          updateOldNotifications(connection, SqlStatements.DELETE_OLD_USER_NOTIFICATIONS, maxId,
+              cutoff);
+          archivedNotifications += updateOldNotifications(connection,
+              SqlStatements.DELETE_OLD_NOTIFICATIONS, maxId, cutoff);
+          connection.commit();
+          connection.setAutoCommit(true);
+        } catch (SQLException exception) {
+          Utility.rollbackTransaction(connection);
+          throw exception;
+        }
+      }
+    }
+    return archivedNotifications;
+  }
+
+  /** 
+   * Deletes the keys of the notification events older than their retention, whose tasks are
+   * long done retrying. The keys are small and few, so a single statement deletes them.
+   */
+  private void deleteOldEventKeys(Connection connection) throws SQLException {
+    try (PreparedStatement statement =
+        connection.prepareStatement(SqlStatements.DELETE_OLD_NOTIFICATION_TASKS)) {
+      statement.setTimestamp(SqlConstants.NOTIFICATION_TASK_SET_CUTOFF, Timestamp.valueOf(
+          LocalDateTime.now().minusDays(QueueConstants.NOTIFICATION_TASK_KEY_RETENTION_DAYS)));
+      statement.executeUpdate();
+    }
+  }
+
+  /** 
+   * Runs a statement over the notifications up to the given ID older than the cutoff, and
+   * returns the number of rows it changed.
+   */
+  private int updateOldNotifications(Connection connection, String query, int maxId,
+      Timestamp cutoff) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(query)) {
+      statement.setInt(SqlConstants.RETENTION_SET_MAXID, maxId);
+      statement.setTimestamp(SqlConstants.RETENTION_SET_DATETIME, cutoff);
+      return statement.executeUpdate();
+    }
+  }
+
+  /** 
+   * Moves the oldest notifications of each user with more than the cap, in batches, until they
+   * have the cap. The notifications themselves stay for their other users, and their IDs are
+   * added to cappedNotificationIds. Returns the number of relationships between users and
+   * notifications moved.
+   */
+  private int archiveNotificationsOverCap(Connection connection, int capPerUser,
+      Set<Integer> cappedNotificationIds) throws SQLException {
+    Map<Integer, Integer> notificationsPerUser = new LinkedHashMap<>();
+    try (PreparedStatement statement =
+        connection.prepareStatement(SqlStatements.FETCH_USERS_OVER_NOTIFICATION_CAP)) {
+      statement.setInt(SqlConstants.CAP_SET_CAP, capPerUser);
+      try (ResultSet queryResult = statement.executeQuery()) {
+        while (queryResult.next()) {
+          notificationsPerUser.put(queryResult.getInt(SqlConstants.CAP_FETCH_USERID),
+              queryResult.getInt(SqlConstants.CAP_FETCH_COUNT));
+        }
+      }
+    }
+
+    int archivedUserNotifications = 0;
+    int batches = 0;
+    for (Map.Entry<Integer, Integer> userNotifications : notificationsPerUser.entrySet()) {
+      int userId = userNotifications.getKey();
+      int excess = userNotifications.getValue() - capPerUser;
+      while (excess > 0 && batches < QueueConstants.NOTIFICATION_RETENTION_MAX_BATCHES) {
+        batches++;
+        int moved = archiveOldestNotificationsOfUser(connection, userId,
+            Math.min(excess, SqlConstants.RETENTION_BATCH_SIZE), cappedNotificationIds);
+        if (moved == 0) {
+          break;
+        }
+        archivedUserNotifications += moved;
+        excess -= moved;
+      }
+    }
+    return archivedUserNotifications;
+  }
+
+  /** 
+   * Moves the given number of the oldest notifications of a user in a single transaction, adds
+   * their IDs to cappedNotificationIds, and returns the number moved.
+   */
+  private int archiveOldestNotificationsOfUser(Connection connection, int userId,
+      int batchSize, Set<Integer> cappedNotificationIds) throws SQLException {
+    Timestamp boundDateTime;
+    int boundNotificationId;
+    // The newest notification of the batch bounds the range of every statement.
+    try (PreparedStatement boundStatement =
+        connection.prepareStatement(SqlStatements.FETCH_CAP_BATCH_BOUND)) {
+      boundStatement.setInt(SqlConstants.CAP_SET_USERID, userId);
+      boundStatement.setInt(SqlConstants.CAP_SET_OFFSET, batchSize - 1);
+      try (ResultSet queryResult = boundStatement.executeQuery()) {
+        if (!queryResult.next()) {
+          return 0;
+        }
+        boundDateTime = queryResult.getTimestamp(SqlConstants.CAP_FETCH_DATETIME);
+        boundNotificationId = queryResult.getInt(SqlConstants.CAP_FETCH_NOTIFICATIONID);
+      }
+    }
+
+    try {
+      connection.setAutoCommit(false);
+      List<Integer> notificationIds = new ArrayList<>();
+      try (PreparedStatement idStatement =
+          connection.prepareStatement(SqlStatements.FETCH_CAPPED_NOTIFICATION_IDS)) {
+        setNotificationsOfUser(idStatement, userId, boundDateTime, boundNotificationId);
+        try (ResultSet queryResult = idStatement.executeQuery()) {
+          while (queryResult.next()) {
+            notificationIds.add(queryResult.getInt(SqlConstants.CAPPED_FETCH_NOTIFICATIONID));
+          }
+        }
+      }
+      updateNotificationsOfUser(connection, SqlStatements.ARCHIVE_CAPPED_NOTIFICATIONS, userId,
+          boundDateTime, boundNotificationId);
+      updateNotificationsOfUser(connection, SqlStatements.ARCHIVE_CAPPED_USER_NOTIFICATIONS,
+          userId, boundDateTime, boundNotificationId);
+      // The unread ones stop counting for the user before they are deleted.
+      try (PreparedStatement counterStatement = connection.prepareStatement(
+          SqlStatements.DECREMENT_UNREAD_CAPPED_NOTIFICATIONS)) {
+        setNotificationsOfUser(counterStatement, userId, boundDateTime, boundNotificationId);
+        counterStatement.setInt(SqlConstants.CAP_DECREMENT_SET_USERID, userId);
+        counterStatement.executeUpdate();
+      }
+      int moved = updateNotificationsOfUser(connection,
+          SqlStatements.DELETE_CAPPED_USER_NOTIFICATIONS, userId, boundDateTime,
+          boundNotificationId);
+      connection.commit();
+      connection.setAutoCommit(true);
+      cappedNotificationIds.addAll(notificationIds);
+      return moved;
+    } catch (SQLException exception) {
+      Utility.rollbackTransaction(connection);
+      throw exception;
+    }
+  }
+
+  /** 
+   * Runs a statement over the notifications of a user up to the bound, and returns the number of
+   * rows it changed.
+   */
+  private int updateNotificationsOfUser(Connection connection, String query, int userId,
+      Timestamp boundDateTime, int boundNotificationId) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(query)) {
+      setNotificationsOfUser(statement, userId, boundDateTime, boundNotificationId);
+      return statement.executeUpdate();
+    }
+  }
+
+  private void setNotificationsOfUser(PreparedStatement statement, int userId,
+      Timestamp boundDateTime, int boundNotificationId) throws SQLException {
+    statement.setInt(SqlConstants.CAP_SET_USERID, userId);
+    statement.setTimestamp(SqlConstants.CAP_SET_BOUND_DATETIME, boundDateTime);
+    statement.setInt(SqlConstants.CAP_SET_BOUND_NOTIFICATIONID, boundNotificationId);
+  }
+
+  /** 
+   * Moves the notifications among the given ones that no user has anymore, in batches. Only the
+   * notifications whose users were moved by the cap are checked, so the work is bounded by that
+   * of the cap. Returns the number of notifications moved.
+   */
+  private int archiveOrphanNotifications(Connection connection,
+      Collection<Integer> notificationIds) throws SQLException {
+    List<Integer> remainingIds = new ArrayList<>(notificationIds);
+    int archivedNotifications = 0;
+    for (int start = 0; start < remainingIds.size(); start += SqlConstants.RETENTION_BATCH_SIZE) {
+      List<Integer> batchIds = remainingIds.subList(start,
+          Math.min(start + SqlConstants.RETENTION_BATCH_SIZE, remainingIds.size()));
+      try {
+        connection.setAutoCommit(false);
+        updateOrphanNotifications(connection, SqlStatements.ARCHIVE_ORPHAN_NOTIFICATION,
+            batchIds);
+        archivedNotifications += updateOrphanNotifications(connection,
+            SqlStatements.DELETE_ORPHAN_NOTIFICATION, batchIds);
+        connection.commit();
+        connection.setAutoCommit(true);
+      } catch (SQLException exception) {
+        Utility.rollbackTransaction(connection);
+        throw exception;
+      }
+    }
+    return archivedNotifications;
+  }
+
+  /** 
+   * Runs a statement over each of the given notifications, as a single batch, and returns the
+   * number of rows it changed.
+   */
+  private int updateOrphanNotifications(Connection connection, String query,
+      List<Integer> notificationIds) throws SQLException {
+    int changedRows = 0;
+    try (PreparedStatement statement = connection.prepareStatement(query)) {
+      for (int notificationId : notificationIds) {
+        statement.setInt(SqlConstants.ORPHAN_SET_ID, notificationId);
+        statement.addBatch();
+      }
+      for (int rows : statement.executeBatch()) {
+        changedRows += Math.max(rows, 0);
+      }
+    }
+    return changedRows;
+  }
+}
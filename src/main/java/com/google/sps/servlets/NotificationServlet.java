@@ -14,23 +14,18 @@
  
 package com.google.sps.servlets;
  
-import com.google.sps.classes.Notification;
-import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.NotificationPage;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
 import java.sql.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.ServletException;
-import javax.sql.DataSource;
  
 /**
 * Servlet that handles the fetching and posting of notifications.
@@ -38,219 +33,52 @@ import javax.sql.DataSource;
 @WebServlet("/notification")
 public class NotificationServlet extends HttpServlet {
   /**
-   * Fetches the notifications of a specific user.
+   * Fetches a page of the notifications of a specific user, the newest one or the one older than
+   * the cursor.
    */
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
     // Get user's ID from Utility method.
     int userId = Utility.getUserId(request);
-    // Fetch notifications if user is signed in and convert the ArrayList to JSON
+    String etag = Utility.getEtag(request, ContentVersions.inbox(userId));
+    if (Utility.respondIfNotModified(etag, /*isPublic=*/false, request, response)) {
+      return;
+    }
+    // Fetch notifications if user is signed in and write the page as JSON to the response
     // using Utility method.
     response.setContentType("application/json;");
-    response.getWriter().println(Utility.convertToJsonUsingGson(getNotifications(userId, request)));
+    Utility.writeJsonUsingGson(
+        getNotifications(userId, request.getParameter("cursor"), request), response);
   }
 
   /**
-   * Posts a new notification for all followers of a modified question or answer.
+   * Queues a new notification for all followers of a modified question or answer. It is created
+   * by a task of the notifications queue, so the request returns without waiting for it.
    */
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    // Define local time for the new entries in the server.
-    Timestamp localTimestamp = Timestamp.valueOf(LocalDateTime.now());
     // Check if notification is about a question answered, answer commented, or mentor approval, 
     // along with its id.
     String typeOfNotification = request.getParameter("type");
     int modifiedElementId = Utility.tryParseInt(request.getParameter("modifiedElementId"));
-
-    // URL to which the user will be redirected.
-    String notificationUrl = "";
-    String notificationMessage = "";
-    String query = "";
-    if (typeOfNotification.equals("question")) {
-      // If the notification is for an anwer to a question.
-      query =  "SELECT follower_id FROM QuestionFollower WHERE question_id = " + modifiedElementId;
-      notificationUrl = "/question.html?id=" + modifiedElementId;
-      notificationMessage = "Your question was answered.";
-    } else if (typeOfNotification.equals("answer")) {
-      // If the notification is for a new comment in an answer.
-      query =  "SELECT follower_id FROM AnswerFollower WHERE answer_id = " + modifiedElementId;
-      notificationUrl = "/question.html?id=" + getIdOfAnsweredQuestion(modifiedElementId, request);
-      notificationMessage = "Your answer was commented."; 
-    } else if (typeOfNotification.equals("requestApproval")) {
-      // If the notification is for a mentor approval.
-      query = "SELECT approver_id FROM MentorApproval WHERE mentor_id = " + modifiedElementId;
-      notificationUrl = "/approval.html?id=" + modifiedElementId;
-      notificationMessage = "A mentor requests your approval.";
-    } else if (typeOfNotification.equals("approved")) {
-      // If the notification is for a mentor being approved.
-      query = "SELECT id FROM User WHERE id = " + modifiedElementId;
-      notificationUrl = "/approval.html?id=" + modifiedElementId;
-      notificationMessage = "You have been approved as a mentor!";
-    } else if (typeOfNotification.equals("rejected")) {
-      // If the notification is for a mentor being approved.
-      query = "SELECT id FROM User WHERE id = " + modifiedElementId;
-      notificationUrl = "/approval.html?id=" + modifiedElementId;
-      notificationMessage = "Your mentor review has been rejected. Update your information to re-apply!";
-    }
-    // Creates notification and relationship between its ID and the ID of the concerned users.
-    createNotification(query, notificationUrl, notificationMessage, localTimestamp, request);
-    if (!Utility.IS_LOCALLY_DEPLOYED) {
-      // If deployiong to cloud, call email servlet to generate a message and send it in an email.
-      redirectEmailServlet(typeOfNotification, modifiedElementId, request, response);
-    }
-  }
-
-  /**
-   * Fetches notifications with the user ID.
-   */
-  private List<Notification> getNotifications(int userId, HttpServletRequest request) {
-    // Prepare query to select notifications by the subquery of notifications IDs selected by 
-    // user ID.
-    String query =  "SELECT message, url, date_time FROM Notification WHERE id IN " +
-                    "(SELECT notification_id FROM UserNotification WHERE user_id = " + userId +
-                    ") ORDER BY date_time DESC";
-    List<Notification> notifications = new ArrayList<>();
-    // Query the information from tables and create notification object to be stored in ArrayList.
-    try (Connection connection = Utility.getConnection(request);
-         PreparedStatement pst = connection.prepareStatement(query);
-         ResultSet resultSet = pst.executeQuery()) {
-      // Iterate through the result of the query to populate the ArrayList and return it as JSON.
-      while (resultSet.next()){
-        Notification notification = new Notification();
-        notification.message = resultSet.getString(SqlConstants.NOTIFICATION_FETCH_MESSAGE);
-        notification.url = resultSet.getString(SqlConstants.NOTIFICATION_FETCH_URL);
-        notification.timestamp = resultSet.getTimestamp(SqlConstants.NOTIFICATION_FETCH_TIMESTAMP);
-        // Store object in ArrayList.
-        notifications.add(notification);
-      }
-      connection.close();
-    } catch (SQLException ex) {
-        Logger logger = Logger.getLogger(NotificationServlet.class.getName());
-        logger.log(Level.SEVERE, ex.getMessage(), ex);
-    }
-    return notifications;
-  }
-
-  /**
-   * Receives the data for a notification and inserts it into the Notification table.
-   */
-  private void insertToNotification(Connection connection, String message, String notificationUrl,
-        Timestamp dateTime) {
-    String query = "INSERT INTO Notification(message, url, date_time) VALUES(?,?,?)";
-    try {
-      // Prepare the statement to be inserted.
-      PreparedStatement prepStatement = connection.prepareStatement(query);
-      prepStatement.setString(SqlConstants.NOTIFICATION_INSERT_MESSAGE, message);
-      prepStatement.setString(SqlConstants.NOTIFICATION_INSERT_URL, notificationUrl);
-      prepStatement.setTimestamp(SqlConstants.NOTIFICATION_INSERT_DATETIME, dateTime);
-      prepStatement.executeUpdate();
-    } catch (SQLException ex) {
-      Logger logger = Logger.getLogger(NotificationServlet.class.getName());
-      logger.log(Level.SEVERE, ex.getMessage(), ex);
-    }
-  }
-
-  /**
-   * Receives the data for a notification-user relation and inserts it into
-   * UserNotification.
-   */
-  private void insertToUserNotification(Connection connection, int userId, int notificationId) {
-    String query = "INSERT INTO UserNotification(user_id, notification_id) VALUES(?,?)";
-    try {
-      // Prepare the statement to be inserted.
-      PreparedStatement prepStatement = connection.prepareStatement(query);
-      prepStatement.setInt(SqlConstants.USER_NOTIFICATION_INSERT_USERID, userId);
-      prepStatement.setInt(SqlConstants.USER_NOTIFICATION_INSERT_NOTIFICATIONID, notificationId);
-      prepStatement.executeUpdate();
-    } catch (SQLException ex) {
-      Logger logger = Logger.getLogger(NotificationServlet.class.getName());
-      logger.log(Level.SEVERE, ex.getMessage(), ex);
-    }
-  }
-
-  /**
-   * Returns the ID of a just inserted notification.
-   */
-  private int getLastInsertedNotificationId(Connection connection) {
-    String query =  "SELECT id FROM Notification ORDER BY date_time";
-    // Query the information from Notification table.
-    int notificationId = 0;
-    try (PreparedStatement pst = connection.prepareStatement(query);
-         ResultSet resultSet = pst.executeQuery()) {
-      // Select the id of the last notification to be inserted.
-      resultSet.last();
-      notificationId = resultSet.getInt(SqlConstants.LAST_NOTIFICATION_FETCH_ID);
-    } catch (SQLException ex) {
-      Logger logger = Logger.getLogger(NotificationServlet.class.getName());
-      logger.log(Level.SEVERE, ex.getMessage(), ex);
-    }
-    return notificationId;
+    Utility.enqueueNotification(typeOfNotification, modifiedElementId, request);
   }
 
   /**
-   * Inserts new row to Notification table and adds row to UserNotification of the author's and 
-   * following users' IDs relationship with the last inserted Notification.
+   * Fetches a page of notifications with the user ID. The newest page comes from the in-memory
+   * buffer of the user's recent notifications.
    */
-  private void createNotification(String query, String notificationUrl, String notificationMessage,
-                                  Timestamp localTimestamp, HttpServletRequest request) {
-    // Set up connection for insertions and query IDs of users to notify with same connection.
-    try (Connection connection = Utility.getConnection(request);
-          PreparedStatement pst = connection.prepareStatement(query);
-          ResultSet resultSet = pst.executeQuery()) {
-      // Insert notification and get its ID to relate in UserNotification table.
-      insertToNotification(connection, notificationMessage, notificationUrl, localTimestamp);
-      int notificationId = getLastInsertedNotificationId(connection);
-      // Iterate through the query's result set to insert all notifications.
-      while (resultSet.next()) {
-        insertToUserNotification(connection, resultSet.getInt(
-            SqlConstants.CREATE_NOTIFICATION_FETCH_USERID), notificationId);
-      }
-      // Close the connection once all insertions have been performed.
-      connection.close();
-    } catch (SQLException ex) {
-      Logger logger = Logger.getLogger(NotificationServlet.class.getName());
-      logger.log(Level.SEVERE, ex.getMessage(), ex);
+  private NotificationPage getNotifications(int userId, String cursor,
+      HttpServletRequest request) {
+    if (cursor == null) {
+      return Utility.getRecentNotifications(userId, request).toPage();
     }
-  }
-
-  /**
-   * Fetches ID of question that is related to the answer that was commented.
-   */
-  private int getIdOfAnsweredQuestion(int answerId, HttpServletRequest request) {
-    String query = "SELECT question_id FROM Answer WHERE id = " + answerId;
-    int answeredQuestionId = -1;
-    try {
-      // Setup and perform query.
-      Connection connection = Utility.getConnection(request);
-      PreparedStatement pst = connection.prepareStatement(query);
-      ResultSet resultSet = pst.executeQuery();
-      resultSet.next();
-      answeredQuestionId = resultSet.getInt(SqlConstants.NOTIFICATION_FETCH_ID_ANSWERED_QUESTION);
-      connection.close();
+    try (Connection connection = Utility.getConnection(request)) {
+      return Utility.fetchNotificationPage(connection, userId, cursor);
     } catch (SQLException ex) {
       Logger logger = Logger.getLogger(NotificationServlet.class.getName());
       logger.log(Level.SEVERE, ex.getMessage(), ex);
     }
-    return answeredQuestionId;
-  }
-
-  /**
-   * Invoke the fetch post method to send a push notification to the user.
-   */
-  private void redirectEmailServlet(String typeOfNotification, int modifiedElementId,
-                                    HttpServletRequest request, HttpServletResponse response) {
-    try {
-      // We call the notification servlet to notify of this posted comment.
-      request.getRequestDispatcher("/email?typeOfNotification=" + typeOfNotification + 
-          "&modifiedElementId=" + modifiedElementId).include(request, response);
-    } catch (ServletException exception) {
-      // If the notification doesn't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(NotificationServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
-    } catch (IOException exception) {
-      // If the notification doesn't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(NotificationServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
-    }
+    return new NotificationPage(new ArrayList<>(), /*olderNotificationsCursor=*/null);
   }
 }
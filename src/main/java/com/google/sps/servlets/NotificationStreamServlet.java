@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.Notification;
+import com.google.sps.classes.NotificationStreams;
+import com.google.sps.classes.QueueConstants;
+import com.google.sps.classes.Utility;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that holds a long-poll request of the signed in user until one of their notifications
+ * is created, so the navbar gets it without polling. The answer is JSON with the new
+ * notifications, newest first, and the number of unread ones when it is known; a heartbeat has
+ * no notifications. The browser sends the cursor of the newest notification it has, made of its
+ * time and ID, so the ones created or coalesced while it was reconnecting, or by another
+ * instance, are read from the database and sent right away.
+ *
+ * Notifications are only pushed by the instance that created them, so the database is how the
+ * other instances deliver them. It is only read when the ETag of the inbox differs from the one
+ * the browser sends, which is the ETag of its newest page or of the last answer that read the
+ * database. The answers that read it carry the ETag they read it at.
+ */
+@WebServlet(urlPatterns = "/notification-stream", asyncSupported = true)
+public class NotificationStreamServlet extends HttpServlet {
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int userId = Utility.getUserId(request);
+    if (userId == Utility.USER_LOGGED_OUT_ID) {
+      response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+      return;
+    }
+    NotificationStreams notificationStreams =
+        Utility.getNotificationStreams(request.getServletContext());
+    if (notificationStreams == null || !request.isAsyncSupported()) {
+      response.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED);
+      return;
+    }
+
+    // Every answer is new, so no cache may keep it.
+    response.setHeader("Cache-Control", "no-store");
+    // The stream is open before the newer notifications are read, so a notification created in
+    // between is either read here or pushed to the stream.
+    AsyncContext asyncContext = request.startAsync();
+    if (!notificationStreams.open(userId, asyncContext)) {
+      response.setHeader("Retry-After",
+          String.valueOf(QueueConstants.NOTIFICATION_STREAMS_RETRY_AFTER));
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      asyncContext.complete();
+      return;
+    }
+    String since = request.getParameter("since");
+    if (since == null) {
+      return;
+    }
+    // The ETag is read before the newer notifications, so the browser never gets one newer than
+    // what was read. An inbox that hasn't changed since the browser read it isn't read again.
+    String etag = Utility.getEtag(request, ContentVersions.inbox(userId));
+    if (etag != null && etag.equals(request.getParameter("etag"))) {
+      return;
+    }
+    // The database has the notifications of every instance, which the cache of this one misses.
+    List<Notification> newerNotifications;
+    try (Connection connection = Utility.getConnection(request)) {
+      newerNotifications = Utility.fetchNewerNotifications(connection, userId, since);
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened. The
+      // browser sends the same cursor on its next request, so nothing is lost.
+      Logger logger = Logger.getLogger(NotificationStreamServlet.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+      return;
+    }
+    // The stream is answered even without newer notifications, so the browser gets the ETag,
+    // unless it couldn't be read. The unread count isn't known here, so the browser fetches it.
+    if (!newerNotifications.isEmpty() || etag != null) {
+      notificationStreams.catchUp(userId, asyncContext, newerNotifications, etag);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.classes.NotificationEvent;
+import com.google.sps.classes.NotificationSender;
+import com.google.sps.classes.QueueConstants;
+import com.google.sps.classes.Utility;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that does one step of a NotificationEvent, called by the push tasks of the
+ * notifications queue. Tasks run as regular requests, so the mail service is available and the
+ * instance isn't throttled while they run, whatever its scaling.
+ */
+@WebServlet(QueueConstants.NOTIFICATION_TASK_URL)
+public class NotificationTaskServlet extends HttpServlet {
+
+  /**
+   * Creates the notification or sends the email of an event, and queues its next step. A
+   * failure answers with an error, so the queue retries the task later. A retried task doesn't
+   * create its notification again, but an email may be sent twice.
+   */
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // App Engine removes this header from external requests, so it can only be set by the queue.
+    if (request.getHeader("X-AppEngine-QueueName") == null) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    Logger logger = Logger.getLogger(NotificationTaskServlet.class.getName());
+    NotificationEvent.Step step;
+    try {
+      step = NotificationEvent.Step.valueOf(
+          request.getParameter(QueueConstants.NOTIFICATION_TASK_STEP));
+    } catch (IllegalArgumentException | NullPointerException exception) {
+      // A malformed task would fail on every retry, so it is dropped right away.
+      logger.log(Level.SEVERE, "Dropped malformed notification task", exception);
+      return;
+    }
+    // The name of the task stays the same across its retries, so it is the key of the event.
+    NotificationEvent event = new NotificationEvent(
+        request.getParameter(QueueConstants.NOTIFICATION_TASK_TYPE),
+        Utility.tryParseInt(request.getParameter(QueueConstants.NOTIFICATION_TASK_ELEMENT_ID)),
+        step, request.getHeader("X-AppEngine-TaskName"));
+
+    NotificationEvent nextEvent;
+    try {
+      nextEvent = new NotificationSender(request.getServletContext()).handle(event);
+    } catch (Exception exception) {
+      // Every failure is retried by the queue, which drops the task after its retry limit.
+      logger.log(Level.WARNING, "Notification task " + event + " failed after "
+          + request.getHeader("X-AppEngine-TaskRetryCount") + " retries", exception);
+      response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      return;
+    }
+    if (nextEvent != null) {
+      Utility.enqueueNotification(nextEvent, request.getServletContext());
+    }
+  }
+}
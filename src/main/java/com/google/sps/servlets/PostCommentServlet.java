@@ -14,7 +14,9 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.classes.ContentVersions;
 import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
 import java.sql.Connection;
@@ -25,7 +27,6 @@ import java.sql.Timestamp;
 import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -48,25 +49,27 @@ public class PostCommentServlet extends HttpServlet {
     int answerId = Utility.tryParseInt(request.getParameter("answer-id"));
     int authorId = Utility.getUserId(request);
 
-    // First we query the number of questions that exist so that we can update the
-    // QuestionFollower table as well.
+    // The comment, its author as follower and the comment counter of its answer are written in
+    // a single transaction so the counter never disagrees with the Comment table.
     Connection connection = Utility.getConnection(request);
-    insertNewComment(connection, answerId, body, authorId);
-    Utility.insertCommentFollower(connection, answerId, authorId);
-
     try {
-      // We call the notification servlet to notify of this posted comment.
-      request.getRequestDispatcher("/notification?type=answer&modifiedElementId=" + answerId)
-          .include(request, response);
-      connection.close();
-    } catch (ServletException exception) {
-      // If the notification doesn't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(PostCommentServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
+      connection.setAutoCommit(false);
+      insertNewComment(connection, answerId, body, authorId);
+      Utility.insertCommentFollower(connection, answerId, authorId);
+      Utility.updateCounter(connection, SqlStatements.UPDATE_NUMBER_OF_COMMENTS, answerId,
+          /*value=*/1);
+      connection.commit();
+      connection.setAutoCommit(true);
+      Utility.bumpContentVersion(ContentVersions.question(questionId), request);
+      // The followers are notified by a queued task, once the comment is committed.
+      Utility.enqueueNotification("answer", answerId, request);
     } catch (SQLException exception) {
-      // If the connection isn't closed we get the log of what happened.
-      Logger logger = Logger.getLogger(AnswerServlet.class.getName());
+      // If the connection or the query don't go through, we get the log of what happened.
+      Utility.rollbackTransaction(connection);
+      Logger logger = Logger.getLogger(PostCommentServlet.class.getName());
       logger.log(Level.SEVERE, exception.getMessage(), exception);
+    } finally {
+      Utility.closeConnection(connection);
     }
     response.sendRedirect("/question.html?id=" + questionId);
   }
@@ -74,20 +77,14 @@ public class PostCommentServlet extends HttpServlet {
   /** 
    * Inserts a comment into the database.
    */
-  private void insertNewComment(Connection connection, int answerId, String body, int authorId) {
-    try {
-      // NOW() is the functions to get the current date and time in MySQL.
-      String insertCommentQuery = "INSERT INTO Comment(answer_id, body, author_id, date_time) "
-          + "VALUES (?,?,?,NOW())";
-      PreparedStatement questionStatement = connection.prepareStatement(insertCommentQuery);
-      questionStatement.setInt(SqlConstants.COMMENT_INSERT_ANSWERID, answerId);
-      questionStatement.setString(SqlConstants.COMMENT_INSERT_BODY, body);
-      questionStatement.setInt(SqlConstants.COMMENT_INSERT_AUTHORID, authorId);
-      questionStatement.executeUpdate();
-    } catch (SQLException exception) {
-      // If the connection or the query don't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(PostCommentServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
+  private void insertNewComment(Connection connection, int answerId, String body, int authorId)
+      throws SQLException {
+    try (PreparedStatement commentStatement =
+        connection.prepareStatement(SqlStatements.INSERT_COMMENT)) {
+      commentStatement.setInt(SqlConstants.COMMENT_INSERT_ANSWERID, answerId);
+      commentStatement.setString(SqlConstants.COMMENT_INSERT_BODY, body);
+      commentStatement.setInt(SqlConstants.COMMENT_INSERT_AUTHORID, authorId);
+      commentStatement.executeUpdate();
     }
   }
 }
@@ -15,18 +15,8 @@
 package com.google.sps.servlets;
 
 import com.google.sps.classes.ForumPage;
-import com.google.sps.classes.Question;
-import com.google.sps.classes.SqlConstants;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -47,36 +37,17 @@ public class QuestionSearchServlet extends HttpServlet {
    */
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    List<Question> questions = new ArrayList<>();
     // Number of page that the user is browsing.
     int page = Utility.tryParseInt(request.getParameter("page"));
     
-    // The query will return a ResultSet with order depending on the level of similarity to the 
-    // input string.
-    String query = 
-        Utility.fetchQuestionsQuery.substring(0, SqlConstants.QUESTION_QUERY_WHERE_CONDITION)
-          + "WHERE MATCH(title,body) AGAINST('" + request.getParameter("inputString")
-          + "' IN NATURAL LANGUAGE MODE) " + Utility.fetchQuestionsQuery.substring(
-                SqlConstants.QUESTION_QUERY_WHERE_CONDITION, Utility.fetchQuestionsQuery.length());
-    // The connection and query are attempted.
-    try {
-      Connection connection = Utility.getConnection(request);
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
-      preparedStatement.setInt(SqlConstants.QUESTION_QUERY_SET_USERID, Utility.getUserId(request));
-      ResultSet queryResult = preparedStatement.executeQuery();
-    
-      // All of the rows from the query are looped if it goes through.
-      while (queryResult.next()) {
-        questions.add(Utility.buildQuestion(queryResult));
-      }
-    } catch (SQLException exception) {
-      // If the connection or the query don't go through, we get the log of what happened.\
-      Logger logger = Logger.getLogger(QuestionSearchServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
-    }
-    
-    ForumPage forumPage = Utility.splitPages(questions, page);
+    // Only the matching questions of the requested page are fetched, located by the cursor of the
+    // page the user comes from.
+    ForumPage forumPage = Utility.fetchForumPage(request.getParameter("inputString"),
+        request.getParameter("cursor"), "previous".equals(request.getParameter("direction")),
+        page, request);
+    ForumPage userForumPage = forumPage.withFollowedQuestions(
+        Utility.getFollowedQuestions(Utility.getUserId(request), request));
     response.setContentType("application/json;");
-    response.getWriter().println(Utility.convertToJsonUsingGson(forumPage));
+    Utility.writeJsonUsingGson(userForumPage, response);
   } 
 }
@@ -14,8 +14,12 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.FollowedQuestions;
 import com.google.sps.classes.ForumPage;
+import com.google.sps.classes.LruCache;
 import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.Question;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
@@ -23,6 +27,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
@@ -45,10 +50,6 @@ public class QuestionServlet extends HttpServlet {
    */
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    List<Question> questions = new ArrayList<>();
-    
-    String query;
-
     // ID of the question to query.
     int questionId = Utility.tryParseInt(request.getParameter("id"));
     int userId = Utility.getUserId(request);
@@ -56,46 +57,69 @@ public class QuestionServlet extends HttpServlet {
     // Number of page that the user is browsing.
     int page = Utility.tryParseInt(request.getParameter("page"));
 
+    // Logged out users see the same content, while the rest see the questions they follow.
+    boolean isLoggedOut = userId == Utility.USER_LOGGED_OUT_ID;
+    String versionKey = questionId == SqlConstants.FETCH_ALL_QUESTIONS
+        ? ContentVersions.FEED : ContentVersions.question(questionId);
+    String etag = isLoggedOut ? Utility.getEtag(request, versionKey)
+        : Utility.getEtag(request, versionKey, ContentVersions.followedQuestions(userId));
+    if (Utility.respondIfNotModified(etag, isLoggedOut, request, response)) {
+      return;
+    }
+
+    response.setContentType("application/json;");
     if (questionId == SqlConstants.FETCH_ALL_QUESTIONS) {
-      // Nothing needs to be added to the query.
-      query = Utility.fetchQuestionsQuery;
-    } else {
-      // Condition to fetch only one question. WHERE condition is inserted before GROUP BY.
-      query = Utility.fetchQuestionsQuery.substring(0, SqlConstants.QUESTION_QUERY_WHERE_CONDITION)
-          + "WHERE Question.id=" + questionId + " " + Utility.fetchQuestionsQuery.substring(
-                SqlConstants.QUESTION_QUERY_WHERE_CONDITION, Utility.fetchQuestionsQuery.length());
+      // Questions in the forum are wrapped in a ForumPage object with information about
+      // pages. Only the questions of the requested page are fetched, located by the cursor of the
+      // page the user comes from.
+      String cursor = request.getParameter("cursor");
+      boolean isPreviousPage = "previous".equals(request.getParameter("direction"));
+
+      // Pages are served from the cache until a new question, answer or follower invalidates it.
+      // The cached page is shared by every user, and the questions this user follows are added
+      // to a copy of it.
+      LruCache<String, ForumPage> forumPageCache =
+          Utility.getForumPageCache(request.getServletContext());
+      String cacheKey = page + "/" + isPreviousPage + "/" + cursor;
+      ForumPage forumPage = forumPageCache.get(cacheKey);
+      if (forumPage == null) {
+        long cacheGeneration = forumPageCache.getGeneration();
+        forumPage = Utility.fetchForumPage(/*searchInput=*/null, cursor, isPreviousPage, page,
+            request);
+        if (Utility.canCacheReads(request)) {
+          forumPageCache.put(cacheKey, forumPage, cacheGeneration);
+        }
+      }
+      ForumPage userForumPage =
+          forumPage.withFollowedQuestions(Utility.getFollowedQuestions(userId, request));
+      Utility.writeJsonUsingGson(userForumPage, response);
+      return;
     }
 
-    // The connection and query are attempted.
-    try {
-      Connection connection = Utility.getConnection(request);
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
-      preparedStatement.setInt(SqlConstants.QUESTION_QUERY_SET_USERID, userId);
-      ResultSet queryResult = preparedStatement.executeQuery();
-      
-      // All of the rows from the query are looped if it goes through.
-      while (queryResult.next()) {
-        questions.add(Utility.buildQuestion(queryResult));
+    List<Question> questions = new ArrayList<>();
+
+    // The connection and query are attempted, and closed even if they fail.
+    try (Connection connection = Utility.getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_QUESTION)) {
+      preparedStatement.setInt(SqlConstants.QUESTION_SET_ID, questionId);
+      try (ResultSet queryResult = preparedStatement.executeQuery()) {
+        // All of the rows from the query are looped if it goes through.
+        FollowedQuestions followedQuestions = Utility.getFollowedQuestions(userId, request);
+        while (queryResult.next()) {
+          Question question = Utility.buildQuestion(queryResult);
+          question.setUserFollowsQuestion(followedQuestions.contains(question.getId()));
+          questions.add(question);
+        }
       }
-      connection.close();
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(QuestionServlet.class.getName());
       logger.log(Level.SEVERE, exception.getMessage(), exception);
     }
 
-    // Response object is different for a single question than for the forum pages.
-    // Questions in the forum are wrapped in a ForumPage object with information about
-    // pages.
-    response.setContentType("application/json;");
-    if (page != SqlConstants.SINGLE_QUESTION_PAGE) {
-      // Forum posts get split by pages.
-      ForumPage forumPage = Utility.splitPages(questions, page);
-      response.getWriter().println(Utility.convertToJsonUsingGson(forumPage));
-    } else {
-      // A single question is returned.
-      response.getWriter().println(Utility.convertToJsonUsingGson(questions));
-    }
+    // A single question is returned.
+    Utility.writeJsonUsingGson(questions, response);
   }
 
   /** 
@@ -107,71 +131,59 @@ public class QuestionServlet extends HttpServlet {
     String body = request.getParameter("question-body");
     int askerId = Utility.getUserId(request);
 
-    // First we query the number of questions that exist so that we can update the
-    // QuestionFollower table as well.
+    // The question, its first follower and the follower counter are written in a single
+    // transaction so the counter never disagrees with the QuestionFollower table.
     Connection connection = Utility.getConnection(request);
-    insertNewQuestion(connection, title, body, askerId);
-    insertNewFollower(connection, askerId);
-    response.sendRedirect("/");
-  }
-
-  /** 
-   * Inserts a question into the database.
-   */
-  private void insertNewQuestion(Connection connection, String title, String body, int askerId) {
     try {
-      // NOW() is the function to get the current date and time in MySQL.
-      String insertQuestionQuery = "INSERT INTO Question(title, body, asker_id, date_time) "
-          + "VALUES (?,?,?,NOW())";
-      PreparedStatement questionStatement = connection.prepareStatement(insertQuestionQuery);
-      questionStatement.setString(SqlConstants.QUESTION_INSERT_TITLE, title);
-      questionStatement.setString(SqlConstants.QUESTION_INSERT_BODY, body);
-      questionStatement.setInt(SqlConstants.QUESTION_INSERT_ASKERID, askerId);
-      questionStatement.executeUpdate();
+      connection.setAutoCommit(false);
+      int questionId = insertNewQuestion(connection, title, body, askerId);
+      insertNewFollower(connection, questionId, askerId);
+      connection.commit();
+      Utility.invalidateForumPages(request);
+      Utility.updateFollowedQuestions(askerId, questionId, /*follows=*/true, request);
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
+      Utility.rollbackTransaction(connection);
       Logger logger = Logger.getLogger(QuestionServlet.class.getName());
       logger.log(Level.SEVERE, exception.getMessage(), exception);
+    } finally {
+      try {
+        connection.close();
+      } catch (SQLException exception) {
+        // If the connection isn't closed we get the log of what happened.
+        Logger logger = Logger.getLogger(QuestionServlet.class.getName());
+        logger.log(Level.SEVERE, exception.getMessage(), exception);
+      }
     }
+    response.sendRedirect("/");
   }
 
   /** 
-   * Gets the ID from the last question posted. Returns -1 on query failure.
+   * Inserts a question into the database and returns its ID.
    */
-  private int getLatestQuestionId(Connection connection) {
-    int id = -1;
-    try {
-      String maxIdQuery = "SELECT MAX(id) FROM Question;";
-      PreparedStatement maxIdStatement = connection.prepareStatement(maxIdQuery);
-      ResultSet queryResult = maxIdStatement.executeQuery();
-      queryResult.next();
-      id = queryResult.getInt(SqlConstants.QUESTION_FETCH_MAXID);
-    } catch (SQLException exception) {
-      // If the connection or the query don't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(QuestionServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
+  private int insertNewQuestion(Connection connection, String title, String body, int askerId)
+      throws SQLException {
+    try (PreparedStatement questionStatement = connection.prepareStatement(
+        SqlStatements.INSERT_QUESTION, Statement.RETURN_GENERATED_KEYS)) {
+      questionStatement.setString(SqlConstants.QUESTION_INSERT_TITLE, title);
+      questionStatement.setString(SqlConstants.QUESTION_INSERT_BODY, body);
+      questionStatement.setInt(SqlConstants.QUESTION_INSERT_ASKERID, askerId);
+      return Utility.executeInsertForId(questionStatement);
     }
-
-    return id;
   }
 
   /** 
    * Makes the author of the recently added question a follower of said question.
    */
-  private void insertNewFollower(Connection connection, int askerId) {
-    try {
-      int latestQuestionId = getLatestQuestionId(connection);
-      String insertFollowerQuery = "INSERT INTO QuestionFollower(question_id, follower_id) "
-          + "VALUES (?,?)";
-      PreparedStatement followerStatement = connection.prepareStatement(insertFollowerQuery);
-      followerStatement.setInt(SqlConstants.FOLLOWER_INSERT_QUESTIONID, latestQuestionId);
+  private void insertNewFollower(Connection connection, int questionId, int askerId)
+      throws SQLException {
+    try (PreparedStatement followerStatement =
+        connection.prepareStatement(SqlStatements.INSERT_QUESTION_FOLLOWER)) {
+      followerStatement.setInt(SqlConstants.FOLLOWER_INSERT_QUESTIONID, questionId);
       followerStatement.setInt(SqlConstants.FOLLOWER_INSERT_ASKERID, askerId);
       followerStatement.executeUpdate();
-      connection.close();
-    } catch (SQLException exception) {
-      // If the connection or the query don't go through, we get the log of what happened.
-      Logger logger = Logger.getLogger(QuestionServlet.class.getName());
-      logger.log(Level.SEVERE, exception.getMessage(), exception);
     }
+    Utility.updateCounter(connection, SqlStatements.UPDATE_NUMBER_OF_FOLLOWERS,
+        questionId, /*value=*/1);
   }
 }
@@ -0,0 +1,102 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
+import com.google.sps.classes.Utility;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** 
+ * This servlet recomputes the follower and answer counters of every question, the comment
+ * counter of every answer and the unread notifications counter of every user. The counters are
+ * updated by the servlets that post questions, answers, comments, followers and notifications,
+ * so this only corrects drift from rows modified outside of the app. It is called periodically by the cron job defined in cron.xml.
+ */
+@WebServlet("/reconcile-counters")
+public class ReconcileCountersServlet extends HttpServlet {
+
+  /** 
+   * Reconciles the counters in batches, so each UPDATE only locks a small range of the table.
+   */
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // App Engine removes this header from external requests, so it can only be set by cron.
+    if (!"true".equals(request.getHeader("X-Appengine-Cron"))) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    int reconciledQuestions = 0;
+    int reconciledAnswers = 0;
+    int reconciledUsers = 0;
+    try (Connection connection = Utility.getConnection(request)) {
+      reconciledQuestions = reconcileCounters(connection, SqlStatements.FETCH_MAX_QUESTION_ID,
+          SqlStatements.RECONCILE_QUESTION_COUNTERS);
+      reconciledAnswers = reconcileCounters(connection, SqlStatements.FETCH_MAX_ANSWER_ID,
+          SqlStatements.RECONCILE_ANSWER_COUNTERS);
+      reconciledUsers = reconcileCounters(connection, SqlStatements.FETCH_MAX_USER_ID,
+          SqlStatements.RECONCILE_UNREAD_NOTIFICATIONS);
+      // Counters are shown by the feed, the questions and the inboxes, which all get a new ETag.
+      Utility.bumpContentVersions(Collections.singletonList(ContentVersions.ALL), connection,
+          request.getServletContext());
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(ReconcileCountersServlet.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+
+    response.setContentType("text/plain");
+    response.getWriter().println("Reconciled questions: " + reconciledQuestions);
+    response.getWriter().println("Reconciled answers: " + reconciledAnswers);
+    response.getWriter().println("Reconciled users: " + reconciledUsers);
+  }
+
+  /** 
+   * Runs a reconcile query over every range of IDs up to the largest one, and returns the
+   * number of rows reconciled.
+   */
+  private int reconcileCounters(Connection connection, String maxIdQuery, String reconcileQuery)
+      throws SQLException {
+    int reconciledRows = 0;
+    try (PreparedStatement maxIdStatement = connection.prepareStatement(maxIdQuery);
+        PreparedStatement reconcileStatement = connection.prepareStatement(reconcileQuery);
+        ResultSet queryResult = maxIdStatement.executeQuery()) {
+      queryResult.next();
+      int maxId = queryResult.getInt(SqlConstants.RECONCILE_FETCH_MAXID);
+
+      // Each batch is committed on its own since the connection is in auto-commit mode.
+      for (int lowerId = 0; lowerId < maxId; lowerId += SqlConstants.RECONCILE_BATCH_SIZE) {
+        reconcileStatement.setInt(SqlConstants.RECONCILE_SET_LOWERID, lowerId);
+        reconcileStatement.setInt(SqlConstants.RECONCILE_SET_UPPERID,
+            lowerId + SqlConstants.RECONCILE_BATCH_SIZE);
+        reconciledRows += reconcileStatement.executeUpdate();
+      }
+    }
+    return reconciledRows;
+  }
+}
@@ -17,6 +17,7 @@ package com.google.sps.servlets;
 import com.google.appengine.api.users.UserService;
 import com.google.appengine.api.users.UserServiceFactory;
 import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.SubjectTag;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
@@ -45,23 +46,16 @@ public class SignupMentorServlet extends HttpServlet {
     // Set up list to store subject tags.
     List<SubjectTag> subjectTags = new ArrayList<SubjectTag>();
     
-    // Set up query to retrieve all subject tags.
-    String query = "SELECT * FROM SubjectTag";
-
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = Utility.getConnection(request);
-
-      // Create the MySQL prepared statement, execute it, and store the result.
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
-      ResultSet queryResult = preparedStatement.executeQuery();
-
-      // Store queryResult in list of SubjectTag objects and close connection to database.
+    // Establish connection to MySQL database, execute the prepared statement and store the result.
+    try (Connection connection = Utility.getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_SUBJECT_TAGS);
+        ResultSet queryResult = preparedStatement.executeQuery()) {
+      // Store queryResult in list of SubjectTag objects.
       while (queryResult.next()) {
         subjectTags.add(new SubjectTag(
             queryResult.getInt(1), queryResult.getString(2), queryResult.getString(3)));
       }
-      connection.close();
     } catch (SQLException exception) {
       // If the connection or the query don't go through, get the log of the error.
       Logger logger = Logger.getLogger(SignupMentorServlet.class.getName());
@@ -106,21 +100,15 @@ public class SignupMentorServlet extends HttpServlet {
     int userId = Utility.getUserId(request);
     
     for (String tag : experienceTags) {
-      // Set up query to insert new experience tag to user.
-      String query = "INSERT INTO MentorExperience (mentor_id, tag_id) VALUES (?, ?)";
-
-      try {
-        // Establish connection to MySQL database.
-        Connection connection = Utility.getConnection(request);
-
-        // Create the MySQL INSERT prepared statement.
-        PreparedStatement preparedStatement = connection.prepareStatement(query);
+      // Establish connection to MySQL database and create the MySQL INSERT prepared statement.
+      try (Connection connection = Utility.getConnection(request);
+          PreparedStatement preparedStatement =
+              connection.prepareStatement(SqlStatements.INSERT_MENTOR_EXPERIENCE)) {
         preparedStatement.setInt(SqlConstants.MENTOR_EXPERIENCE_INSERT_ID, userId);
         // Should not be possible for parseInt() to fail because form only allows integer values to
         // be submitted.
         preparedStatement.setInt(SqlConstants.MENTOR_EXPERIENCE_INSERT_TAG, Utility.tryParseInt(tag));
         preparedStatement.execute();
-        connection.close();
       } catch (SQLException exception) {
         // If the connection or the query don't go through, get the log of the error.
         Logger logger = Logger.getLogger(SignupMentorServlet.class.getName());
@@ -135,10 +123,7 @@ public class SignupMentorServlet extends HttpServlet {
   private void addMentorEvidence(HttpServletRequest request) {
     int userId = Utility.getUserId(request);
 
-    // Set up query to insert mentor evidence and execute it.
-    String query = "INSERT INTO MentorEvidence "
-        + "(mentor_id, approvals, is_approved, is_rejected, paragraph) "
-        + "VALUES (" + userId + ", 0, FALSE, FALSE, '')";
-    Utility.executeQuery(query, request);
+    // Insert mentor evidence with default values.
+    Utility.executeQuery(SqlStatements.INSERT_MENTOR_EVIDENCE, request, userId);
   }
 }
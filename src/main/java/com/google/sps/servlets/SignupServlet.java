@@ -16,6 +16,7 @@ package com.google.sps.servlets;
 
 import com.google.appengine.api.users.UserService;
 import com.google.appengine.api.users.UserServiceFactory;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.Utility;
 import java.io.IOException;
 import java.sql.*;
@@ -42,22 +43,15 @@ public class SignupServlet extends HttpServlet {
     // Store majors in map to relate the name of the major (string) with its ID (integer).
     Map<Integer, String> majors = new HashMap<Integer, String>();
     
-    // Set up query to retrieve all subject tags.
-    String query = "SELECT * FROM Major";
-
-    try {
-      // Establish connection to MySQL database.
-      Connection connection = Utility.getConnection(request);
-
-      // Create the MySQL prepared statement, execute it, and store the result.
-      PreparedStatement preparedStatement = connection.prepareStatement(query);
-      ResultSet queryResult = preparedStatement.executeQuery();
-
-      // Store queryResult in map and close connection to database.
+    // Establish connection to MySQL database, execute the prepared statement and store the result.
+    try (Connection connection = Utility.getConnection(request);
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SqlStatements.FETCH_MAJORS);
+        ResultSet queryResult = preparedStatement.executeQuery()) {
+      // Store queryResult in map.
       while (queryResult.next()) {
         majors.put(new Integer(queryResult.getInt(1)), queryResult.getString(2));
       }
-      connection.close();
     } catch (SQLException exception) {
       // If the connection or the query don't go through, get the log of the error.
       Logger logger = Logger.getLogger(SignupServlet.class.getName());
@@ -0,0 +1,102 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.users.UserService;
+import com.google.appengine.api.users.UserServiceFactory;
+import com.google.sps.classes.ConnectionLeakTracker;
+import com.google.sps.classes.NotificationStreams;
+import com.google.sps.classes.PoolMetrics;
+import com.google.sps.classes.PoolSizeController;
+import com.google.sps.classes.ReplicaRouter;
+import com.google.sps.classes.Utility;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that reports usage statistics of this instance to the app administrators.
+ */
+@WebServlet("/stats")
+public class StatsServlet extends HttpServlet {
+
+  /**
+   * Returns the statistics of the in-memory caches and the database connections as JSON.
+   */
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    UserService userService = UserServiceFactory.getUserService();
+
+    // Only administrators of the App Engine project can see the statistics.
+    if (!userService.isUserLoggedIn() || !userService.isUserAdmin()) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("forumPageCache",
+        Utility.getForumPageCache(request.getServletContext()).getStatistics());
+    statistics.put("userIdCache",
+        Utility.getUserIdCache(request.getServletContext()).getStatistics());
+    statistics.put("recentNotificationsCache",
+        Utility.getRecentNotificationsCache(request.getServletContext()).getStatistics());
+    statistics.put("contentVersions",
+        Utility.getContentVersions(request.getServletContext()).getStatistics());
+    Object leakTracker = request.getServletContext().getAttribute(Utility.LEAK_TRACKER_ATTRIBUTE);
+    if (leakTracker instanceof ConnectionLeakTracker) {
+      statistics.put("connections", ((ConnectionLeakTracker) leakTracker).getStatistics());
+    }
+    Object poolMetrics = request.getServletContext().getAttribute(Utility.POOL_METRICS_ATTRIBUTE);
+    if (poolMetrics instanceof PoolMetrics) {
+      statistics.put("pool", ((PoolMetrics) poolMetrics).getStatistics());
+    }
+    Object poolSizeController =
+        request.getServletContext().getAttribute(Utility.POOL_SIZE_CONTROLLER_ATTRIBUTE);
+    if (poolSizeController instanceof PoolSizeController) {
+      statistics.put("poolSize", ((PoolSizeController) poolSizeController).getStatistics());
+    }
+    Object readPoolMetrics =
+        request.getServletContext().getAttribute(Utility.READ_POOL_METRICS_ATTRIBUTE);
+    if (readPoolMetrics instanceof PoolMetrics) {
+      statistics.put("readPool", ((PoolMetrics) readPoolMetrics).getStatistics());
+    }
+    Object readPoolSizeController =
+        request.getServletContext().getAttribute(Utility.READ_POOL_SIZE_CONTROLLER_ATTRIBUTE);
+    if (readPoolSizeController instanceof PoolSizeController) {
+      statistics.put("readPoolSize",
+          ((PoolSizeController) readPoolSizeController).getStatistics());
+    }
+    ReplicaRouter replicaRouter = Utility.getReplicaRouter(request.getServletContext());
+    if (replicaRouter != null) {
+      statistics.put("replicaRouting", replicaRouter.getStatistics());
+    }
+    Map<String, Object> notificationQueueStatistics = Utility.getNotificationQueueStatistics();
+    if (notificationQueueStatistics != null) {
+      statistics.put("notificationQueue", notificationQueueStatistics);
+    }
+    NotificationStreams notificationStreams =
+        Utility.getNotificationStreams(request.getServletContext());
+    if (notificationStreams != null) {
+      statistics.put("notificationStreams", notificationStreams.getStatistics());
+    }
+
+    response.setContentType("application/json");
+    response.getWriter().println(Utility.convertToJsonUsingGson(statistics));
+  }
+}
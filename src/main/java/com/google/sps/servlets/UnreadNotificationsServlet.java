@@ -0,0 +1,128 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
+import com.google.sps.classes.Utility;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that handles the unread notifications of the signed in user. The navbar badge only
+ * needs their number, which is read from the counter kept in the User table instead of counting
+ * the inbox.
+ */
+@WebServlet("/unread-notifications")
+public class UnreadNotificationsServlet extends HttpServlet {
+
+  /**
+   * Sends the number of unread notifications of the user as JSON.
+   */
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int userId = Utility.getUserId(request);
+    String etag = Utility.getEtag(request, ContentVersions.inbox(userId));
+    if (Utility.respondIfNotModified(etag, /*isPublic=*/false, request, response)) {
+      return;
+    }
+
+    // The counter comes along with the recent notifications the inbox shows, which are usually
+    // kept in memory.
+    int unreadNotifications =
+        Utility.getRecentNotifications(userId, request).getUnreadCount();
+    response.setContentType("application/json;");
+    response.getWriter().println(Utility.convertToJsonUsingGson(
+        Collections.singletonMap("unread", unreadNotifications)));
+  }
+
+  /**
+   * Marks a notification of the user as read, or all of them if no notification is given.
+   */
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int userId = Utility.getUserId(request);
+    if (userId == Utility.USER_LOGGED_OUT_ID) {
+      response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+      return;
+    }
+    String notificationId = request.getParameter("notification-id");
+
+    // The notifications and the counter of the user are updated in a single transaction so the
+    // counter never disagrees with the UserNotification table.
+    try (Connection connection = Utility.getConnection(request)) {
+      connection.setAutoCommit(false);
+      try {
+        int readNotifications = notificationId != null
+            ? markAsRead(connection, userId, Utility.tryParseInt(notificationId))
+            : markAllAsRead(connection, userId);
+        if (readNotifications > 0) {
+          try (PreparedStatement counterStatement =
+              connection.prepareStatement(SqlStatements.DECREMENT_UNREAD_NOTIFICATIONS)) {
+            counterStatement.setInt(SqlConstants.UNREAD_DECREMENT_SET_VALUE, readNotifications);
+            counterStatement.setInt(SqlConstants.UNREAD_DECREMENT_SET_USERID, userId);
+            counterStatement.executeUpdate();
+          }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+      } catch (SQLException exception) {
+        Utility.rollbackTransaction(connection);
+        throw exception;
+      }
+    } catch (SQLException exception) {
+      // If the connection or the query don't go through, we get the log of what happened.
+      Logger logger = Logger.getLogger(UnreadNotificationsServlet.class.getName());
+      logger.log(Level.SEVERE, exception.getMessage(), exception);
+    }
+    Utility.invalidateRecentNotifications(userId, request);
+    Utility.bumpContentVersion(ContentVersions.inbox(userId), request);
+    response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+  }
+
+  /**
+   * Marks a notification as read and returns 1 if it was unread, or 0 otherwise.
+   */
+  private int markAsRead(Connection connection, int userId, int notificationId)
+      throws SQLException {
+    try (PreparedStatement readStatement =
+        connection.prepareStatement(SqlStatements.UPDATE_NOTIFICATION_READ)) {
+      readStatement.setInt(SqlConstants.NOTIFICATION_READ_SET_USERID, userId);
+      readStatement.setInt(SqlConstants.NOTIFICATION_READ_SET_NOTIFICATIONID, notificationId);
+      return readStatement.executeUpdate();
+    }
+  }
+
+  /**
+   * Marks every unread notification of the user as read and returns how many there were.
+   */
+  private int markAllAsRead(Connection connection, int userId) throws SQLException {
+    try (PreparedStatement readStatement =
+        connection.prepareStatement(SqlStatements.UPDATE_ALL_NOTIFICATIONS_READ)) {
+      readStatement.setInt(SqlConstants.NOTIFICATION_READ_SET_USERID, userId);
+      return readStatement.executeUpdate();
+    }
+  }
+}
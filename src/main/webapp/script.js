@@ -74,18 +74,21 @@ function loadApproval() {
 async function fetchAnswers() {
   const questionId = (new URL(document.location)).searchParams.get("id");
   const response = await fetch('/answer?id=' + questionId);
-  const answersObject = await response.json();
+  const answers = await response.json();
   const answersContainer = document.getElementById('answers');
-  Object.values(answersObject).forEach(answer => {
+  answers.forEach(answer => {
     answersContainer.appendChild(createAnswerElement(answer));
     const commentsContainer = document.createElement('ul');
     commentsContainer.setAttribute('class', 'list-group list-group-flush ml-5');
     answer.commentList.forEach(comment => {
-      if (comment.body) {
-        // This is just to skip the NULL elements from the query.
-        commentsContainer.appendChild(createCommentElement(comment));
-      }
+      commentsContainer.appendChild(createCommentElement(comment));
     });
+    // Only the newest comments come with the answer; older ones are loaded on demand.
+    if (answer.olderCommentsCursor) {
+      commentsContainer.prepend(
+          createOlderCommentsButton(questionId, answer.id, answer.olderCommentsCursor,
+              commentsContainer));
+    }
     answersContainer.appendChild(commentsContainer);
 
     // Add the form to upload a comment at the bottom.
@@ -141,10 +144,13 @@ function fetchAuthIndexQuestion() {
  * Fetches the question list in the index and adds pagination elements.
  * Used for homepage and searching.
  * @param {int} pageNumber : current page number to display.
+ * @param {string} cursor : cursor of the page to fetch, undefined for the first page.
+ * @param {string} direction : 'next' or 'previous', relative to the cursor.
  */
-async function fetchForum(pageNumber) {
+async function fetchForum(pageNumber, cursor, direction) {
   // Question ID -1 tells the server to fetch all questions.
-  const response = await fetch('/question?id=-1&page=' + pageNumber);
+  const response = await fetch('/question?id=-1&page=' + pageNumber
+      + getCursorQueryString(cursor, direction));
   const questionsObject = await response.json();
   const questionsContainer = document.getElementById('forum');
 
@@ -174,21 +180,129 @@ async function fetchSingleQuestion() {
   }
 }
 
+// Time and ID of the newest notification in the inbox, sent to the notification stream so it
+// only sends the ones created or coalesced after it.
+let newestNotificationTime = 0;
+let newestNotificationId = 0;
+
+// ETag of the inbox the notifications shown were read at, sent to the notification stream so it
+// only reads the database once the inbox changed.
+let inboxEtag = null;
+
+/**
+ * Keeps the time and ID of the notification if it is newer than the newest one in the inbox.
+ * @param {Object} notification
+ */
+function rememberNewestNotification(notification) {
+  if (notification.timestamp > newestNotificationTime
+      || (notification.timestamp === newestNotificationTime
+          && notification.id > newestNotificationId)) {
+    newestNotificationTime = notification.timestamp;
+    newestNotificationId = notification.id;
+  }
+}
+
 /**
- * Fetches notifications of the signed in user.
+ * Fetches the newest page of notifications of the signed in user, along with the number of
+ * unread ones, and then waits for the new ones.
  */
 function fetchNotifications() {
-  fetch('/notification').then(response => response.json()).then((notificationsJson) => {
+  const notificationsElement = document.getElementById('inbox-dropdown');
+  notificationsElement.innerHTML = '';
+  fetchNotificationPage(null).then(() => listenForNotifications());
+  fetchUnreadNotifications();
+}
+
+/**
+ * Keeps a request to the notification stream open, which the server answers with the new
+ * notifications of the user as soon as they are created, or with a heartbeat after a while.
+ * A new request is sent after each answer. If the server is busy or fails, the next request is
+ * sent after a delay.
+ */
+function listenForNotifications() {
+  const since = newestNotificationTime + '_' + newestNotificationId;
+  const etag = inboxEtag ? '&etag=' + encodeURIComponent(inboxEtag) : '';
+  fetch('/notification-stream?since=' + since + etag).then((response) => {
+    if (response.status === 401) {
+      // The user signed out, so there is nothing to wait for.
+      return null;
+    }
+    if (!response.ok) {
+      throw new Error('Notification stream unavailable: ' + response.status);
+    }
+    return response.json().then((message) => {
+      showNewNotifications(message);
+      listenForNotifications();
+    });
+  }).catch(() => {
+    setTimeout(listenForNotifications, 30000);
+  });
+}
+
+/**
+ * Adds the notifications pushed by the server to the top of the inbox and updates the badge.
+ * @param {Object} message : notifications newest first, the number of unread ones and the ETag
+ *     of the inbox when the stream read it.
+ */
+function showNewNotifications(message) {
+  if (message.etag) {
+    inboxEtag = message.etag;
+  }
+  if (message.notifications.length === 0) {
+    // Heartbeat.
+    return;
+  }
+  const notificationsElement = document.getElementById('inbox-dropdown');
+  // The oldest one is added first, so the newest one ends at the top. A notification that is
+  // already shown, like one that coalesced a new answer, is moved to the top with its new message.
+  for (const notification of message.notifications.slice().reverse()) {
+    const shownElement = notificationsElement.querySelector(
+        '[data-notification-id="' + notification.id + '"]');
+    if (shownElement) {
+      shownElement.remove();
+    }
+    notificationsElement.insertBefore(createNotificationsElement(notification),
+        notificationsElement.firstChild);
+    rememberNewestNotification(notification);
+  }
+  if (message.unread !== undefined) {
+    document.getElementById('notifications-badge').innerText = message.unread;
+  } else {
+    fetchUnreadNotifications();
+  }
+}
+
+/**
+ * Appends the page of notifications older than the cursor to the inbox, or the newest page if
+ * there is no cursor.
+ * @param {string} cursor
+ */
+function fetchNotificationPage(cursor) {
+  const url = cursor ? '/notification?cursor=' + encodeURIComponent(cursor) : '/notification';
+  return fetch(url).then((response) => {
+    if (!cursor) {
+      inboxEtag = response.headers.get('ETag');
+    }
+    return response.json();
+  }).then((notificationPage) => {
     const notificationsElement = document.getElementById('inbox-dropdown');
-    notificationsElement.innerHTML = '';
-    let numberOfNotifications = 0;
-    for (const notification of notificationsJson) {
-      // Increment counter for each notification.
-      numberOfNotifications++;
+    for (const notification of notificationPage.notifications) {
       notificationsElement.appendChild(createNotificationsElement(notification));
+      rememberNewestNotification(notification);
+    }
+    if (notificationPage.olderNotificationsCursor) {
+      notificationsElement.appendChild(
+          createOlderNotificationsElement(notificationPage.olderNotificationsCursor));
     }
-    // Display total number of notifications.
-    document.getElementById("notifications-badge").innerText = numberOfNotifications;
+  });
+}
+
+/**
+ * Displays the number of unread notifications in the navbar badge.
+ */
+function fetchUnreadNotifications() {
+  fetch('/unread-notifications').then(response => response.json()).then((unreadJson) => {
+    document.getElementById("notifications-badge").innerText = unreadJson.unread;
   });
 }
 
@@ -441,12 +555,43 @@ function createNotificationsElement(notification) {
   // Create a link to redirect the user to the question that was answered or commented.
   const linkElement = document.createElement('a');
   linkElement.innerText = linkElement.innerText.concat(notification.message, ' - ');
-  linkElement.innerText = linkElement.innerText.concat(notification.timestamp.toString());
+  linkElement.innerText = linkElement.innerText.concat(formatTimestamp(notification.timestamp));
   linkElement.setAttribute('href', notification.url);
+  if (!notification.isRead) {
+    // Unread notifications are shown in bold and marked as read once they are opened. The
+    // beacon is still sent while the browser leaves the page.
+    linkElement.style.fontWeight = 'bold';
+    linkElement.addEventListener('click', () => {
+      navigator.sendBeacon('/unread-notifications',
+          new URLSearchParams({'notification-id': notification.id}));
+    });
+  }
   // Create list element.
   const liElement = document.createElement('li');
   liElement.appendChild(linkElement);
   liElement.setAttribute('class', 'list-group-item');
+  liElement.dataset.notificationId = notification.id;
+  return liElement;
+}
+
+/**
+ * Creates the last item of the inbox, which replaces itself with the older notifications.
+ * @param {string} cursor : cursor of the page of older notifications.
+ */
+function createOlderNotificationsElement(cursor) {
+  const liElement = document.createElement('li');
+  liElement.setAttribute('class', 'list-group-item');
+  const linkElement = document.createElement('a');
+  linkElement.innerText = 'Older notifications';
+  linkElement.setAttribute('href', '#');
+  linkElement.addEventListener('click', (event) => {
+    // Keep the dropdown open while the next page is loaded.
+    event.preventDefault();
+    event.stopPropagation();
+    liElement.remove();
+    fetchNotificationPage(cursor);
+  });
+  liElement.appendChild(linkElement);
   return liElement;
 }
 
@@ -470,11 +615,11 @@ function createPageElement(forumPage, pageNumber, searchString) {
     previousWrapper.setAttribute('class', 'page-item');
     if (searchString == '') {
       previousWrapper.onclick = function() {
-        fetchForum(pageNumber - 1);
+        fetchForum(pageNumber - 1, forumPage.previousCursor, 'previous');
       }
     } else {
       previousWrapper.onclick = function() {
-        searchQuestion(searchString, pageNumber - 1);
+        searchQuestion(searchString, pageNumber - 1, forumPage.previousCursor, 'previous');
       }
     }
   } else {
@@ -490,7 +635,7 @@ function createPageElement(forumPage, pageNumber, searchString) {
   currentPage.setAttribute('class', 'page-item');
   const pageText = document.createElement('a');
   pageText.setAttribute('class', 'page-link');
-  pageText.innerText = 'Page ' + pageNumber + ' of ' + forumPage.numberOfPages;
+  pageText.innerText = 'Page ' + pageNumber;
   currentPage.appendChild(pageText);
   pageIndexes.appendChild(currentPage);
 
@@ -499,11 +644,11 @@ function createPageElement(forumPage, pageNumber, searchString) {
     nextWrapper.setAttribute('class', 'page-item');
     if (searchString == '') {
       nextWrapper.onclick = function() {
-        fetchForum(pageNumber + 1);
+        fetchForum(pageNumber + 1, forumPage.nextCursor, 'next');
       }
     } else {
       nextWrapper.onclick = function() {
-        searchQuestion(searchString, pageNumber + 1);
+        searchQuestion(searchString, pageNumber + 1, forumPage.nextCursor, 'next');
       }
     }
   } else {
@@ -624,7 +769,7 @@ function createQuestionElement(question, isForum) {
   // Date is placed beneath the body or title.
   const dateElement = document.createElement('small');
   dateElement.setAttribute('class', 'text-muted');
-  dateElement.innerText = question.dateTime;
+  dateElement.innerText = formatTimestamp(question.dateTime);
   textContainer.appendChild(dateElement);
 
   return questionWrapper;
@@ -650,7 +795,7 @@ function createAnswerElement(answer) {
   
   const dateElement = document.createElement('small');
   dateElement.setAttribute('class', 'text-muted');
-  dateElement.innerText = answer.dateTime;
+  dateElement.innerText = formatTimestamp(answer.dateTime);
   answerElement.appendChild(document.createElement('br'));
   answerElement.appendChild(dateElement);
 
@@ -676,13 +821,38 @@ function createCommentElement(comment) {
   
   const dateElement = document.createElement('small');
   dateElement.setAttribute('class', 'text-muted');
-  dateElement.innerText = comment.dateTime;
+  dateElement.innerText = formatTimestamp(comment.dateTime);
   commentElement.appendChild(document.createElement('br'));
   commentElement.appendChild(dateElement);
 
   return commentElement;
 }
 
+/** 
+ * Creates a button that loads the page of comments older than the cursor and adds them above
+ * the ones already shown. The button is replaced by a new one while there are older comments.
+ */
+function createOlderCommentsButton(questionId, answerId, cursor, commentsContainer) {
+  const buttonElement = document.createElement('button');
+  buttonElement.setAttribute('class', 'list-group-item list-group-item-action text-muted');
+  buttonElement.innerText = 'Show earlier comments';
+  buttonElement.addEventListener('click', async () => {
+    const response = await fetch('/comments?question-id=' + questionId + '&answer-id='
+        + answerId + '&cursor=' + cursor);
+    const commentPage = await response.json();
+    const firstComment = buttonElement.nextSibling;
+    commentPage.comments.forEach(comment => {
+      commentsContainer.insertBefore(createCommentElement(comment), firstComment);
+    });
+    if (commentPage.olderCommentsCursor) {
+      commentsContainer.prepend(createOlderCommentsButton(
+          questionId, answerId, commentPage.olderCommentsCursor, commentsContainer));
+    }
+    buttonElement.remove();
+  });
+  return buttonElement;
+}
+
 /** 
  * Creates an element with the form to upload a comment. 
  */
@@ -912,11 +1082,12 @@ function searchRedirect() {
 /**
  * Searches questions that contain the input string in the title or body elements.
  */
-async function searchQuestion(stringSearchInput, pageNumber) {
+async function searchQuestion(stringSearchInput, pageNumber, cursor, direction) {
   if (stringSearchInput != "") {
     const questionsContainer = document.getElementById('forum');
     questionsContainer.innerHTML = "";
-    fetch('/search-question?inputString=' + stringSearchInput + '&page=' + pageNumber)
+    fetch('/search-question?inputString=' + stringSearchInput + '&page=' + pageNumber
+        + getCursorQueryString(cursor, direction))
         .then(response => response.json()).then(forumPage => {
           questionsContainer.appendChild(createPageElement(
               forumPage, pageNumber, stringSearchInput));
@@ -924,6 +1095,17 @@ async function searchQuestion(stringSearchInput, pageNumber) {
   }
 }
 
+/**
+ * Returns the query string that locates a forum page from the cursor of a neighbouring page.
+ * Returns an empty string for the first page.
+ */
+function getCursorQueryString(cursor, direction) {
+  if (!cursor) {
+    return '';
+  }
+  return '&cursor=' + encodeURIComponent(cursor) + '&direction=' + direction;
+}
+
 /**
  * Disables form submissions if there are invalid fields in it.
  */
@@ -957,3 +1139,11 @@ function eraseQueryStringFromUrl() {
       window.history.replaceState({}, document.title, clean_uri);
   }
 }
+
+/**
+ * Returns a timestamp sent by the server, in milliseconds since the epoch, as a readable date in
+ * the locale of the user.
+ */
+function formatTimestamp(timestamp) {
+  return new Date(timestamp).toLocaleString();
+}
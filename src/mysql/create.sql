@@ -14,6 +14,8 @@ CREATE TABLE Major (
 );
 
 -- A user, either mentor or mentee, with their essential information and their majors.
+-- The number of unread notifications is kept up to date by the servlets that modify them, so the
+-- navbar badge doesn't need to count them on every page.
 CREATE TABLE User (
   id INT NOT NULL AUTO_INCREMENT,
   first_name VARCHAR(255),
@@ -22,31 +24,75 @@ CREATE TABLE User (
   email VARCHAR(255),
   major_id INT NOT NULL,
   is_mentor BOOLEAN,
+  unread_notifications INT NOT NULL DEFAULT 0,
   PRIMARY KEY (id),
   FOREIGN KEY (major_id) 
   REFERENCES Major (id)
 );
 
 -- A notification that has a message, URL and the time it was created.
+-- Repeated notifications about the same element within a short window are coalesced into one,
+-- which counts the events it stands for and takes the time of the newest one. The count is shared
+-- by its users, so a notification is only coalesced while none of them has read it. The element is
+-- identified by the coalesce key, e.g. "question:5", which is NULL for notifications that are
+-- never coalesced.
+-- The date is indexed so the retention job finds the old notifications without a full scan.
 CREATE TABLE Notification (
   id INT NOT NULL AUTO_INCREMENT,
   message TEXT,
   url VARCHAR(255),
   date_time DATETIME,
-  PRIMARY KEY (id)
+  event_count INT NOT NULL DEFAULT 1,
+  coalesce_key VARCHAR(64),
+  PRIMARY KEY (id),
+  INDEX (coalesce_key, date_time),
+  INDEX (date_time)
 );
 
--- Links a specific user with a specific notification.
+-- Links a specific user with a specific notification, and whether the user read it.
+-- The date of the notification is copied here so the index seeks directly to a page of the inbox.
 CREATE TABLE UserNotification (
   user_id INT NOT NULL,
   notification_id INT NOT NULL,
+  date_time DATETIME,
+  is_read BOOLEAN NOT NULL DEFAULT FALSE,
   PRIMARY KEY (user_id, notification_id),
+  INDEX (user_id, date_time, notification_id),
   FOREIGN KEY (user_id)
   REFERENCES User (id),
   FOREIGN KEY (notification_id)
   REFERENCES Notification (id)
 );
 
+-- Names of the notification tasks whose notification was created, so a task retried after its
+-- transaction committed doesn't create it again. The retention job deletes the old ones.
+CREATE TABLE NotificationTask (
+  task_name VARCHAR(500) NOT NULL,
+  date_time DATETIME,
+  PRIMARY KEY (task_name),
+  INDEX (date_time)
+);
+
+-- Notifications moved out of Notification and UserNotification by the retention job, once they
+-- are older than the retention period or beyond the notifications kept for each user. They are
+-- no longer shown in the inbox, which only reads the tables above.
+CREATE TABLE NotificationArchive (
+  id INT NOT NULL,
+  message TEXT,
+  url VARCHAR(255),
+  date_time DATETIME,
+  event_count INT NOT NULL DEFAULT 1,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE UserNotificationArchive (
+  user_id INT NOT NULL,
+  notification_id INT NOT NULL,
+  date_time DATETIME,
+  is_read BOOLEAN NOT NULL DEFAULT FALSE,
+  PRIMARY KEY (user_id, notification_id)
+);
+
 -- Tags used to differentiate questions by subject. Also used to determine mentor experience.
 CREATE TABLE SubjectTag (
   id INT NOT NULL AUTO_INCREMENT,
@@ -92,6 +138,9 @@ CREATE TABLE MentorApproval (
 
 -- A question to be posted in the forum.
 -- The fulltext creates an index in which the search takes place.
+-- The date_time index is used to seek directly to a page of the forum.
+-- The number of followers and answers are kept up to date by the servlets that modify them, so
+-- the forum doesn't need to count them on every request.
 CREATE TABLE Question (
   id INT NOT NULL AUTO_INCREMENT,
   title VARCHAR(255),
@@ -99,7 +148,10 @@ CREATE TABLE Question (
   FULLTEXT (title,body),
   asker_id INT NOT NULL,
   date_time DATETIME,
+  number_of_followers INT NOT NULL DEFAULT 0,
+  number_of_answers INT NOT NULL DEFAULT 0,
   PRIMARY KEY (id),
+  INDEX (date_time, id),
   FOREIGN KEY (asker_id)
   REFERENCES User (id)
 );
@@ -127,6 +179,8 @@ CREATE TABLE TagInQuestion (
 );
 
 -- One answer to a question. Will be displayed by number of votes.
+-- The number of comments is kept up to date by the servlet that posts them, so an answer can
+-- tell how many comments it has without counting them.
 CREATE TABLE Answer (
   id INT NOT NULL AUTO_INCREMENT,
   question_id INT NOT NULL,
@@ -134,6 +188,7 @@ CREATE TABLE Answer (
   author_id INT NOT NULL,
   date_time DATETIME,
   votes INT,
+  number_of_comments INT NOT NULL DEFAULT 0,
   PRIMARY KEY (id),
   FOREIGN KEY (question_id) 
   REFERENCES Question (id),
@@ -153,6 +208,8 @@ CREATE TABLE AnswerFollower (
 );
 
 -- Comments to a specific answer of a question. Will be displayed chronologically.
+-- The answer_id index is used to seek directly to the newest comments of an answer and to each
+-- page of older ones.
 CREATE TABLE Comment (
   id INT NOT NULL AUTO_INCREMENT,
   answer_id INT NOT NULL,
@@ -160,8 +217,17 @@ CREATE TABLE Comment (
   author_id INT NOT NULL,
   date_time DATETIME,
   PRIMARY KEY (id),
+  INDEX (answer_id, date_time, id),
   FOREIGN KEY (answer_id) 
   REFERENCES Answer (id),
   FOREIGN KEY (author_id) 
   REFERENCES User (id)
 );
+
+-- Version of a content served with an ETag, e.g. "feed" or "question/5". The servlets that
+-- write bump the version of what they changed, and every instance builds the ETags from it.
+CREATE TABLE ContentVersion (
+  content_key VARCHAR(64) NOT NULL,
+  version BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (content_key)
+);
@@ -137,3 +137,15 @@ INSERT INTO Comment (answer_id, body, author_id, date_time)
 VALUES
   (3, 'And how much does it cost?', 7, '2020-07-29 19:00:00.000000'),
   (3, '50$', 1, '2020-07-29 20:00:00.000000');
+
+-- Counters are not updated by the inserts above, so they are computed once from the dummy data.
+UPDATE Question SET
+  number_of_followers = (SELECT COUNT(*) FROM QuestionFollower WHERE question_id = Question.id),
+  number_of_answers = (SELECT COUNT(*) FROM Answer WHERE question_id = Question.id);
+UPDATE Answer SET
+  number_of_comments = (SELECT COUNT(*) FROM Comment WHERE answer_id = Answer.id);
+UPDATE UserNotification SET
+  date_time = (SELECT date_time FROM Notification WHERE id = UserNotification.notification_id);
+UPDATE User SET
+  unread_notifications =
+      (SELECT COUNT(*) FROM UserNotification WHERE user_id = User.id AND is_read = FALSE);
@@ -0,0 +1,76 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+ 
+package com.google.sps;
+
+import com.google.sps.classes.ConnectionLeakTracker;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public final class ConnectionLeakTrackerTest {
+
+  /** Tests for track() and getStatistics() functions */
+  @Test
+  public void track_closedConnection_isReturned() throws SQLException {
+    ConnectionLeakTracker tracker = new ConnectionLeakTracker(/*leakThreshold=*/60000);
+    Connection connection = mock(Connection.class);
+
+    tracker.track(connection).close();
+
+    verify(connection).close();
+    Map<String, Object> statistics = tracker.getStatistics();
+    Assert.assertEquals(1L, statistics.get("borrowed"));
+    Assert.assertEquals(1L, statistics.get("returned"));
+    Assert.assertEquals(0, statistics.get("open"));
+  }
+
+  @Test
+  public void track_connectionClosedTwice_isReturnedOnce() throws SQLException {
+    ConnectionLeakTracker tracker = new ConnectionLeakTracker(/*leakThreshold=*/60000);
+    Connection connection = tracker.track(mock(Connection.class));
+
+    connection.close();
+    connection.close();
+
+    Assert.assertEquals(1L, tracker.getStatistics().get("returned"));
+  }
+
+  @Test
+  public void getSuspectedLeaks_openPastThreshold_reportsStackTrace() {
+    ConnectionLeakTracker tracker = new ConnectionLeakTracker(/*leakThreshold=*/0);
+
+    tracker.track(mock(Connection.class));
+
+    Assert.assertEquals(1, tracker.getOpenConnections());
+    Assert.assertEquals(1, tracker.getSuspectedLeaks().size());
+    Assert.assertTrue(tracker.getSuspectedLeaks().get(0).contains(
+        "getSuspectedLeaks_openPastThreshold_reportsStackTrace"));
+  }
+
+  @Test
+  public void getSuspectedLeaks_openBelowThreshold_reportsNothing() {
+    ConnectionLeakTracker tracker = new ConnectionLeakTracker(/*leakThreshold=*/60000);
+
+    tracker.track(mock(Connection.class));
+
+    Assert.assertTrue(tracker.getSuspectedLeaks().isEmpty());
+  }
+}
@@ -0,0 +1,152 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+ 
+package com.google.sps;
+
+import com.google.sps.classes.ContentVersions;
+import com.google.sps.classes.SqlStatements;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public final class ContentVersionsTest {
+
+  // Time to live long enough for no version to expire during a test.
+  private static final long TIME_TO_LIVE = 60000;
+
+  // Stands in for the ContentVersion table.
+  private final Map<String, Long> storedVersions = new HashMap<>();
+  private Connection connection;
+  private PreparedStatement fetchStatement;
+
+  @Before
+  public void setUp() throws SQLException {
+    connection = mock(Connection.class);
+
+    fetchStatement = mock(PreparedStatement.class);
+    String[] fetchedKey = new String[1];
+    ResultSet resultSet = mock(ResultSet.class);
+    when(connection.prepareStatement(SqlStatements.FETCH_CONTENT_VERSION))
+        .thenReturn(fetchStatement);
+    doAnswer(invocation -> fetchedKey[0] = invocation.getArgument(1))
+        .when(fetchStatement).setString(anyInt(), anyString());
+    when(fetchStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenAnswer(invocation -> storedVersions.containsKey(fetchedKey[0]));
+    when(resultSet.getLong(anyInt())).thenAnswer(invocation -> storedVersions.get(fetchedKey[0]));
+
+    PreparedStatement bumpStatement = mock(PreparedStatement.class);
+    List<String> bumpedKeys = new ArrayList<>();
+    when(connection.prepareStatement(SqlStatements.BUMP_CONTENT_VERSION))
+        .thenReturn(bumpStatement);
+    doAnswer(invocation -> bumpedKeys.add(invocation.getArgument(1)))
+        .when(bumpStatement).setString(anyInt(), anyString());
+    when(bumpStatement.executeBatch()).thenAnswer(invocation -> {
+      for (String key : bumpedKeys) {
+        storedVersions.merge(key, 1L, Long::sum);
+      }
+      bumpedKeys.clear();
+      return new int[0];
+    });
+  }
+
+  /** Tests for getEtag() and bump() functions */
+  @Test
+  public void getEtag_noWrites_returnsSameEtag() throws SQLException {
+    ContentVersions contentVersions = new ContentVersions(/*maxEntries=*/10, TIME_TO_LIVE);
+
+    String first = contentVersions.getEtag(connection, ContentVersions.question(1));
+    String second = contentVersions.getEtag(connection, ContentVersions.question(1));
+
+    Assert.assertEquals(first, second);
+    Assert.assertTrue(first.startsWith("\"") && first.endsWith("\""));
+  }
+
+  @Test
+  public void getEtag_cachedVersions_areNotReadAgain() throws SQLException {
+    ContentVersions contentVersions = new ContentVersions(/*maxEntries=*/10, TIME_TO_LIVE);
+
+    contentVersions.getEtag(connection, ContentVersions.question(1));
+    contentVersions.getEtag(connection, ContentVersions.question(1));
+
+    // The version of ALL and the one of the question, each read once.
+    verify(fetchStatement, times(2)).executeQuery();
+  }
+
+  @Test
+  public void getEtag_afterBump_returnsNewEtag() throws SQLException {
+    ContentVersions contentVersions = new ContentVersions(/*maxEntries=*/10, TIME_TO_LIVE);
+    String before = contentVersions.getEtag(connection, ContentVersions.question(1));
+
+    contentVersions.bump(Collections.singletonList(ContentVersions.question(1)), connection);
+
+    Assert.assertNotEquals(before,
+        contentVersions.getEtag(connection, ContentVersions.question(1)));
+  }
+
+  @Test
+  public void getEtag_bumpOfOtherKey_returnsSameEtag() throws SQLException {
+    ContentVersions contentVersions = new ContentVersions(/*maxEntries=*/10, TIME_TO_LIVE);
+    String before = contentVersions.getEtag(connection, ContentVersions.question(1));
+
+    contentVersions.bump(Collections.singletonList(ContentVersions.question(2)), connection);
+
+    Assert.assertEquals(before, contentVersions.getEtag(connection, ContentVersions.question(1)));
+  }
+
+  @Test
+  public void getEtag_bumpOfAll_returnsNewEtag() throws SQLException {
+    ContentVersions contentVersions = new ContentVersions(/*maxEntries=*/10, TIME_TO_LIVE);
+    String before = contentVersions.getEtag(connection, ContentVersions.question(1));
+
+    contentVersions.bump(Collections.singletonList(ContentVersions.ALL), connection);
+
+    Assert.assertNotEquals(before,
+        contentVersions.getEtag(connection, ContentVersions.question(1)));
+  }
+
+  @Test
+  public void getEtag_otherInstance_returnsSameEtag() throws SQLException {
+    // Instances share the stored versions, so a conditional GET matches on any of them.
+    ContentVersions contentVersions = new ContentVersions(/*maxEntries=*/10, TIME_TO_LIVE);
+    ContentVersions otherInstanceVersions = new ContentVersions(/*maxEntries=*/10, TIME_TO_LIVE);
+    contentVersions.bump(Collections.singletonList(ContentVersions.question(1)), connection);
+
+    Assert.assertEquals(contentVersions.getEtag(connection, ContentVersions.question(1)),
+        otherInstanceVersions.getEtag(connection, ContentVersions.question(1)));
+  }
+
+  @Test
+  public void getEtag_evictedVersion_returnsSameEtag() throws SQLException {
+    ContentVersions contentVersions = new ContentVersions(/*maxEntries=*/1, TIME_TO_LIVE);
+    String before = contentVersions.getEtag(connection, ContentVersions.question(1));
+
+    // Evicts the version of the first question, which is read again.
+    contentVersions.getEtag(connection, ContentVersions.question(2));
+
+    Assert.assertEquals(before, contentVersions.getEtag(connection, ContentVersions.question(1)));
+  }
+}
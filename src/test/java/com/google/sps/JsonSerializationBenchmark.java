@@ -0,0 +1,124 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.gson.Gson;
+import com.google.sps.classes.Answer;
+import com.google.sps.classes.Comment;
+import com.google.sps.classes.ForumPage;
+import com.google.sps.classes.JsonAdapters;
+import com.google.sps.classes.Question;
+import com.google.sps.classes.SqlConstants;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the reflective Gson path against the hand-written adapters of JsonAdapters, on the
+ * two responses sent most often: a forum page and the answers of a question. It isn't a test,
+ * run its main method after `mvn test-compile` with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+  private static final int ANSWERS_PER_QUESTION = 10;
+  private static final int COMMENTS_PER_ANSWER = 5;
+
+  private final Gson reflectiveGson = new Gson();
+  private final Gson adapterGson = JsonAdapters.createGson();
+  private ForumPage forumPage;
+  private List<Answer> answers;
+
+  @Setup
+  public void setUp() {
+    Timestamp timestamp = new Timestamp(1598899790000L);
+    List<Question> questions = new ArrayList<>();
+    for (int i = 0; i < SqlConstants.PAGE_SIZE; i++) {
+      Question question = new Question();
+      question.setId(i);
+      question.setTitle("How do I prepare for my first technical interview?");
+      question.setBody("I have my first interview next week and I don't know where to start.");
+      question.setAskerName("asker" + i);
+      question.setAskerId(i);
+      question.setDateTime(timestamp);
+      question.setNumberOfFollowers(i);
+      question.setNumberOfAnswers(i);
+      questions.add(question);
+    }
+    forumPage = new ForumPage(2, null, questions, "1598899790_9", null);
+
+    answers = new ArrayList<>();
+    for (int i = 0; i < ANSWERS_PER_QUESTION; i++) {
+      Answer answer = new Answer();
+      answer.setId(i);
+      answer.setBody("Practice with problems out loud and review data structures.");
+      answer.setAuthorName("mentor" + i);
+      answer.setIsVerifiedMentor(i % 2 == 0);
+      answer.setDateTime(timestamp);
+      for (int j = 0; j < COMMENTS_PER_ANSWER; j++) {
+        Comment comment = new Comment();
+        comment.setBody("Thanks, this helped a lot.");
+        comment.setAuthorName("user" + j);
+        comment.setDateTime(timestamp);
+        answer.addComment(comment);
+      }
+      answers.add(answer);
+    }
+  }
+
+  @Benchmark
+  public String forumPageReflective() {
+    return reflectiveGson.toJson(forumPage);
+  }
+
+  @Benchmark
+  public String forumPageAdapters() {
+    return adapterGson.toJson(forumPage);
+  }
+
+  @Benchmark
+  public String answersReflective() {
+    return reflectiveGson.toJson(answers);
+  }
+
+  @Benchmark
+  public String answersAdapters() {
+    return adapterGson.toJson(answers);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(JsonSerializationBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
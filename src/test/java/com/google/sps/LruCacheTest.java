@@ -0,0 +1,153 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+ 
+package com.google.sps;
+
+import com.google.sps.classes.CacheStatistics;
+import com.google.sps.classes.LruCache;
+import org.junit.Assert;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.Test;
+
+@RunWith(JUnit4.class)
+public final class LruCacheTest {
+
+  // Time to live long enough for no entry to expire during a test.
+  private static final long TIME_TO_LIVE = 60000;
+
+  /** Tests for get() and put() functions */
+  @Test
+  public void get_cachedValue_returnsValueAndCountsHit() {
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    cache.put("key", "value", cache.getGeneration());
+
+    String actual = cache.get("key");
+    CacheStatistics statistics = cache.getStatistics();
+
+    Assert.assertEquals("value", actual);
+    Assert.assertEquals(1, statistics.getHits());
+    Assert.assertEquals(0, statistics.getMisses());
+  }
+
+  @Test
+  public void get_missingValue_returnsNullAndCountsMiss() {
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+
+    String actual = cache.get("key");
+
+    Assert.assertNull(actual);
+    Assert.assertEquals(1, cache.getStatistics().getMisses());
+  }
+
+  @Test
+  public void put_overMaxEntries_evictsLeastRecentlyUsed() {
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    cache.put("first", "1", cache.getGeneration());
+    cache.put("second", "2", cache.getGeneration());
+    // Reading the first entry makes the second one the least recently used.
+    cache.get("first");
+    cache.put("third", "3", cache.getGeneration());
+
+    Assert.assertEquals("1", cache.get("first"));
+    Assert.assertNull(cache.get("second"));
+    Assert.assertEquals("3", cache.get("third"));
+    Assert.assertEquals(1, cache.getStatistics().getEvictions());
+  }
+
+  @Test
+  public void get_expiredValue_returnsNull() {
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, /*timeToLive=*/-1);
+    cache.put("key", "value", cache.getGeneration());
+
+    Assert.assertNull(cache.get("key"));
+  }
+
+  /** Tests for invalidateAll() function */
+  @Test
+  public void invalidateAll_cachedValues_removesValues() {
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    cache.put("key", "value", cache.getGeneration());
+
+    cache.invalidateAll();
+
+    Assert.assertNull(cache.get("key"));
+  }
+
+  @Test
+  public void put_valueBuiltBeforeInvalidation_isNotCached() {
+    // A value read from the database before a write invalidated the cache is stale.
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    long generation = cache.getGeneration();
+    cache.invalidateAll();
+    cache.put("key", "stale value", generation);
+
+    Assert.assertNull(cache.get("key"));
+  }
+
+  @Test
+  public void put_valueBuiltBeforeInvalidationOfItsKey_isNotCached() {
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    long generation = cache.getGeneration();
+    cache.invalidate("key");
+    cache.put("key", "stale value", generation);
+
+    Assert.assertNull(cache.get("key"));
+  }
+
+  @Test
+  public void put_valueBuiltBeforeUpdateOfItsKey_isNotCached() {
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    long generation = cache.getGeneration();
+    cache.update("key", value -> value + " updated");
+    cache.put("key", "stale value", generation);
+
+    Assert.assertNull(cache.get("key"));
+  }
+
+  @Test
+  public void put_valueBuiltBeforeInvalidationOfAnotherKey_isCached() {
+    // A write to one key doesn't make the values of the other keys stale.
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    long generation = cache.getGeneration();
+    cache.invalidate("other");
+    cache.update("another", value -> value + " updated");
+    cache.put("key", "value", generation);
+
+    Assert.assertEquals("value", cache.get("key"));
+  }
+
+  @Test
+  public void put_valueBuiltAfterInvalidation_isCached() {
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    cache.invalidate("key");
+    cache.put("key", "value", cache.getGeneration());
+
+    Assert.assertEquals("value", cache.get("key"));
+  }
+
+  @Test
+  public void put_tombstoneOfItsKeyDropped_isNotCached() {
+    // Only the tombstones of the latest writes are kept, the older ones reject every value
+    // built before them.
+    LruCache<String, String> cache = new LruCache<>(/*maxEntries=*/2, TIME_TO_LIVE);
+    long generation = cache.getGeneration();
+    cache.invalidate("key");
+    cache.invalidate("second");
+    cache.invalidate("third");
+    cache.put("key", "stale value", generation);
+
+    Assert.assertNull(cache.get("key"));
+  }
+}
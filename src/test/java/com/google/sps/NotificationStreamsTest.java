@@ -0,0 +1,184 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+ 
+package com.google.sps;
+
+import com.google.sps.classes.Notification;
+import com.google.sps.classes.NotificationStreams;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public final class NotificationStreamsTest {
+
+  private NotificationStreams streams;
+  private AsyncContext asyncContext;
+  private StringWriter responseBody;
+
+  @Before
+  public void setUp() throws IOException {
+    // At most two open streams, answered with a heartbeat after 25 seconds.
+    streams = new NotificationStreams(2, 25000);
+    asyncContext = mockAsyncContext();
+  }
+
+  /** Tests for open() function */
+  @Test
+  public void open_underCap_streamHeld() {
+    Assert.assertTrue(streams.open(1, asyncContext));
+
+    Assert.assertEquals(1, streams.getOpenStreams());
+    verify(asyncContext).setTimeout(25000);
+    verify(asyncContext, never()).complete();
+  }
+
+  @Test
+  public void open_capReached_streamRejected() throws IOException {
+    streams.open(1, mockAsyncContext());
+    streams.open(2, mockAsyncContext());
+
+    Assert.assertFalse(streams.open(3, asyncContext));
+    Assert.assertEquals(2, streams.getOpenStreams());
+    Assert.assertEquals(1L, streams.getStatistics().get("rejected"));
+  }
+
+  /** Tests for push() function */
+  @Test
+  public void push_openStream_notificationWrittenAndStreamClosed() {
+    streams.open(1, asyncContext);
+    Notification notification = new Notification();
+    notification.id = 7;
+    notification.message = "Your question was answered.";
+
+    int answered = streams.push(1, Collections.singletonList(notification), 3);
+
+    Assert.assertEquals(1, answered);
+    Assert.assertTrue(responseBody.toString().contains("\"id\":7"));
+    Assert.assertTrue(responseBody.toString().contains("\"unread\":3"));
+    verify(asyncContext).complete();
+    Assert.assertEquals(0, streams.getOpenStreams());
+  }
+
+  @Test
+  public void push_otherUser_streamKeptOpen() {
+    streams.open(1, asyncContext);
+
+    int answered = streams.push(2, Collections.singletonList(new Notification()), 1);
+
+    Assert.assertEquals(0, answered);
+    Assert.assertEquals(1, streams.getOpenStreams());
+    verify(asyncContext, never()).complete();
+  }
+
+  @Test
+  public void push_streamAlreadyAnswered_answeredOnce() {
+    streams.open(1, asyncContext);
+
+    streams.push(1, Collections.singletonList(new Notification()), 1);
+    int answered = streams.push(1, Collections.singletonList(new Notification()), 2);
+
+    Assert.assertEquals(0, answered);
+    verify(asyncContext, times(1)).complete();
+  }
+
+  /** Tests for catchUp() function */
+  @Test
+  public void catchUp_openStreams_onlyItsStreamAnsweredWithEtag() throws IOException {
+    AsyncContext otherTab = mockAsyncContext();
+    asyncContext = mockAsyncContext();
+    streams.open(1, otherTab);
+    streams.open(1, asyncContext);
+
+    boolean answered = streams.catchUp(1, asyncContext, Collections.emptyList(), "\"local-0-4\"");
+
+    Assert.assertTrue(answered);
+    Assert.assertTrue(responseBody.toString().contains("\"etag\":\"\\\"local-0-4\\\"\""));
+    verify(asyncContext).complete();
+    verify(otherTab, never()).complete();
+    Assert.assertEquals(1, streams.getOpenStreams());
+    Assert.assertEquals(1L, streams.getStatistics().get("caughtUp"));
+  }
+
+  @Test
+  public void catchUp_streamAlreadyAnswered_returnsFalse() {
+    streams.open(1, asyncContext);
+    streams.push(1, Collections.singletonList(new Notification()), 1);
+
+    Assert.assertFalse(streams.catchUp(1, asyncContext, Collections.emptyList(), "\"etag\""));
+    verify(asyncContext, times(1)).complete();
+  }
+
+  /** Tests for the heartbeat */
+  @Test
+  public void timeout_openStream_heartbeatWritten() throws IOException {
+    streams.open(1, asyncContext);
+    ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(asyncContext).addListener(listener.capture());
+
+    listener.getValue().onTimeout(mock(AsyncEvent.class));
+
+    Assert.assertEquals("{\"notifications\":[]}", responseBody.toString().trim());
+    verify(asyncContext).complete();
+    Assert.assertEquals(0, streams.getOpenStreams());
+    Assert.assertEquals(1L, streams.getStatistics().get("heartbeats"));
+  }
+
+  @Test
+  public void error_openStream_streamClosed() throws IOException {
+    streams.open(1, asyncContext);
+    ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(asyncContext).addListener(listener.capture());
+
+    listener.getValue().onError(mock(AsyncEvent.class));
+
+    Assert.assertEquals(0, streams.getOpenStreams());
+    Assert.assertEquals(0, streams.push(1, Collections.singletonList(new Notification()), 1));
+  }
+
+  /** Tests for closeAll() function */
+  @Test
+  public void closeAll_openStreams_allAnswered() {
+    streams.open(1, asyncContext);
+
+    streams.closeAll();
+
+    verify(asyncContext).complete();
+    Assert.assertEquals(0, streams.getOpenStreams());
+  }
+
+  /**
+   * Returns a started async request whose response is written to responseBody.
+   */
+  private AsyncContext mockAsyncContext() throws IOException {
+    AsyncContext mockContext = mock(AsyncContext.class);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    responseBody = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(responseBody, true));
+    when(mockContext.getResponse()).thenReturn(response);
+    return mockContext;
+  }
+}
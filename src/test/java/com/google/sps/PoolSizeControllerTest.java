@@ -0,0 +1,125 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+ 
+package com.google.sps;
+
+import com.google.sps.classes.PoolMetrics;
+import com.google.sps.classes.PoolSizeController;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public final class PoolSizeControllerTest {
+
+  private HikariPoolMXBean poolBean;
+  private HikariConfigMXBean configBean;
+  private PoolMetrics poolMetrics;
+  private IMetricsTracker tracker;
+  private PoolSizeController controller;
+
+  @Before
+  public void setUp() {
+    // Pool of 20 connections, half of them kept idle, that can go from 10 to 40.
+    poolBean = mock(HikariPoolMXBean.class);
+    configBean = mock(HikariConfigMXBean.class);
+    when(configBean.getMaximumPoolSize()).thenReturn(20);
+    when(configBean.getMinimumIdle()).thenReturn(10);
+    poolMetrics = new PoolMetrics();
+    tracker = poolMetrics.create("test-pool", null);
+    controller = new PoolSizeController(poolBean, configBean, poolMetrics,
+        /*lowerBound=*/10, /*upperBound=*/40, /*targetWaitMillis=*/50);
+  }
+
+  /** Tests for adjust() function */
+  @Test
+  public void adjust_pendingThreads_growsPool() {
+    when(poolBean.getThreadsAwaitingConnection()).thenReturn(2);
+
+    controller.adjust();
+
+    verify(configBean).setMaximumPoolSize(25);
+    verify(configBean).setMinimumIdle(13);
+  }
+
+  @Test
+  public void adjust_slowWaits_growsPool() {
+    tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(200));
+
+    controller.adjust();
+
+    verify(configBean).setMaximumPoolSize(25);
+  }
+
+  @Test
+  public void adjust_atUpperBound_keepsSize() {
+    when(configBean.getMaximumPoolSize()).thenReturn(40);
+    when(poolBean.getThreadsAwaitingConnection()).thenReturn(5);
+
+    controller.adjust();
+
+    verify(configBean, never()).setMaximumPoolSize(anyInt());
+  }
+
+  @Test
+  public void adjust_quietIntervals_shrinksPoolOnce() {
+    when(poolBean.getActiveConnections()).thenReturn(1);
+
+    controller.adjust();
+    controller.adjust();
+    verify(configBean, never()).setMaximumPoolSize(anyInt());
+    controller.adjust();
+
+    verify(configBean).setMaximumPoolSize(19);
+  }
+
+  @Test
+  public void adjust_atLowerBound_keepsSize() {
+    when(configBean.getMaximumPoolSize()).thenReturn(10);
+    when(poolBean.getActiveConnections()).thenReturn(0);
+
+    for (int i = 0; i < 5; i++) {
+      controller.adjust();
+    }
+
+    verify(configBean, never()).setMaximumPoolSize(anyInt());
+  }
+
+  /** Tests for adjustIfDue() function */
+  @Test
+  public void adjustIfDue_intervalNotPassed_keepsSize() {
+    when(poolBean.getThreadsAwaitingConnection()).thenReturn(2);
+
+    controller.adjustIfDue();
+
+    verify(configBean, never()).setMaximumPoolSize(anyInt());
+  }
+
+  @Test
+  public void adjustIfDue_intervalPassed_growsPool() {
+    when(poolBean.getThreadsAwaitingConnection()).thenReturn(2);
+    controller = new PoolSizeController(poolBean, configBean, poolMetrics,
+        /*lowerBound=*/10, /*upperBound=*/40, /*targetWaitMillis=*/50, /*adjustInterval=*/0);
+
+    controller.adjustIfDue();
+
+    verify(configBean).setMaximumPoolSize(25);
+  }
+}
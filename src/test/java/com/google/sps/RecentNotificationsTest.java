@@ -0,0 +1,200 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+ 
+package com.google.sps;
+
+import com.google.sps.classes.Notification;
+import com.google.sps.classes.NotificationPage;
+import com.google.sps.classes.RecentNotifications;
+import com.google.sps.classes.Utility;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.Test;
+
+@RunWith(JUnit4.class)
+public final class RecentNotificationsTest {
+
+  /** Tests for of() and toPage() functions */
+  @Test
+  public void toPage_partialPage_keepsOrderWithoutCursor() {
+    RecentNotifications recentNotifications =
+        RecentNotifications.of(pageOf(3, 2, 1, /*olderNotificationsCursor=*/null), 5);
+
+    NotificationPage page = recentNotifications.toPage();
+
+    assertIds(page, 3, 2, 1);
+    Assert.assertNull(page.getOlderNotificationsCursor());
+    Assert.assertEquals(5, recentNotifications.getUnreadCount());
+  }
+
+  /** Tests for with() function */
+  @Test
+  public void with_partialPage_addsNewestFirst() {
+    RecentNotifications recentNotifications =
+        RecentNotifications.of(pageOf(2, 1, /*olderNotificationsCursor=*/null), 0);
+
+    recentNotifications = recentNotifications.with(notification(3));
+
+    assertIds(recentNotifications.toPage(), 3, 2, 1);
+    Assert.assertNull(recentNotifications.toPage().getOlderNotificationsCursor());
+    Assert.assertEquals(1, recentNotifications.getUnreadCount());
+  }
+
+  @Test
+  public void with_empty_addsNotification() {
+    RecentNotifications recentNotifications =
+        RecentNotifications.EMPTY.with(notification(1));
+
+    assertIds(recentNotifications.toPage(), 1);
+  }
+
+  @Test
+  public void with_fullPage_dropsOldestAndAddsCursor() {
+    int[] ids = new int[RecentNotifications.CAPACITY];
+    for (int index = 0; index < ids.length; index++) {
+      ids[index] = ids.length - index;
+    }
+    RecentNotifications recentNotifications =
+        RecentNotifications.of(pageOf(ids, /*olderNotificationsCursor=*/null), 0);
+
+    recentNotifications = recentNotifications.with(notification(ids.length + 1));
+
+    NotificationPage page = recentNotifications.toPage();
+    List<Notification> notifications = page.getNotifications();
+    Assert.assertEquals(RecentNotifications.CAPACITY, notifications.size());
+    Assert.assertEquals(ids.length + 1, notifications.get(0).id);
+    Notification oldest = notifications.get(notifications.size() - 1);
+    Assert.assertEquals(2, oldest.id);
+    Assert.assertEquals(Utility.buildCursor(oldest.timestamp, oldest.id),
+        page.getOlderNotificationsCursor());
+  }
+
+  @Test
+  public void with_calledTwice_keepsPreviousBufferUnchanged() {
+    RecentNotifications original =
+        RecentNotifications.of(pageOf(1, /*olderNotificationsCursor=*/null), 0);
+
+    original.with(notification(2));
+
+    assertIds(original.toPage(), 1);
+  }
+
+  @Test
+  public void with_coalescedNotificationAlreadyUnread_movesToNewestWithoutCounting() {
+    RecentNotifications recentNotifications =
+        RecentNotifications.of(pageOf(3, 2, 1, /*olderNotificationsCursor=*/null), 3);
+    Notification coalesced = notification(2);
+    coalesced.message = "Your question got 2 new answers.";
+
+    recentNotifications = recentNotifications.with(coalesced);
+
+    NotificationPage page = recentNotifications.toPage();
+    assertIds(page, 2, 3, 1);
+    Assert.assertEquals("Your question got 2 new answers.",
+        page.getNotifications().get(0).message);
+    Assert.assertEquals(3, recentNotifications.getUnreadCount());
+  }
+
+  @Test
+  public void with_coalescedNotificationRead_countsItAsUnreadAgain() {
+    Notification read = notification(1);
+    read.isRead = true;
+    List<Notification> notifications = new ArrayList<>();
+    notifications.add(notification(2));
+    notifications.add(read);
+    RecentNotifications recentNotifications =
+        RecentNotifications.of(new NotificationPage(notifications, null), 1);
+
+    recentNotifications = recentNotifications.with(notification(1));
+
+    assertIds(recentNotifications.toPage(), 1, 2);
+    Assert.assertEquals(2, recentNotifications.getUnreadCount());
+  }
+
+  @Test
+  public void with_coalescedNewestNotification_keepsOrder() {
+    RecentNotifications recentNotifications =
+        RecentNotifications.of(pageOf(2, 1, /*olderNotificationsCursor=*/"cursor"), 2);
+
+    recentNotifications = recentNotifications.with(notification(2));
+
+    assertIds(recentNotifications.toPage(), 2, 1);
+    Assert.assertNotNull(recentNotifications.toPage().getOlderNotificationsCursor());
+    Assert.assertEquals(2, recentNotifications.getUnreadCount());
+  }
+
+  @Test
+  public void with_etag_keepsEtag() {
+    RecentNotifications recentNotifications =
+        RecentNotifications.of(pageOf(2, 1, /*olderNotificationsCursor=*/null), 0)
+            .withEtag("\"local-0-1\"");
+
+    RecentNotifications added = recentNotifications.with(notification(3));
+    RecentNotifications coalesced = recentNotifications.with(notification(1));
+
+    Assert.assertEquals("\"local-0-1\"", added.getEtag());
+    Assert.assertEquals("\"local-0-1\"", coalesced.getEtag());
+    Assert.assertNull(RecentNotifications.EMPTY.getEtag());
+  }
+
+  /** Tests for contains() function */
+  @Test
+  public void contains_notificationInBuffer_returnsTrue() {
+    RecentNotifications recentNotifications =
+        RecentNotifications.of(pageOf(2, 1, /*olderNotificationsCursor=*/null), 0);
+
+    Assert.assertTrue(recentNotifications.contains(1));
+    Assert.assertFalse(recentNotifications.contains(3));
+  }
+
+  private static Notification notification(int id) {
+    Notification notification = new Notification();
+    notification.id = id;
+    notification.timestamp = new Timestamp(id * 1000L);
+    return notification;
+  }
+
+  private static NotificationPage pageOf(int first, String olderNotificationsCursor) {
+    return pageOf(new int[] {first}, olderNotificationsCursor);
+  }
+
+  private static NotificationPage pageOf(int first, int second, String olderNotificationsCursor) {
+    return pageOf(new int[] {first, second}, olderNotificationsCursor);
+  }
+
+  private static NotificationPage pageOf(int first, int second, int third,
+      String olderNotificationsCursor) {
+    return pageOf(new int[] {first, second, third}, olderNotificationsCursor);
+  }
+
+  private static NotificationPage pageOf(int[] ids, String olderNotificationsCursor) {
+    List<Notification> notifications = new ArrayList<>();
+    for (int id : ids) {
+      notifications.add(notification(id));
+    }
+    return new NotificationPage(notifications, olderNotificationsCursor);
+  }
+
+  private static void assertIds(NotificationPage page, int... expectedIds) {
+    List<Notification> notifications = page.getNotifications();
+    Assert.assertEquals(expectedIds.length, notifications.size());
+    for (int index = 0; index < expectedIds.length; index++) {
+      Assert.assertEquals(expectedIds[index], notifications.get(index).id);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+ 
+package com.google.sps;
+
+import com.google.sps.classes.ReplicaRouter;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public final class ReplicaRouterTest {
+
+  private ReplicaRouter router;
+  private HttpServletRequest request;
+
+  @Before
+  public void setUp() {
+    // GET request without cookies, routed with a stickiness of 10 seconds.
+    router = new ReplicaRouter(10000);
+    request = mock(HttpServletRequest.class);
+    when(request.getMethod()).thenReturn("GET");
+  }
+
+  /** Tests for isReadOnly() function */
+  @Test
+  public void isReadOnly_get_returnsTrue() {
+    Assert.assertTrue(router.isReadOnly(request));
+  }
+
+  @Test
+  public void isReadOnly_post_returnsFalse() {
+    when(request.getMethod()).thenReturn("POST");
+
+    Assert.assertFalse(router.isReadOnly(request));
+  }
+
+  @Test
+  public void isReadOnly_cronJob_returnsFalse() {
+    when(request.getHeader("X-Appengine-Cron")).thenReturn("true");
+
+    Assert.assertFalse(router.isReadOnly(request));
+  }
+
+  @Test
+  public void isReadOnly_recentWriteCookie_returnsFalse() {
+    when(request.getCookies()).thenReturn(
+        new Cookie[] {new Cookie(ReplicaRouter.RECENT_WRITE_COOKIE, "1")});
+
+    Assert.assertFalse(router.isReadOnly(request));
+  }
+
+  @Test
+  public void isReadOnly_otherCookie_returnsTrue() {
+    when(request.getCookies()).thenReturn(new Cookie[] {new Cookie("JSESSIONID", "abc")});
+
+    Assert.assertTrue(router.isReadOnly(request));
+  }
+
+  @Test
+  public void isReadOnly_recentWriteOfOtherBrowser_returnsTrue() {
+    router.startWrite(mock(HttpServletResponse.class));
+    router.endWrite();
+
+    Assert.assertTrue(router.isReadOnly(request));
+  }
+
+  /** Tests for canCacheReplicaReads() function */
+  @Test
+  public void canCacheReplicaReads_noWrite_returnsTrue() {
+    Assert.assertTrue(router.canCacheReplicaReads());
+  }
+
+  @Test
+  public void canCacheReplicaReads_writeInProgress_returnsFalse() {
+    router = new ReplicaRouter(0);
+    router.startWrite(mock(HttpServletResponse.class));
+
+    Assert.assertFalse(router.canCacheReplicaReads());
+  }
+
+  @Test
+  public void canCacheReplicaReads_recentWrite_returnsFalse() {
+    router.startWrite(mock(HttpServletResponse.class));
+    router.endWrite();
+
+    Assert.assertFalse(router.canCacheReplicaReads());
+  }
+
+  @Test
+  public void canCacheReplicaReads_recentBackgroundWrite_returnsFalse() {
+    router.recordWrite();
+
+    Assert.assertFalse(router.canCacheReplicaReads());
+  }
+
+  @Test
+  public void canCacheReplicaReads_writeOlderThanStickiness_returnsTrue()
+      throws InterruptedException {
+    router = new ReplicaRouter(1);
+    router.startWrite(mock(HttpServletResponse.class));
+    router.endWrite();
+    Thread.sleep(5);
+
+    Assert.assertTrue(router.canCacheReplicaReads());
+  }
+
+  /** Tests for startWrite() function */
+  @Test
+  public void startWrite_addsRecentWriteCookie() {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+
+    router.startWrite(response);
+
+    verify(response).addCookie(argThat(
+        cookie -> ReplicaRouter.RECENT_WRITE_COOKIE.equals(cookie.getName())
+            && cookie.getMaxAge() == 10));
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+ 
+package com.google.sps;
+
+import com.google.sps.classes.RequestConnection;
+import com.google.sps.classes.Utility;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.servlet.ServletContext;
+import javax.sql.DataSource;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public final class RequestConnectionTest {
+
+  private Connection pooledConnection;
+  private DataSource pool;
+  private ServletContext context;
+  private RequestConnection requestConnection;
+
+  @Before
+  public void setUp() throws SQLException {
+    // Context with a pool that always hands out the same mocked connection.
+    pooledConnection = mock(Connection.class);
+    when(pooledConnection.getAutoCommit()).thenReturn(true);
+    pool = mock(DataSource.class);
+    when(pool.getConnection()).thenReturn(pooledConnection);
+    context = mock(ServletContext.class);
+    when(context.getAttribute("my-pool")).thenReturn(pool);
+    requestConnection = new RequestConnection(context);
+  }
+
+  /** Tests for get() and release() functions */
+  @Test
+  public void get_calledTwice_borrowsOneConnection() throws SQLException {
+    Connection first = requestConnection.get();
+    Connection second = requestConnection.get();
+
+    Assert.assertSame(first, second);
+    verify(pool, times(1)).getConnection();
+  }
+
+  @Test
+  public void close_sharedConnection_keepsItOpen() throws SQLException {
+    requestConnection.get().close();
+
+    verify(pooledConnection, never()).close();
+  }
+
+  @Test
+  public void close_uncommittedTransaction_rollsBack() throws SQLException {
+    Connection connection = requestConnection.get();
+    when(pooledConnection.getAutoCommit()).thenReturn(false);
+
+    connection.close();
+
+    verify(pooledConnection).rollback();
+    verify(pooledConnection).setAutoCommit(true);
+  }
+
+  @Test
+  public void release_borrowedConnection_closesIt() throws SQLException {
+    requestConnection.get();
+
+    requestConnection.release();
+
+    verify(pooledConnection).close();
+  }
+
+  @Test
+  public void release_nothingBorrowed_doesNothing() throws SQLException {
+    requestConnection.release();
+
+    verify(pool, never()).getConnection();
+  }
+
+  @Test
+  public void get_readOnlyWithReadPool_borrowsFromReadPool() throws SQLException {
+    DataSource readPool = mock(DataSource.class);
+    when(readPool.getConnection()).thenReturn(mock(Connection.class));
+    when(context.getAttribute(Utility.READ_POOL_ATTRIBUTE)).thenReturn(readPool);
+
+    new RequestConnection(context, /*readOnly=*/true).get();
+
+    verify(readPool).getConnection();
+    verify(pool, never()).getConnection();
+  }
+
+  @Test
+  public void get_readOnlyWithoutReadPool_borrowsFromPool() throws SQLException {
+    new RequestConnection(context, /*readOnly=*/true).get();
+
+    verify(pool).getConnection();
+  }
+
+  @Test
+  public void get_notReadOnly_ignoresReadPool() throws SQLException {
+    DataSource readPool = mock(DataSource.class);
+    when(context.getAttribute(Utility.READ_POOL_ATTRIBUTE)).thenReturn(readPool);
+
+    requestConnection.get();
+
+    verify(pool).getConnection();
+    verify(readPool, never()).getConnection();
+  }
+}
@@ -18,13 +18,20 @@ import com.google.appengine.api.users.UserService;
 import com.google.appengine.api.users.UserServiceFactory;
 import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
 import com.google.appengine.tools.development.testing.LocalUserServiceTestConfig;
+import com.google.gson.Gson;
 import com.google.sps.classes.Answer;
 import com.google.sps.classes.Comment;
 import com.google.sps.classes.ForumPage;
+import com.google.sps.classes.JsonAdapters;
+import com.google.sps.classes.Notification;
 import com.google.sps.classes.Question;
 import com.google.sps.classes.SqlConstants;
+import com.google.sps.classes.SqlStatements;
 import com.google.sps.classes.SubjectTag;
 import com.google.sps.classes.Utility;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Date;
@@ -33,6 +40,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.junit.Assert;
 import org.junit.Before;
@@ -71,6 +79,160 @@ public final class UtilityTest {
     Assert.assertEquals(expectedJson, actualJson);
   }
   
+  /** Tests for writeJsonUsingGson() function */
+  @Test
+  public void writeJsonUsingGson_test_writesJsonToResponse() throws IOException {
+    // Response that writes to a string instead of the network.
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    StringWriter responseBody = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(responseBody));
+    SubjectTag tag = new SubjectTag(5, "Interviews", "red");
+    String expectedJson = "{\"id\":5,\"subject\":\"Interviews\",\"color\":\"red\"}";
+
+    Utility.writeJsonUsingGson(tag, response);
+
+    Assert.assertEquals(expectedJson, responseBody.toString());
+  }
+
+  @Test
+  public void writeJsonUsingGson_list_writesSameJsonAsConvert() throws IOException {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    StringWriter responseBody = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(responseBody));
+    List<SubjectTag> tags = new ArrayList<>(
+        List.of(new SubjectTag(1, "Google", "blue"), new SubjectTag()));
+
+    Utility.writeJsonUsingGson(tags, response);
+
+    Assert.assertEquals(Utility.convertToJsonUsingGson(tags), responseBody.toString());
+  }
+
+  /** Tests for the hand-written adapters of JsonAdapters */
+  @Test
+  public void convertUsingGsonToJson_question_writesTimestampAsEpochMillis() {
+    Question question = new Question();
+    question.setId(3);
+    question.setTitle("Title");
+    question.setBody("Body");
+    question.setAskerName("Asker");
+    question.setAskerId(7);
+    question.setDateTime(new Timestamp(1598899790000L));
+    question.setNumberOfFollowers(2);
+    question.setNumberOfAnswers(1);
+    String expectedJson = "{\"id\":3,\"title\":\"Title\",\"body\":\"Body\","
+        + "\"askerName\":\"Asker\",\"askerId\":7,\"dateTime\":1598899790000,"
+        + "\"numberOfFollowers\":2,\"numberOfAnswers\":1,\"userFollowsQuestion\":false}";
+
+    String actualJson = Utility.convertToJsonUsingGson(question);
+
+    Assert.assertEquals(expectedJson, actualJson);
+  }
+
+  @Test
+  public void convertUsingGsonToJson_questionWithoutValues_skipsNulls() {
+    // Nulls are skipped as the reflective adapter did.
+    Question question = new Question();
+    String expectedJson = "{\"id\":0,\"askerId\":0,\"numberOfFollowers\":0,"
+        + "\"numberOfAnswers\":0,\"userFollowsQuestion\":false}";
+
+    String actualJson = Utility.convertToJsonUsingGson(question);
+
+    Assert.assertEquals(expectedJson, actualJson);
+  }
+
+  @Test
+  public void convertUsingGsonToJson_forumPage_writesQuestionsWithTheirAdapter() {
+    Question question = new Question();
+    question.setId(1);
+    question.setDateTime(new Timestamp(1000L));
+    List<Question> questions = new ArrayList<>();
+    questions.add(question);
+    ForumPage forumPage = new ForumPage(2, null, questions, null, "1_1");
+
+    String actualJson = Utility.convertToJsonUsingGson(forumPage);
+
+    Assert.assertEquals(
+        "{\"nextPage\":2,\"pageQuestions\":[{\"id\":1,\"askerId\":0,"
+            + "\"dateTime\":1000,\"numberOfFollowers\":0,\"numberOfAnswers\":0,"
+            + "\"userFollowsQuestion\":false}],\"previousCursor\":\"1_1\"}",
+        actualJson);
+  }
+  
+  /** Tests for reading JSON with the Gson of JsonAdapters */
+  @Test
+  public void createGson_writtenQuestion_readsBackItsFields() {
+    Gson gson = JsonAdapters.createGson();
+    Question question = new Question();
+    question.setId(3);
+    question.setDateTime(new Timestamp(1598899790000L));
+
+    Question actual = gson.fromJson(gson.toJson(question), Question.class);
+
+    Assert.assertEquals(3, actual.getId());
+    Assert.assertEquals(new Timestamp(1598899790000L), actual.getDateTime());
+  }
+
+  @Test
+  public void createGson_writtenAnswer_readsBackItsComments() {
+    Gson gson = JsonAdapters.createGson();
+    Comment comment = new Comment();
+    comment.setId(4);
+    comment.setDateTime(new Timestamp(1000L));
+    Answer answer = new Answer();
+    answer.setId(2);
+    answer.addComment(comment);
+    answer.setNumberOfComments(1);
+
+    Answer actual = gson.fromJson(gson.toJson(answer), Answer.class);
+
+    Assert.assertEquals(2, actual.getId());
+    Assert.assertEquals(1, actual.getNumberOfComments());
+    Assert.assertEquals(4, actual.getCommentList().get(0).getId());
+    Assert.assertEquals(new Timestamp(1000L), actual.getCommentList().get(0).getDateTime());
+  }
+
+  /** Tests for respondIfNotModified() function */
+  @Test
+  public void respondIfNotModified_matchingEtag_responds304() {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(request.getHeader("If-None-Match")).thenReturn("\"other\", \"abc-1\"");
+
+    boolean actual = Utility.respondIfNotModified("\"abc-1\"", /*isPublic=*/true, request,
+        response);
+
+    Assert.assertTrue(actual);
+    verify(response).setHeader("ETag", "\"abc-1\"");
+    verify(response).setHeader("Cache-Control", "public, no-cache");
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+  }
+
+  @Test
+  public void respondIfNotModified_differentEtag_returnsFalse() {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(request.getHeader("If-None-Match")).thenReturn("\"abc-0\"");
+
+    boolean actual = Utility.respondIfNotModified("\"abc-1\"", /*isPublic=*/false, request,
+        response);
+
+    Assert.assertFalse(actual);
+    verify(response).setHeader("Cache-Control", "private, no-cache");
+    verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+  }
+
+  @Test
+  public void respondIfNotModified_noEtagFromClient_returnsFalse() {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+
+    boolean actual = Utility.respondIfNotModified("\"abc-1\"", /*isPublic=*/true, request,
+        response);
+
+    Assert.assertFalse(actual);
+    verify(response).setHeader("ETag", "\"abc-1\"");
+  }
+
   /** Tests for tryParseInt() function */
   @Test
   public void tryParseInt_positiveValue_returnsPositiveInt() {
@@ -138,23 +300,25 @@ public final class UtilityTest {
     Assert.assertEquals(actual, expected);
   }
 
-  /** Testing for splitPages function */
+  /** Testing for buildForumPage function */
   @Test
-  public void splitPages_emptyList_Success() {
+  public void buildForumPage_emptyList_Success() {
     // Empty list.
     List<Question> emptyList = new ArrayList<>();
 
     // This would be an empty search result, and when searching
     // by default we get page number 1.
-    ForumPage actual = Utility.splitPages(/*questions=*/emptyList, /*pageNumber=*/1);
+    ForumPage actual = Utility.buildForumPage(/*questions=*/emptyList, /*pageNumber=*/1,
+        /*hasNextPage=*/false, /*hasPreviousPage=*/false);
     ForumPage expected = new ForumPage(
-      /*nextPage=*/null, /*previousPage=*/null, /*numberOfPages=*/0, /*pageQuestions=*/emptyList);
+      /*nextPage=*/null, /*previousPage=*/null, /*pageQuestions=*/emptyList,
+      /*nextCursor=*/null, /*previousCursor=*/null);
 
     Assert.assertTrue(EqualsBuilder.reflectionEquals(expected,actual));
   }
 
   @Test
-  public void splitPages_underTenElements_Success() {
+  public void buildForumPage_underTenElements_Success() {
     // Empty questions with different IDs for testing, 
     // the content of the question isn't being tested.
     Question testQuestion1 = new Question();
@@ -175,15 +339,17 @@ public final class UtilityTest {
 
     // This would be a small search result, and when searching
     // by default we get page number 1.
-    ForumPage actual = Utility.splitPages(/*questions=*/testList, /*pageNumber=*/1);
+    ForumPage actual = Utility.buildForumPage(/*questions=*/testList, /*pageNumber=*/1,
+        /*hasNextPage=*/false, /*hasPreviousPage=*/false);
     ForumPage expected = new ForumPage(
-      /*nextPage=*/null, /*previousPage=*/null, /*numberOfPages=*/1, /*pageQuestions=*/testList);
+      /*nextPage=*/null, /*previousPage=*/null, /*pageQuestions=*/testList,
+      /*nextCursor=*/null, /*previousCursor=*/null);
 
     Assert.assertTrue(EqualsBuilder.reflectionEquals(expected,actual));
   }
 
   @Test
-  public void splitPages_overTenElements_Success() {
+  public void buildForumPage_overTenElements_Success() {
     // Empty questions with different IDs for testing, 
     // the content of the question isn't being tested.
     Question testQuestion1 = new Question();
@@ -206,42 +372,48 @@ public final class UtilityTest {
     testQuestion9.setId(9);
     Question testQuestion10 = new Question();
     testQuestion10.setId(10);
-    Question testQuestion11 = new Question();
-    testQuestion11.setId(11);
-    Question testQuestion12 = new Question();
-    testQuestion12.setId(12);
-    Question testQuestion13 = new Question();
-    testQuestion13.setId(13);
-    Question testQuestion14 = new Question();
-    testQuestion14.setId(14);
-    Question testQuestion15 = new Question();
-    testQuestion15.setId(15);
-
-    // We pass a list of 15 elements.
-    List<Question> testList = new ArrayList<>(
-      List.of(testQuestion1, testQuestion2, testQuestion3, testQuestion4, testQuestion5,
-          testQuestion6, testQuestion7, testQuestion8, testQuestion9, testQuestion10,
-          testQuestion11, testQuestion12, testQuestion13, testQuestion14, testQuestion15)
-    );
 
-    // Since the page size is 10, we should get the first 10 questions of the list on
-    // the first page.
+    // Since the page size is 10, the first 10 of the 11 questions read from the database are
+    // kept on the first page, and the 11th one tells there is a next page.
     List<Question> trimmedTestList = new ArrayList<>(
       List.of(testQuestion1, testQuestion2, testQuestion3, testQuestion4, testQuestion5,
           testQuestion6, testQuestion7, testQuestion8, testQuestion9, testQuestion10)
     );
 
     // This would be a big search result with more than 1 page, and when searching
-    // by default we get page number 1.
-    ForumPage actual = Utility.splitPages(/*questions=*/testList, /*pageNumber=*/1);
+    // by default we get page number 1. The next page starts after the last question.
+    ForumPage actual = Utility.buildForumPage(/*questions=*/trimmedTestList, /*pageNumber=*/1,
+        /*hasNextPage=*/true, /*hasPreviousPage=*/false);
+    ForumPage expected = new ForumPage(
+      /*nextPage=*/2, /*previousPage=*/null, /*pageQuestions=*/trimmedTestList,
+      /*nextCursor=*/Utility.buildCursor(testQuestion10), /*previousCursor=*/null);
+
+    Assert.assertTrue(EqualsBuilder.reflectionEquals(expected,actual));
+  }
+
+  @Test
+  public void buildForumPage_middlePage_returnsBothCursors() {
+    // Questions of the second page, with pages before and after it.
+    Question testQuestion1 = new Question();
+    testQuestion1.setId(11);
+    testQuestion1.setDateTime(new Timestamp(1598899890));
+    Question testQuestion2 = new Question();
+    testQuestion2.setId(12);
+    testQuestion2.setDateTime(new Timestamp(1598899790));
+    List<Question> testList = new ArrayList<>(List.of(testQuestion1, testQuestion2));
+
+    // The previous page ends before the first question and the next one starts after the last.
+    ForumPage actual = Utility.buildForumPage(/*questions=*/testList, /*pageNumber=*/2,
+        /*hasNextPage=*/true, /*hasPreviousPage=*/true);
     ForumPage expected = new ForumPage(
-      /*nextPage=*/2, /*previousPage=*/null, /*numberOfPages=*/2, /*pageQuestions=*/trimmedTestList);
+      /*nextPage=*/3, /*previousPage=*/1, /*pageQuestions=*/testList,
+      /*nextCursor=*/"1598899790_12", /*previousCursor=*/"1598899890_11");
 
     Assert.assertTrue(EqualsBuilder.reflectionEquals(expected,actual));
   }
 
   @Test
-  public void splitPages_justTenElements_Success() {
+  public void buildForumPage_justTenElements_Success() {
     // Empty questions with different IDs for testing, 
     // the content of the question isn't being tested.
     Question testQuestion1 = new Question();
@@ -273,9 +445,11 @@ public final class UtilityTest {
 
     // This would be a result with the limit of the page size, and when searching
     // by default we get page number 1.
-    ForumPage actual = Utility.splitPages(/*questions=*/testList, /*pageNumber=*/1);
+    ForumPage actual = Utility.buildForumPage(/*questions=*/testList, /*pageNumber=*/1,
+        /*hasNextPage=*/false, /*hasPreviousPage=*/false);
     ForumPage expected = new ForumPage(
-      /*nextPage=*/null, /*previousPage=*/null, /*numberOfPages=*/1, /*pageQuestions=*/testList);
+      /*nextPage=*/null, /*previousPage=*/null, /*pageQuestions=*/testList,
+      /*nextCursor=*/null, /*previousCursor=*/null);
 
     Assert.assertTrue(EqualsBuilder.reflectionEquals(expected,actual));
   }
@@ -304,8 +478,6 @@ public final class UtilityTest {
           .thenReturn(3);
       when(testResultSet.getInt(SqlConstants.QUESTION_FETCH_NUMBEROFANSWERS))
           .thenReturn(4);
-      when(testResultSet.getInt(SqlConstants.QUESTION_FETCH_USERFOLLOWSQUESTION))
-          .thenReturn(5);
     } catch (SQLException exception) {
       Logger logger = Logger.getLogger(UtilityTest.class.getName());
       logger.log(Level.SEVERE, exception.getMessage(), exception);
@@ -320,7 +492,6 @@ public final class UtilityTest {
     expected.setDateTime(new Timestamp(1598899890));
     expected.setNumberOfFollowers(3);
     expected.setNumberOfAnswers(4);
-    expected.setUserFollowsQuestion(true);
     
     Assert.assertTrue(EqualsBuilder.reflectionEquals(expected,actual));
   }
@@ -493,6 +664,18 @@ public final class UtilityTest {
     loggedInUser.tearDown();
   }
 
+  @Test
+  public void getUserId_alreadyResolved_returnsIdFromRequest() {
+    // Request where the filter already resolved the user.
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getAttribute(Utility.USER_ID_ATTRIBUTE)).thenReturn(7);
+
+    int actual = Utility.getUserId(request);
+
+    Assert.assertEquals(7, actual);
+    verify(request, never()).getServletContext();
+  }
+
   /** Tests for getUsername() function */
   @Test
   public void getUsername_validId_returnsUsername() {
@@ -813,6 +996,53 @@ public final class UtilityTest {
     Assert.assertTrue(notificationId == 0);
   }
 
+  /** Tests for buildCursor() function */
+  @Test
+  public void buildCursor_comment_returnsMillisAndId() {
+    Assert.assertEquals("1598899890_4", Utility.buildCursor(new Timestamp(1598899890), 4));
+  }
+
+  @Test
+  public void buildCursor_noDate_returnsZeroMillis() {
+    Assert.assertEquals("0_4", Utility.buildCursor(/*dateTime=*/null, 4));
+  }
+
+  /** Tests for SqlStatements.getCommentsOfAnswers() function */
+  @Test
+  public void getCommentsOfAnswers_threeAnswers_roundsUpToFourPlaceholders() {
+    String actualQuery = SqlStatements.getCommentsOfAnswers(3);
+
+    // One placeholder per answer ID plus the number of comments per answer.
+    Assert.assertEquals(5, actualQuery.length() - actualQuery.replace("?", "").length());
+    Assert.assertEquals(4, SqlStatements.getCommentsOfAnswersPlaceholders(3));
+  }
+
+  @Test
+  public void getCommentsOfAnswers_similarSizes_shareStatement() {
+    Assert.assertEquals(SqlStatements.getCommentsOfAnswers(5),
+        SqlStatements.getCommentsOfAnswers(16));
+  }
+
+  @Test
+  public void getCommentsOfAnswers_moreThanLargestSize_returnsOnePlaceholderPerAnswer() {
+    Assert.assertEquals(100, SqlStatements.getCommentsOfAnswersPlaceholders(100));
+  }
+
+  /** Tests for SqlStatements.getForumPage() function */
+  @Test
+  public void getForumPage_noCursor_returnsFirstPage() {
+    Assert.assertEquals(SqlStatements.FETCH_FORUM_FIRST_PAGE, SqlStatements.getForumPage(
+        /*isSearch=*/false, /*hasCursor=*/false, /*isPreviousPage=*/false));
+    Assert.assertEquals(SqlStatements.FETCH_SEARCH_FIRST_PAGE, SqlStatements.getForumPage(
+        /*isSearch=*/true, /*hasCursor=*/false, /*isPreviousPage=*/false));
+  }
+
+  @Test
+  public void getForumPage_previousSearchPage_returnsPreviousSearchPage() {
+    Assert.assertEquals(SqlStatements.FETCH_SEARCH_PREVIOUS_PAGE, SqlStatements.getForumPage(
+        /*isSearch=*/true, /*hasCursor=*/true, /*isPreviousPage=*/true));
+  }
+
   /** Tests function buildAnswerFull(). */
   @Test
   public void buildAnswer_validResultSet_successfulBuild() {
@@ -826,13 +1056,6 @@ public final class UtilityTest {
           "Andres Abundis");
       when(resultSetMock.getTimestamp(SqlConstants.ANSWER_FETCH_DATETIME)).thenReturn(
           new Timestamp(1598899890));
-      // Mock behaviors for answer creation.
-      when(resultSetMock.getString(SqlConstants.COMMENT_FETCH_BODY)).thenReturn(
-          "Great answer!");
-      when(resultSetMock.getString(SqlConstants.COMMENT_FETCH_AUTHORNAME)).thenReturn(
-          "Gloria Park");
-      when(resultSetMock.getTimestamp(SqlConstants.COMMENT_FETCH_DATETIME)).thenReturn(
-          new Timestamp(1599899890));
     } catch (SQLException exception) {
       // If the connection or the query don't go through, we get the log of what happened.
       Logger logger = Logger.getLogger(UtilityTest.class.getName());
@@ -840,23 +1063,93 @@ public final class UtilityTest {
     }
     Answer actualAnswer = Utility.buildAnswer(resultSetMock);
 
-    // Create comment to insert in the answer.
-    Comment expectedComment = new Comment();
-    expectedComment.setBody("Great answer!");
-    expectedComment.setAuthorName("Gloria Park");
-    expectedComment.setDateTime(new Timestamp(1599899890));
-    // Create answer to be compared.
+    // Create answer to be compared. Comments are fetched by a separate query.
     Answer expectedAnswer = new Answer();
     expectedAnswer.setId(1);
     expectedAnswer.setBody("You may get it at your college!");
     expectedAnswer.setAuthorName("Andres Abundis");
     expectedAnswer.setDateTime(new Timestamp(1598899890));
-    // Insert previously created expectedComment to expectedAnswer.
-    expectedAnswer.addComment(expectedComment);
 
     Assert.assertEquals(Utility.convertToJsonUsingGson(expectedAnswer), 
                         Utility.convertToJsonUsingGson(actualAnswer));
                         
     // TODO(aabundis): update test to assert with the EqualsBuilder.
   }
+
+  /** Tests for executeInsertForId() function */
+  @Test
+  public void executeInsertForId_generatedKey_returnsIt() throws SQLException {
+    ResultSet generatedKeys = mock(ResultSet.class);
+    when(generatedKeys.next()).thenReturn(true);
+    when(generatedKeys.getInt(SqlConstants.GENERATED_ID)).thenReturn(42);
+    PreparedStatement statement = mock(PreparedStatement.class);
+    when(statement.getGeneratedKeys()).thenReturn(generatedKeys);
+
+    Assert.assertEquals(42, Utility.executeInsertForId(statement));
+    verify(statement).executeUpdate();
+  }
+
+  @Test(expected = SQLException.class)
+  public void executeInsertForId_noGeneratedKey_throws() throws SQLException {
+    ResultSet generatedKeys = mock(ResultSet.class);
+    when(generatedKeys.next()).thenReturn(false);
+    PreparedStatement statement = mock(PreparedStatement.class);
+    when(statement.getGeneratedKeys()).thenReturn(generatedKeys);
+
+    Utility.executeInsertForId(statement);
+  }
+
+  /** Tests for fetchNewerNotifications() function */
+  @Test
+  public void fetchNewerNotifications_cursor_setsTimeAndId() throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getInt(SqlConstants.NOTIFICATION_FETCH_ID)).thenReturn(8);
+    PreparedStatement statement = mock(PreparedStatement.class);
+    when(statement.executeQuery()).thenReturn(resultSet);
+    Connection connection = mock(Connection.class);
+    when(connection.prepareStatement(SqlStatements.FETCH_NEWER_NOTIFICATIONS))
+        .thenReturn(statement);
+
+    List<Notification> notifications =
+        Utility.fetchNewerNotifications(connection, 3, "1600000000000_7");
+
+    Assert.assertEquals(1, notifications.size());
+    Assert.assertEquals(8, notifications.get(0).id);
+    verify(statement).setInt(1, 3);
+    verify(statement).setTimestamp(2, new Timestamp(1600000000000L));
+    verify(statement).setTimestamp(3, new Timestamp(1600000000000L));
+    verify(statement).setInt(4, 7);
+    verify(statement).setInt(5, SqlConstants.NOTIFICATION_PAGE_SIZE);
+  }
+
+  @Test
+  public void fetchNewerNotifications_malformedCursor_fetchesNothing() throws SQLException {
+    Connection connection = mock(Connection.class);
+
+    List<Notification> notifications = Utility.fetchNewerNotifications(connection, 3, "7");
+
+    Assert.assertTrue(notifications.isEmpty());
+    verifyNoInteractions(connection);
+  }
+
+  /** Tests for getSetting() function */
+  @Test
+  public void getSetting_systemProperty_returnsIt() {
+    System.setProperty("test.settingSet", " 42 ");
+
+    Assert.assertEquals(42, Utility.getSetting("test.settingSet", 7));
+  }
+
+  @Test
+  public void getSetting_notSet_returnsDefault() {
+    Assert.assertEquals(7, Utility.getSetting("test.settingNotSet", 7));
+  }
+
+  @Test
+  public void getSetting_notANumber_returnsDefault() {
+    System.setProperty("test.settingInvalid", "forty");
+
+    Assert.assertEquals(7, Utility.getSetting("test.settingInvalid", 7));
+  }
 }